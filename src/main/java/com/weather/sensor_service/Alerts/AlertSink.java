@@ -0,0 +1,11 @@
+package com.weather.sensor_service.Alerts;
+
+import com.weather.sensor_service.DTO.SensorAlertDTO;
+
+// Somewhere alerts are delivered to
+// Any bean implementing this is picked up by the AlertEngine
+public interface AlertSink {
+
+    // Called on the ingest thread so implementations must be quick and not throw
+    void deliver(SensorAlertDTO alert);
+}
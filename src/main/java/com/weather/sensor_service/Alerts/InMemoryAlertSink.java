@@ -0,0 +1,40 @@
+package com.weather.sensor_service.Alerts;
+
+import com.weather.sensor_service.DTO.SensorAlertDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+// Keeps the most recent alerts in a bounded queue so they can be read back through /alerts/recent
+@Component
+public class InMemoryAlertSink implements AlertSink {
+
+    private final ArrayBlockingQueue<SensorAlertDTO> queue;
+
+    public InMemoryAlertSink(@Value("${sensor.alerts.queue-size:1000}") int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    // Oldest alert is dropped when the queue is full
+    @Override
+    public void deliver(SensorAlertDTO alert) {
+        while (!queue.offer(alert)) {
+            queue.poll();
+        }
+    }
+
+    // Removes and returns every queued alert
+    public List<SensorAlertDTO> drain() {
+        List<SensorAlertDTO> alerts = new ArrayList<>();
+        queue.drainTo(alerts);
+        return alerts;
+    }
+
+    // Returns queued alerts without removing them
+    public List<SensorAlertDTO> peek() {
+        return new ArrayList<>(queue);
+    }
+}
@@ -0,0 +1,22 @@
+package com.weather.sensor_service.Alerts;
+
+import com.weather.sensor_service.DTO.SensorAlertDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Writes every alert to the application log
+// Disabled with sensor.alerts.log=false
+@Component
+@ConditionalOnProperty(name = "sensor.alerts.log", havingValue = "true", matchIfMissing = true)
+public class LoggingAlertSink implements AlertSink {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingAlertSink.class);
+
+    @Override
+    public void deliver(SensorAlertDTO alert) {
+        log.warn("ALERT {} : sensorId {} {} = {} (threshold {}) at {}",
+                alert.getRuleName(), alert.getSensorId(), alert.getMetric(), alert.getValue(), alert.getThreshold(), alert.getTimestamp());
+    }
+}
@@ -0,0 +1,54 @@
+package com.weather.sensor_service.Alerts;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weather.sensor_service.DTO.SensorAlertDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+// POSTs each alert as JSON to sensor.alerts.webhook-url
+// Sent asynchronously so a slow receiver never holds up ingest
+@Component
+@ConditionalOnProperty(name = "sensor.alerts.webhook-url")
+public class WebhookAlertSink implements AlertSink {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookAlertSink.class);
+
+    private final URI url;
+    private final ObjectMapper mapper;
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+
+    public WebhookAlertSink(@Value("${sensor.alerts.webhook-url}") String url, ObjectMapper mapper) {
+        this.url = URI.create(url);
+        this.mapper = mapper;
+    }
+
+    @Override
+    public void deliver(SensorAlertDTO alert) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(url)
+                    .timeout(Duration.ofSeconds(5))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(alert)))
+                    .build();
+
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .exceptionally(e -> {
+                        log.warn("Webhook alert delivery failed for rule {} : {}", alert.getRuleName(), e.getMessage());
+                        return null;
+                    });
+        } catch (Exception e) {
+            log.warn("Cant send webhook alert for rule {} : {}", alert.getRuleName(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.weather.sensor_service.Config;
+
+import com.weather.sensor_service.Services.AdmissionControl;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// Runs every /sensors and /groups request through AdmissionControl before it reaches the controller
+// The endpoint is the last fixed part of the mapped path (create-reading, get-all, groups ...)
+// Clients are told apart by their address, any client could send a made up header to get a fresh limit
+// The X-Client-Id header (sensor.admission.client-header) is only believed from sensor.admission.trusted-proxies
+@Component
+@Profile("!reactive")
+public class AdmissionInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT = AdmissionInterceptor.class.getName() + ".permit";
+
+    private final AdmissionControl admission;
+    private final String clientHeader;
+
+    // Addresses of gateways / proxies which set the client header themselves, none by default
+    private final Set<String> trustedProxies;
+
+    public AdmissionInterceptor(AdmissionControl admission,
+                                @Value("${sensor.admission.client-header:X-Client-Id}") String clientHeader,
+                                @Value("${sensor.admission.trusted-proxies:}") Set<String> trustedProxies) {
+        this.admission = admission;
+        this.clientHeader = clientHeader;
+        this.trustedProxies = trustedProxies;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // a streamed response comes back through here when it finishes, it was admitted the first time
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+
+        AdmissionControl.Permit permit = admission.admit(endpointOf(request), clientOf(request), sensorIdsOf(request));
+        request.setAttribute(PERMIT, permit);
+        return true;
+    }
+
+    // Permit the request was admitted with, null if it didn't come through here
+    // Handlers which check more limits later (e.g. a sensorId from the body) pass it on so a rejection refunds its tokens
+    public static AdmissionControl.Permit permitOf(HttpServletRequest request) {
+        return request.getAttribute(PERMIT) instanceof AdmissionControl.Permit permit ? permit : null;
+    }
+
+    // Also called after a streamed response has been written, not when streaming starts
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT) instanceof AdmissionControl.Permit permit) {
+            request.removeAttribute(PERMIT);
+            permit.release();
+        }
+    }
+
+    // Client the request counts against
+    private String clientOf(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        if (!trustedProxies.contains(address)) {
+            return address;
+        }
+        String client = request.getHeader(clientHeader);
+        return client != null && !client.isBlank() ? client : address;
+    }
+
+    static String endpointOf(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String path = pattern != null ? pattern.toString() : request.getRequestURI();
+
+        String[] segments = path.split("/");
+        for (int i = segments.length - 1; i >= 0; i--) {
+            if (!segments[i].isEmpty() && !segments[i].startsWith("{")) {
+                return segments[i];
+            }
+        }
+        return path;
+    }
+
+    // sensorId / sensorIds query parameters, anything which isn't a number is left for the controller to reject
+    static List<Long> sensorIdsOf(HttpServletRequest request) {
+        List<Long> sensorIds = new ArrayList<>();
+        for (String name : new String[]{"sensorId", "sensorIds"}) {
+            String[] values = request.getParameterValues(name);
+            if (values == null) {
+                continue;
+            }
+            for (String value : values) {
+                for (String part : value.split(",")) {
+                    try {
+                        sensorIds.add(Long.parseLong(part.trim()));
+                    } catch (NumberFormatException ignored) {
+                        // reported by the controller's own parameter binding
+                    }
+                }
+            }
+        }
+        return sensorIds;
+    }
+}
@@ -0,0 +1,59 @@
+package com.weather.sensor_service.Config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Consistent hash ring mapping a sensorId to a shard
+// Every shard owns many virtual points on the ring so sensors are spread evenly
+// and adding a shard only moves roughly 1/N of the sensors
+public class ConsistentHashRing {
+
+    // ring position -> shard name
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    public ConsistentHashRing(List<String> shards, int virtualNodes) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("Consistent hash ring needs at least one shard");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Consistent hash ring needs at least one virtual node per shard");
+        }
+
+        for (String shard : shards) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.put(hashNode(shard + "#" + node), shard);
+            }
+        }
+    }
+
+    // First shard clockwise from the sensor's position
+    public String shardFor(long sensorId) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hashKey(sensorId));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    // Cheap 64 bit mix (splitmix64 finaliser) for the ingest path
+    static long hashKey(long key) {
+        key = (key ^ (key >>> 30)) * 0xbf58476d1ce4e5b9L;
+        key = (key ^ (key >>> 27)) * 0x94d049bb133111ebL;
+        return key ^ (key >>> 31);
+    }
+
+    // Virtual node positions only get hashed once so MD5 is fine here
+    private static long hashNode(String name) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(name.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xff);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.weather.sensor_service.Config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+// Hikari only logs leaked connections (spring.datasource.hikari.leak-detection-threshold)
+// This counts those warnings as hikaricp.connections.leaks so they show up next to the other pool metrics
+@Component
+public class HikariLeakMetrics {
+
+    private static final String LEAK_LOGGER = "com.zaxxer.hikari.pool.ProxyLeakTask";
+
+    public HikariLeakMetrics(MeterRegistry registry) {
+        Counter leaks = Counter.builder("hikaricp.connections.leaks")
+                .description("Connections held past the leak detection threshold")
+                .register(registry);
+
+        if (LoggerFactory.getLogger(LEAK_LOGGER) instanceof Logger logger) {
+            AppenderBase<ILoggingEvent> counter = new AppenderBase<>() {
+                @Override
+                protected void append(ILoggingEvent event) {
+                    // WARN = leak detected, INFO = the connection was returned later
+                    if (event.getLevel() == Level.WARN) {
+                        leaks.increment();
+                    }
+                }
+            };
+            counter.setName("hikari-leak-counter");
+            counter.setContext(logger.getLoggerContext());
+            counter.start();
+            logger.addAppender(counter);
+        }
+    }
+}
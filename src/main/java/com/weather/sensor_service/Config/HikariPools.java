@@ -0,0 +1,29 @@
+package com.weather.sensor_service.Config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+// Pools built for replicas / shards don't go through Boot's DataSource setup
+// so the spring.datasource.hikari settings and pool metrics are applied here
+final class HikariPools {
+
+    private HikariPools() {
+
+    }
+
+    static DataSource configure(DataSource dataSource, String poolName, Environment environment, MeterRegistry registry) {
+        if (dataSource instanceof HikariDataSource hikari) {
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(hikari));
+            hikari.setPoolName(poolName);
+            if (registry != null) {
+                hikari.setMetricRegistry(registry);
+            }
+        }
+        return dataSource;
+    }
+}
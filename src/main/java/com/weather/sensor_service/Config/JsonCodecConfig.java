@@ -0,0 +1,36 @@
+package com.weather.sensor_service.Config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+// Response encodings
+// The module is picked up by Spring Boot's ObjectMapper (every JSON response and the NDJSON stream)
+// CBOR (application/cbor) and Smile (application/x-jackson-smile) are binary forms of the same JSON, sent when the client's Accept asks for them
+// Both replace MVC's default converters of the same type so they stay behind JSON, which is still what */* gets
+@Configuration
+public class JsonCodecConfig {
+
+    @Bean
+    public SensorJsonModule sensorJsonModule() {
+        return new SensorJsonModule();
+    }
+
+    // The builder is a new instance per injection point with Boot's settings and modules (including the one above)
+    @Bean
+    @Profile("!reactive")
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    @Profile("!reactive")
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
@@ -0,0 +1,67 @@
+package com.weather.sensor_service.Config;
+
+import com.weather.sensor_service.Profiling.RequestProfile;
+import com.weather.sensor_service.Profiling.SensorRequestEvent;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+// Starts a RequestProfile for every API request and commits it as a SensorRequestEvent when the request finishes
+// Registered before AdmissionInterceptor so rejected requests are recorded too
+@Component
+@Profile("!reactive")
+public class ProfilingInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PROFILE = ProfilingInterceptor.class.getName() + ".profile";
+    private static final String EVENT = ProfilingInterceptor.class.getName() + ".event";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // a streamed response coming back once it has been written, profiled since the first dispatch
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+
+        SensorRequestEvent event = new SensorRequestEvent();
+        event.begin();
+        request.setAttribute(EVENT, event);
+        request.setAttribute(PROFILE, RequestProfile.start());
+        return true;
+    }
+
+    // The request carries on on another thread
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestProfile.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestProfile.clear();
+        if (!(request.getAttribute(EVENT) instanceof SensorRequestEvent event)
+                || !(request.getAttribute(PROFILE) instanceof RequestProfile profile)) {
+            return;
+        }
+        request.removeAttribute(EVENT);
+        request.removeAttribute(PROFILE);
+
+        long serializationNanos = profile.finishSerialization();
+        event.end();
+        if (event.shouldCommit()) {
+            event.requestId = profile.getRequestId();
+            event.method = request.getMethod();
+            event.endpoint = AdmissionInterceptor.endpointOf(request);
+            event.status = response.getStatus();
+            event.sensorCount = AdmissionInterceptor.sensorIdsOf(request).size();
+            event.rowsScanned = profile.getRowsScanned();
+            event.queryTime = profile.getQueryNanos();
+            event.aggregationTime = profile.getAggregationNanos();
+            event.waitTime = profile.getWaitNanos();
+            event.serializationTime = serializationNanos;
+            event.commit();
+        }
+    }
+}
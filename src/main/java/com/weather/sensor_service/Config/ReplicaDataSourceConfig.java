@@ -0,0 +1,65 @@
+package com.weather.sensor_service.Config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+// Only active when replicas are configured, e.g.
+// sensor.datasource.replicas.urls=jdbc:postgresql://replica-1/sensors,jdbc:postgresql://replica-2/sensors
+// Replicas use the spring.datasource username / password / driver unless overridden
+// Not used when sharding is configured
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "sensor.datasource.replicas.urls")
+@ConditionalOnExpression("'${sensor.datasource.shards.urls:}' == ''")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource routingDataSource(DataSourceProperties properties,
+                                                      @Value("${sensor.datasource.replicas.urls}") List<String> urls,
+                                                      @Value("${sensor.datasource.replicas.username:${spring.datasource.username:}}") String username,
+                                                      @Value("${sensor.datasource.replicas.password:${spring.datasource.password:}}") String password,
+                                                      @Value("${sensor.datasource.replicas.health-check-millis:5000}") long healthCheckMillis,
+                                                      Environment environment,
+                                                      ObjectProvider<MeterRegistry> meterRegistry) {
+
+        DataSource primary = HikariPools.configure(properties.initializeDataSourceBuilder().build(),
+                "sensor-primary", environment, meterRegistry.getIfAvailable());
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            DataSource replica = DataSourceBuilder.create()
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(urls.get(i))
+                    .username(username)
+                    .password(password)
+                    .build();
+            replicas.add(HikariPools.configure(replica, "sensor-replica-" + i, environment, meterRegistry.getIfAvailable()));
+        }
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas);
+        routing.startHealthChecks(healthCheckMillis);
+        return routing;
+    }
+
+    // The connection is only taken once the first query runs so the read-only flag is known when routing
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
@@ -0,0 +1,77 @@
+package com.weather.sensor_service.Config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Read-your-writes option for replica routing
+// If a sensor was written in the last sensor.datasource.read-your-writes-millis its reads stay on the primary
+// so a replica that is behind can't hide a reading that was just saved (0 = off)
+@Component
+public class ReplicaRouting {
+
+    // Set for the rest of a transaction which must use the primary
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    private final long readYourWritesMillis;
+
+    // sensorId -> time of its last write
+    private final ConcurrentHashMap<Long, Long> lastWrites = new ConcurrentHashMap<>();
+
+    // time of the last write for any sensor
+    private volatile long lastWrite;
+
+    public ReplicaRouting(@Value("${sensor.datasource.read-your-writes-millis:0}") long readYourWritesMillis) {
+        this.readYourWritesMillis = readYourWritesMillis;
+    }
+
+    public static boolean isPrimaryForced() {
+        return PRIMARY_FORCED.get() != null;
+    }
+
+    // Called after a reading is saved
+    public void recordWrite(Long sensorId) {
+        if (readYourWritesMillis <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        lastWrites.put(sensorId, now);
+        lastWrite = now;
+    }
+
+    // True if a read of these sensors would be pinned to the primary
+    // null sensorIds means the read covers every sensor
+    public boolean wroteRecently(Collection<Long> sensorIds) {
+        if (readYourWritesMillis <= 0) {
+            return false;
+        }
+
+        long cutoff = System.currentTimeMillis() - readYourWritesMillis;
+        if (sensorIds == null) {
+            return lastWrite > cutoff;
+        }
+        return sensorIds.stream().anyMatch(sensorId -> lastWrites.getOrDefault(sensorId, 0L) > cutoff);
+    }
+
+    // Pins the current read-only transaction to the primary if any of the sensors was written recently
+    // null sensorIds means the read covers every sensor
+    public void readYourWrites(Collection<Long> sensorIds) {
+        if (readYourWritesMillis <= 0 || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        if (wroteRecently(sensorIds) && !isPrimaryForced()) {
+            PRIMARY_FORCED.set(Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    PRIMARY_FORCED.remove();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.weather.sensor_service.Config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Sends read-only transactions to a healthy replica (round robin) and everything else to the primary
+// Must sit behind a LazyConnectionDataSourceProxy so the route is picked once the transaction is marked read-only
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    public static final String PRIMARY = "primary";
+
+    // replica key -> replica
+    private final Map<String, DataSource> replicas = new LinkedHashMap<>();
+
+    // Replicas which passed the last health check
+    private volatile String[] healthyReplicas;
+
+    // Round robin position
+    private final AtomicInteger next = new AtomicInteger();
+
+    private ScheduledExecutorService healthChecker;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicaDataSources) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+
+        for (int i = 0; i < replicaDataSources.size(); i++) {
+            String key = "replica-" + i;
+            replicas.put(key, replicaDataSources.get(i));
+            targets.put(key, replicaDataSources.get(i));
+        }
+
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+
+        healthyReplicas = replicas.keySet().toArray(new String[0]);
+    }
+
+    // Primary unless this is a read-only transaction which hasn't been pinned to the primary
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (ReplicaRouting.isPrimaryForced() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+
+        String[] healthy = healthyReplicas;
+        if (healthy.length == 0) {
+            return PRIMARY;
+        }
+        return healthy[Math.floorMod(next.getAndIncrement(), healthy.length)];
+    }
+
+    // Pings every replica and only keeps the ones that answer in rotation
+    public void checkHealth(int timeoutSeconds) {
+        List<String> healthy = new ArrayList<>();
+
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            try (Connection connection = replica.getValue().getConnection()) {
+                if (connection.isValid(timeoutSeconds)) {
+                    healthy.add(replica.getKey());
+                    continue;
+                }
+                log.warn("Replica {} failed health check", replica.getKey());
+            } catch (Exception e) {
+                log.warn("Replica {} failed health check : {}", replica.getKey(), e.getMessage());
+            }
+        }
+
+        healthyReplicas = healthy.toArray(new String[0]);
+    }
+
+    // Runs checkHealth in the background every intervalMillis
+    public synchronized void startHealthChecks(long intervalMillis) {
+        if (healthChecker != null) {
+            return;
+        }
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(() -> checkHealth(2), 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Replicas currently in rotation
+    public List<String> getHealthyReplicas() {
+        return List.of(healthyReplicas);
+    }
+
+    // Stops health checks and closes the pools behind the router
+    @Override
+    public synchronized void close() throws Exception {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+            healthChecker = null;
+        }
+        for (DataSource target : getResolvedDataSources().values()) {
+            if (target instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
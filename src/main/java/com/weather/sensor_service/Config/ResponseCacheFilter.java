@@ -0,0 +1,155 @@
+package com.weather.sensor_service.Config;
+
+import com.weather.sensor_service.Services.ResponseCache;
+import com.weather.sensor_service.Services.SensorGroupService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.Set;
+
+// ETag / If-None-Match on the range query endpoints, plus the ResponseCache for ranges which have finished
+// Every 200 gets an ETag of its encoded bytes and an unchanged dashboard refresh gets a 304 with no body
+// Settled ranges (endDate in the past) are served from the cached bytes without a query or serialization,
+// which also skips the rate limits since a hit costs less than the limiter itself
+@Component
+@Profile("!reactive")
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    // Streamed, live and get-all answers are never cached
+    private static final Set<String> PATHS = Set.of(
+            "/sensors/get-metrics-and-time-period",
+            "/sensors/get-metrics-and-time-period-with-constraint",
+            "/sensors/get-group-metrics");
+
+    private final ResponseCache cache;
+    private final SensorGroupService groupService;
+
+    public ResponseCacheFilter(ResponseCache cache, SensorGroupService groupService) {
+        this.cache = cache;
+        this.groupService = groupService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod()) || !PATHS.contains(pathOf(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        // the representation depends on Accept (JSON / CBOR / Smile) so it is part of the key
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        String key = pathOf(request) + "?" + request.getQueryString() + " " + (accept == null ? "" : accept);
+        boolean settled = cache.isEnabled() && cache.isSettled(endDateOf(request));
+
+        if (settled) {
+            ResponseCache.Entry cached = cache.get(key);
+            if (cached != null) {
+                write(request, response, cached.etag(), cached.contentType(), cached.body());
+                return;
+            }
+        }
+
+        long generation = cache.generation();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+
+        // errors and answers missing a shard go out as they are
+        byte[] body = wrapper.getContentAsByteArray();
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK || response.containsHeader("X-Partial-Results")) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+
+        String etag = ResponseCache.etagOf(body);
+        if (settled) {
+            Set<Long> sensorIds = sensorIdsOf(request);
+            if (sensorIds != null) {
+                cache.put(key, new ResponseCache.Entry(etag, wrapper.getContentType(), body, sensorIds,
+                        request.getParameter("groupNames") != null), generation);
+            }
+        }
+        write(request, response, etag, wrapper.getContentType(), body);
+    }
+
+    // The body, or a 304 with no body if the client already has it
+    private void write(HttpServletRequest request, HttpServletResponse response, String etag, String contentType, byte[] body)
+            throws IOException {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            cache.countNotModified();
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(contentType);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    // Every sensor the answer was worked out from, null if a group vanished in the meantime
+    private Set<Long> sensorIdsOf(HttpServletRequest request) {
+        Set<Long> sensorIds = new HashSet<>(AdmissionInterceptor.sensorIdsOf(request));
+        String[] groupNames = request.getParameterValues("groupNames");
+        if (groupNames != null) {
+            try {
+                for (String value : groupNames) {
+                    for (String name : value.split(",")) {
+                        sensorIds.addAll(groupService.require(name.trim()).getSensorIds());
+                    }
+                }
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+        return sensorIds;
+    }
+
+    // endDate as the controllers read it (ISO date time), null if missing or not a date
+    private static LocalDateTime endDateOf(HttpServletRequest request) {
+        String endDate = request.getParameter("endDate");
+        if (endDate == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(endDate, DateTimeFormatter.ISO_DATE_TIME);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // If-None-Match is a list of (possibly weak) tags or *
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
@@ -0,0 +1,147 @@
+package com.weather.sensor_service.Config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.weather.sensor_service.DTO.SensorAggregationResponseDTO;
+import com.weather.sensor_service.Entity.SensorReading;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Hand written serializers for the two types every read endpoint returns in bulk
+// Fields are written straight to the generator in a fixed order instead of going through bean introspection,
+// and timestamps are formatted into a char buffer instead of through DateTimeFormatter
+// Output is the same as Jackson's own (field order, nulls, ISO_LOCAL_DATE_TIME), and works for JSON, CBOR and Smile alike
+public class SensorJsonModule extends SimpleModule {
+
+    public SensorJsonModule() {
+        super("SensorJsonModule");
+        addSerializer(SensorReading.class, new SensorReadingSerializer());
+        addSerializer(SensorAggregationResponseDTO.class, new AggregationSerializer());
+    }
+
+    // All fields, unrequested metrics are written as null like before (deviceSequence only when there is one)
+    static final class SensorReadingSerializer extends StdSerializer<SensorReading> {
+
+        SensorReadingSerializer() {
+            super(SensorReading.class);
+        }
+
+        @Override
+        public void serialize(SensorReading reading, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(reading);
+            writeLong(generator, "id", reading.getId(), true);
+            writeLong(generator, "sensorId", reading.getSensorId(), true);
+            writeTimestamp(generator, "timestamp", reading.getTimestamp(), true);
+            writeDouble(generator, "temperature", reading.getTemperature(), true);
+            writeDouble(generator, "humidity", reading.getHumidity(), true);
+            writeDouble(generator, "windSpeed", reading.getWindSpeed(), true);
+            writeLong(generator, "deviceSequence", reading.getDeviceSequence(), false);
+            generator.writeEndObject();
+        }
+    }
+
+    // Nulls are left out, same as the DTO's @JsonInclude(NON_NULL)
+    static final class AggregationSerializer extends StdSerializer<SensorAggregationResponseDTO> {
+
+        AggregationSerializer() {
+            super(SensorAggregationResponseDTO.class);
+        }
+
+        @Override
+        public void serialize(SensorAggregationResponseDTO dto, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(dto);
+            writeLong(generator, "sensorId", dto.getSensorId(), false);
+            if (dto.getMetricName() != null) {
+                generator.writeStringField("metricName", dto.getMetricName());
+            }
+            writeDouble(generator, "temperatureMetric", dto.getTemperatureMetric(), false);
+            writeDouble(generator, "windSpeedMetric", dto.getWindSpeedMetric(), false);
+            writeDouble(generator, "humidityMetric", dto.getHumidityMetric(), false);
+            writeTimestamp(generator, "startDate", dto.getStartDate(), false);
+            writeTimestamp(generator, "endDate", dto.getEndDate(), false);
+            if (dto.getGroupName() != null) {
+                generator.writeStringField("groupName", dto.getGroupName());
+            }
+            if (dto.getApproximate() != null) {
+                generator.writeBooleanField("approximate", dto.getApproximate());
+            }
+            writeLong(generator, "sampleSize", dto.getSampleSize(), false);
+            writeLong(generator, "readingCount", dto.getReadingCount(), false);
+            writeDouble(generator, "confidenceLevel", dto.getConfidenceLevel(), false);
+            writeDouble(generator, "temperatureMargin", dto.getTemperatureMargin(), false);
+            writeDouble(generator, "windSpeedMargin", dto.getWindSpeedMargin(), false);
+            writeDouble(generator, "humidityMargin", dto.getHumidityMargin(), false);
+            generator.writeEndObject();
+        }
+    }
+
+    private static void writeLong(JsonGenerator generator, String name, Long value, boolean writeNull) throws IOException {
+        if (value != null) {
+            generator.writeNumberField(name, value);
+        } else if (writeNull) {
+            generator.writeNullField(name);
+        }
+    }
+
+    private static void writeDouble(JsonGenerator generator, String name, Double value, boolean writeNull) throws IOException {
+        if (value != null) {
+            generator.writeNumberField(name, value);
+        } else if (writeNull) {
+            generator.writeNullField(name);
+        }
+    }
+
+    private static void writeTimestamp(JsonGenerator generator, String name, LocalDateTime value, boolean writeNull) throws IOException {
+        if (value == null) {
+            if (writeNull) {
+                generator.writeNullField(name);
+            }
+            return;
+        }
+        generator.writeFieldName(name);
+        int year = value.getYear();
+        if (year < 0 || year > 9999) {
+            // signed / 5+ digit years, never seen from a sensor
+            generator.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+            return;
+        }
+
+        // yyyy-MM-ddTHH:mm:ss then the fraction without trailing zeros, exactly like ISO_LOCAL_DATE_TIME
+        char[] text = new char[29];
+        digits(text, 0, year, 4);
+        text[4] = '-';
+        digits(text, 5, value.getMonthValue(), 2);
+        text[7] = '-';
+        digits(text, 8, value.getDayOfMonth(), 2);
+        text[10] = 'T';
+        digits(text, 11, value.getHour(), 2);
+        text[13] = ':';
+        digits(text, 14, value.getMinute(), 2);
+        text[16] = ':';
+        digits(text, 17, value.getSecond(), 2);
+        int length = 19;
+
+        int nano = value.getNano();
+        if (nano != 0) {
+            text[19] = '.';
+            digits(text, 20, nano, 9);
+            length = 29;
+            while (text[length - 1] == '0') {
+                length--;
+            }
+        }
+        generator.writeString(text, 0, length);
+    }
+
+    // Writes value as width zero padded digits
+    private static void digits(char[] text, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
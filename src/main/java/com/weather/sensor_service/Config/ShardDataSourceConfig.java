@@ -0,0 +1,53 @@
+package com.weather.sensor_service.Config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+// Only active when shards are configured, e.g.
+// sensor.datasource.shards.urls=jdbc:postgresql://shard-0/sensors,jdbc:postgresql://shard-1/sensors
+// Every shard needs the sensor_readings schema and uses the spring.datasource username / password / driver
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "sensor.datasource.shards.urls")
+public class ShardDataSourceConfig {
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(DataSourceProperties properties,
+                                                         @Value("${sensor.datasource.shards.urls}") List<String> urls,
+                                                         Environment environment,
+                                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            DataSource shard = DataSourceBuilder.create()
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(urls.get(i))
+                    .username(properties.determineUsername())
+                    .password(properties.determinePassword())
+                    .build();
+            shards.add(HikariPools.configure(shard, "sensor-" + ShardRouter.shardName(i), environment, meterRegistry.getIfAvailable()));
+        }
+
+        return new ShardRoutingDataSource(shards);
+    }
+
+    // The connection is only taken once the first query runs so the shard bound by ShardRouter is used
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+}
@@ -0,0 +1,120 @@
+package com.weather.sensor_service.Config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Decides which shard a sensor lives on and binds the current thread to it
+// Sharding is on when sensor.datasource.shards.urls is set, otherwise every call runs as normal
+// Shards are named shard-0, shard-1 ... in the order of the urls so new shards must be added at the end
+@Component
+public class ShardRouter {
+
+    // Used when sharding is off
+    public static final String DEFAULT_SHARD = "default";
+
+    // Ids of readings stored on shard-N start at N * SHARD_ID_RANGE (see ShardSequenceGenerator)
+    public static final long SHARD_ID_RANGE = 1L << 48;
+
+    // Shard the current thread's queries go to
+    private static final ThreadLocal<String> CURRENT_SHARD = new ThreadLocal<>();
+
+    private final List<String> shards;
+    private final ConsistentHashRing ring;
+
+    // Sensors being copied to a new shard -> the shard they still live on until the copy is finished
+    private final Map<Long, String> pinned = new ConcurrentHashMap<>();
+
+    public ShardRouter(@Value("${sensor.datasource.shards.urls:}") List<String> urls,
+                       @Value("${sensor.datasource.shards.virtual-nodes:128}") int virtualNodes) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            names.add(shardName(i));
+        }
+        this.shards = List.copyOf(names);
+        this.ring = shards.isEmpty() ? null : new ConsistentHashRing(shards, virtualNodes);
+    }
+
+    public static String shardName(int index) {
+        return "shard-" + index;
+    }
+
+    // First id of a shard's range, 0 for shard-0
+    public static long idRangeStart(String shard) {
+        return Long.parseLong(shard.substring(shard.lastIndexOf('-') + 1)) * SHARD_ID_RANGE;
+    }
+
+    // Shard bound to the current thread (null = none)
+    public static String currentShard() {
+        return CURRENT_SHARD.get();
+    }
+
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    public List<String> getShards() {
+        return isEnabled() ? shards : List.of(DEFAULT_SHARD);
+    }
+
+    // Shard which owns a sensor, the old shard while the sensor is being moved
+    public String shardFor(Long sensorId) {
+        String shard = pinned.get(sensorId);
+        return shard != null ? shard : ringShardFor(sensorId);
+    }
+
+    // Shard the hash ring places a sensor on, ignoring moves in progress
+    public String ringShardFor(Long sensorId) {
+        return isEnabled() ? ring.shardFor(sensorId) : DEFAULT_SHARD;
+    }
+
+    // Keeps a sensor's reads and writes on a shard until unpin is called (see ShardRebalancer)
+    public void pin(Long sensorId, String shard) {
+        pinned.put(sensorId, shard);
+    }
+
+    public void unpin(Long sensorId) {
+        pinned.remove(sensorId);
+    }
+
+    // Groups sensors by their shard, keeping the order they were passed in
+    public Map<String, List<Long>> groupByShard(List<Long> sensorIds) {
+        Map<String, List<Long>> grouped = new LinkedHashMap<>();
+        for (Long sensorId : sensorIds) {
+            grouped.computeIfAbsent(shardFor(sensorId), shard -> new ArrayList<>()).add(sensorId);
+        }
+        return grouped;
+    }
+
+    // Runs work against the sensor's shard
+    public <T> T onSensorShard(Long sensorId, Supplier<T> work) {
+        if (!isEnabled()) {
+            return work.get();
+        }
+        return onShard(shardFor(sensorId), work);
+    }
+
+    // Runs work against a shard, restoring whatever was bound before
+    public <T> T onShard(String shard, Supplier<T> work) {
+        if (!isEnabled()) {
+            return work.get();
+        }
+        String previous = CURRENT_SHARD.get();
+        CURRENT_SHARD.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_SHARD.remove();
+            } else {
+                CURRENT_SHARD.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.weather.sensor_service.Config;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Puts an id on ShardSequenceGenerator (replaces @GeneratedValue + @GenericGenerator)
+@IdGeneratorType(ShardSequenceGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface ShardSequence {
+
+    // Database sequence the ids come from
+    String sequenceName();
+
+    // Ids handed out per sequence call (the sequence's increment)
+    int allocationSize();
+}
@@ -0,0 +1,55 @@
+package com.weather.sensor_service.Config;
+
+import com.weather.sensor_service.Entity.SensorReading;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.PooledOptimizer;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+// sensor_readings_seq generator which keeps one pooled block of ids per shard
+// Hibernate keeps a single block per generator, so with sharding a block taken from shard-0's sequence would be used for
+// inserts into shard-1 while shard-1's own sequence later hands out the same values
+// Each shard's ids are its own sequence's values plus the shard's id range (ShardRouter.idRangeStart), shard-0 starts at 0
+// so unsharded ids are unchanged, and readings moved between shards can never clash
+// Unbound inserts (sharding off) use the normal single block
+// Put on an id with @ShardSequence
+public class ShardSequenceGenerator extends SequenceStyleGenerator {
+
+    // shard -> block of ids taken from that shard's sequence
+    private final ConcurrentHashMap<String, PooledOptimizer> shardBlocks = new ConcurrentHashMap<>();
+
+    private final ShardSequence config;
+
+    public ShardSequenceGenerator(ShardSequence config) {
+        this.config = config;
+    }
+
+    // Sequence name and block size come from the annotation, always pooled so shard blocks line up with the sequence
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) {
+        parameters.setProperty(SEQUENCE_PARAM, config.sequenceName());
+        parameters.setProperty(INCREMENT_PARAM, String.valueOf(config.allocationSize()));
+        parameters.setProperty(OPT_PARAM, "pooled");
+        super.configure(type, parameters, serviceRegistry);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        String shard = ShardRouter.currentShard();
+        if (shard == null) {
+            return super.generate(session, object);
+        }
+
+        PooledOptimizer block = shardBlocks.computeIfAbsent(shard, name -> {
+            PooledOptimizer optimizer = new PooledOptimizer(Long.class, config.allocationSize());
+            optimizer.injectInitialValue(SensorReading.ID_INITIAL_VALUE);
+            return optimizer;
+        });
+        Long value = (Long) block.generate(getDatabaseStructure().buildCallback(session));
+        return ShardRouter.idRangeStart(shard) + value;
+    }
+}
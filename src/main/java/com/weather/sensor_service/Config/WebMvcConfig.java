@@ -0,0 +1,27 @@
+package com.weather.sensor_service.Config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// Profiling and rate / concurrency limits on the API endpoints (actuator is left alone)
+@Configuration
+@Profile("!reactive")
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final ProfilingInterceptor profilingInterceptor;
+    private final AdmissionInterceptor admissionInterceptor;
+
+    public WebMvcConfig(ProfilingInterceptor profilingInterceptor, AdmissionInterceptor admissionInterceptor) {
+        this.profilingInterceptor = profilingInterceptor;
+        this.admissionInterceptor = admissionInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // profiling first so rejected requests are recorded too
+        registry.addInterceptor(profilingInterceptor).addPathPatterns("/sensors/**", "/groups", "/groups/**");
+        registry.addInterceptor(admissionInterceptor).addPathPatterns("/sensors/**", "/groups", "/groups/**");
+    }
+}
@@ -0,0 +1,50 @@
+package com.weather.sensor_service.Controller;
+
+import com.weather.sensor_service.Alerts.InMemoryAlertSink;
+import com.weather.sensor_service.DTO.AlertRuleDTO;
+import com.weather.sensor_service.DTO.SensorAlertDTO;
+import com.weather.sensor_service.Services.AlertEngine;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/alerts")
+public class AlertController {
+
+    // Evaluates rules on ingest
+    private final AlertEngine engine;
+
+    // Most recent alerts
+    private final InMemoryAlertSink recentAlerts;
+
+    // Constructor
+    public AlertController(AlertEngine engine, InMemoryAlertSink recentAlerts) {
+        this.engine = engine;
+        this.recentAlerts = recentAlerts;
+    }
+
+    // Adds a rule, a rule with the same name is replaced
+    @PostMapping("/rules")
+    public AlertRuleDTO addRule(@RequestBody AlertRuleDTO rule) {
+        return engine.addRule(rule);
+    }
+
+    // Retrieves ALL rules
+    @GetMapping("/rules")
+    public List<AlertRuleDTO> getRules() {
+        return engine.getRules();
+    }
+
+    // Removes a rule
+    @DeleteMapping("/rules/{name}")
+    public void removeRule(@PathVariable("name") String name) {
+        engine.removeRule(name);
+    }
+
+    // Retrieves the most recent alerts
+    @GetMapping("/recent")
+    public List<SensorAlertDTO> getRecentAlerts() {
+        return recentAlerts.peek();
+    }
+}
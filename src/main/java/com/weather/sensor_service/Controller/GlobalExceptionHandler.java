@@ -1,6 +1,7 @@
 package com.weather.sensor_service.Controller;
 
 import com.weather.sensor_service.Exceptions.SensorExceptions;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -46,4 +47,80 @@ public class GlobalExceptionHandler {
         body.put("Message", exception.getMessage());
         return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
     }
+
+
+    // Invalid alert rule exception response
+    @ExceptionHandler(SensorExceptions.AlertRuleException.class)
+    public ResponseEntity<Map<String, Object>> handleAlertRuleException(SensorExceptions.AlertRuleException exception) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("Timestamp", LocalDateTime.now());
+        body.put("error", "Alert Rule Error");
+        body.put("message", exception.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    // Invalid sensor group exception response
+    @ExceptionHandler(SensorExceptions.SensorGroupException.class)
+    public ResponseEntity<Map<String, Object>> handleSensorGroupException(SensorExceptions.SensorGroupException exception) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("Timestamp", LocalDateTime.now());
+        body.put("error", "Sensor Group Error");
+        body.put("message", exception.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+
+    // Sensor group not found exception response
+    @ExceptionHandler(SensorExceptions.SensorGroupNotFoundException.class)
+    public ResponseEntity<Map<String, Object>> handleSensorGroupNotFound(SensorExceptions.SensorGroupNotFoundException exception) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("Timestamp", LocalDateTime.now());
+        body.put("error", "Sensor Group Not Found");
+        body.put("message", exception.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
+    }
+
+
+    // Profiling exception response
+    @ExceptionHandler(SensorExceptions.ProfilingException.class)
+    public ResponseEntity<Map<String, Object>> handleProfilingException(SensorExceptions.ProfilingException exception) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("Timestamp", LocalDateTime.now());
+        body.put("error", "Profiling Error");
+        body.put("message", exception.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+
+    // No shard available exception response
+    @ExceptionHandler(SensorExceptions.ShardUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleShardUnavailable(SensorExceptions.ShardUnavailableException exception) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("Timestamp", LocalDateTime.now());
+        body.put("error", "Shard Unavailable");
+        body.put("message", exception.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    // Servlet only endpoint called on the reactive profile exception response
+    @ExceptionHandler(SensorExceptions.ReactiveUnsupportedException.class)
+    public ResponseEntity<Map<String, Object>> handleReactiveUnsupported(SensorExceptions.ReactiveUnsupportedException exception) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("Timestamp", LocalDateTime.now());
+        body.put("error", "Not Available");
+        body.put("message", exception.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
+    }
+
+    // Over a rate / concurrency limit, Retry-After says when to try again
+    @ExceptionHandler(SensorExceptions.TooManyRequestsException.class)
+    public ResponseEntity<Map<String, Object>> handleTooManyRequests(SensorExceptions.TooManyRequestsException exception) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("Timestamp", LocalDateTime.now());
+        body.put("error", "Too Many Requests");
+        body.put("message", exception.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(body);
+    }
 }
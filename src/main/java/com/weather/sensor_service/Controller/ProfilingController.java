@@ -0,0 +1,36 @@
+package com.weather.sensor_service.Controller;
+
+import com.weather.sensor_service.DTO.RecordingDTO;
+import com.weather.sensor_service.Profiling.FlightRecordings;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/admin/profiling")
+public class ProfilingController {
+
+    // Starts / stops JFR recordings
+    private final FlightRecordings recordings;
+
+    // Constructor
+    public ProfilingController(FlightRecordings recordings) {
+        this.recordings = recordings;
+    }
+
+    // Starts a recording, it runs until stopped unless durationSeconds is given
+    @PostMapping("/start")
+    public RecordingDTO start(@RequestParam(required = false) Long durationSeconds) {
+        return recordings.start(durationSeconds);
+    }
+
+    // Stops the recording and writes the .jfr file
+    @PostMapping("/stop")
+    public RecordingDTO stop() {
+        return recordings.stop();
+    }
+
+    // State of the last recording
+    @GetMapping
+    public RecordingDTO status() {
+        return recordings.status();
+    }
+}
@@ -0,0 +1,85 @@
+package com.weather.sensor_service.Controller;
+
+import com.weather.sensor_service.DTO.SensorAggregationResponseDTO;
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Services.ReactiveSensorService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Same /sensors endpoints as SensorController for the reactive profile (--spring.profiles.active=reactive)
+// Lists are returned as a Flux : a JSON array written as readings arrive, or one reading per line with Accept: application/x-ndjson
+// Errors still go through GlobalExceptionHandler
+@RestController
+@RequestMapping("/sensors")
+@Profile("reactive")
+public class ReactiveSensorController {
+
+    // Endpoint can access service level
+    private final ReactiveSensorService service;
+
+    // Constructor
+    public ReactiveSensorController(ReactiveSensorService service) {
+        this.service = service;
+    }
+
+    // Create a new sensor record
+    // No lock needed, the id block and the insert are both safe to run concurrently
+    @PostMapping("/create-reading")
+    public Mono<SensorReading> createReading(@RequestBody SensorReading reading) {
+        reading.setTimestamp(LocalDateTime.now());
+        return service.saveReading(reading);
+    }
+
+    // Retrieves ALL sensor records
+    @GetMapping(value = "/get-all", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<SensorReading> getReading() {
+        return service.getAllReadings();
+    }
+
+
+    // Retrieves a specific sensor record between 2 time points
+    // Metrics can be dynamically requested
+    // Time defaults to all time if no range given
+    @GetMapping(value = "/get-metrics-and-time-period", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<SensorReading> getMetricsAndTimePeriod(@RequestParam("sensorId") Long sensorId,
+                                                       @RequestParam (required = false, defaultValue = "false") boolean temperature,
+                                                       @RequestParam (required = false, defaultValue = "false") boolean humidity,
+                                                       @RequestParam (required = false, defaultValue = "false") boolean wind,
+                                                       @RequestParam (required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+                                                       @RequestParam (required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        return service.getSpecificSensorMetricsBetweenTimePeriod(sensorId, temperature, humidity, wind, startDate, endDate);
+    }
+
+    // Returns statistics for a list of readings and their metrics between 2 time points
+    // Statistic defaults to AVG (AVG, MAX, MIN, SUM)
+    @GetMapping(value = "/get-metrics-and-time-period-with-constraint", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<SensorAggregationResponseDTO> getMetricsAndTimePeriodWithStatistic(@RequestParam("sensorIds") List<Long> sensorIds,
+                                                                                   @RequestParam (required = false, defaultValue = "false") boolean temperature,
+                                                                                   @RequestParam (required = false, defaultValue = "false") boolean humidity,
+                                                                                   @RequestParam (required = false, defaultValue = "false") boolean wind,
+                                                                                   @RequestParam (required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+                                                                                   @RequestParam (required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+                                                                                   @RequestParam (defaultValue = "avg") String statistic) {
+
+        return service.getMetricsAndTimePeriodWithConstraintAndStatistic(sensorIds, temperature, humidity, wind, startDate, endDate, statistic);
+    }
+
+    // Returns statistics for a list of sensors over a live window (last 5 minutes / last hour)
+    @GetMapping("/get-live-metrics")
+    public Flux<SensorAggregationResponseDTO> getLiveMetricsWithStatistic(@RequestParam("sensorIds") List<Long> sensorIds,
+                                                                          @RequestParam (required = false, defaultValue = "false") boolean temperature,
+                                                                          @RequestParam (required = false, defaultValue = "false") boolean humidity,
+                                                                          @RequestParam (required = false, defaultValue = "false") boolean wind,
+                                                                          @RequestParam (required = false) Long windowSeconds,
+                                                                          @RequestParam (defaultValue = "avg") String statistic) {
+
+        return service.getLiveMetricsWithStatistic(sensorIds, temperature, humidity, wind, windowSeconds, statistic);
+    }
+}
@@ -0,0 +1,24 @@
+package com.weather.sensor_service.Controller;
+
+import com.weather.sensor_service.Exceptions.SensorExceptions;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// Servlet profile endpoints which the reactive profile doesn't have (see application-reactive.yml)
+// Answered with a 404 saying so, rather than a bare 404 that looks like a typo in the path
+@RestController
+@Profile("reactive")
+public class ReactiveUnsupportedController {
+
+    @RequestMapping({
+            "/sensors/get-group-metrics",
+            "/sensors/stream-metrics-and-time-period",
+            "/groups", "/groups/**",
+            "/admin/shards", "/admin/shards/**"})
+    public void unsupported(ServerHttpRequest request) {
+        throw new SensorExceptions.ReactiveUnsupportedException(
+                request.getPath().value() + " is not available with the reactive profile");
+    }
+}
@@ -2,41 +2,53 @@ package com.weather.sensor_service.Controller;
 
 import com.weather.sensor_service.DTO.SensorAggregationResponseDTO;
 import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Services.AdmissionControl;
 import com.weather.sensor_service.Services.SensorService;
+import com.weather.sensor_service.Services.ShardedResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weather.sensor_service.Config.AdmissionInterceptor;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.context.annotation.Profile;
 
 
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/sensors")
+@Profile("!reactive")
 public class SensorController {
 
     // Endpoint can access service level
     private final SensorService service;
 
-    // Used for creating records to ensure database integrity
-    private final ReentrantLock lock = new ReentrantLock();
+    // Writes streamed readings the same way as the rest of the JSON responses
+    private final ObjectMapper objectMapper;
+
+    // Per sensor rate limit for readings (client limits are applied before the request gets here)
+    private final AdmissionControl admission;
 
     // Constructor
-    public SensorController(SensorService service) {
+    public SensorController(SensorService service, ObjectMapper objectMapper, AdmissionControl admission) {
         this.service = service;
+        this.objectMapper = objectMapper;
+        this.admission = admission;
     }
 
     // Create a new sensor record
-    // Lock used to ensure data integrity
+    // No lock needed : each request has its own reading and ids come from the database sequence
     @PostMapping("/create-reading")
-    public SensorReading createReading(@RequestBody SensorReading reading) {
-        lock.lock();
-        try {
-            reading.setTimestamp(LocalDateTime.now());
-            return service.saveReading(reading);
-        } finally {
-            lock.unlock();
-        }
+    public SensorReading createReading(@RequestBody SensorReading reading, HttpServletRequest request) {
+        admission.admitSensor("create-reading", reading.getSensorId(), AdmissionInterceptor.permitOf(request));
+        reading.setTimestamp(LocalDateTime.now());
+        return service.saveReading(reading);
     }
 
     // Retrieves ALL sensor records
@@ -59,19 +71,97 @@ public class SensorController {
         return service.getSpecificSensorMetricsBetweenTimePeriod(sensorId,temperature, humidity, wind, startDate,endDate);
     }
 
+    // Same as get-metrics-and-time-period but streamed one reading per line (NDJSON) in time order
+    // Long ranges are read in parallel chunks and written as each chunk arrives, so nothing waits for the whole range
+    // Errors found before streaming starts are reported as normal, an empty range is an empty body
+    @GetMapping(value = "/stream-metrics-and-time-period", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamMetricsAndTimePeriod(@RequestParam("sensorId") Long sensorId,
+                                                                            @RequestParam (required = false, defaultValue = "false") boolean temperature,
+                                                                            @RequestParam (required = false, defaultValue = "false") boolean humidity,
+                                                                            @RequestParam (required = false, defaultValue = "false") boolean wind,
+                                                                            @RequestParam (required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+                                                                            @RequestParam (required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+
+        Stream<List<SensorReading>> chunks = service.streamSpecificSensorMetricsBetweenTimePeriod(
+                sensorId, temperature, humidity, wind, startDate, endDate);
+
+        StreamingResponseBody body = output -> {
+            try (chunks) {
+                Iterator<List<SensorReading>> iterator = chunks.iterator();
+                while (iterator.hasNext()) {
+                    for (SensorReading reading : iterator.next()) {
+                        output.write(objectMapper.writeValueAsBytes(reading));
+                        output.write('\n');
+                    }
+                    output.flush();
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
     // Returns statistics for a list of readings and their metrics between 2 time points
     // Statistic defaults to AVG (AVG, MAX, MIN, SUM)
     // Metrics can be dynamically requested
     // Time defaults to all time if no range given
+    // Exact unless accuracy (0.01 = +/- 1%) and / or maxLatencyMillis are given, AVG / SUM are then estimated from a sample with margins
     @GetMapping("/get-metrics-and-time-period-with-constraint")
-    public List<SensorAggregationResponseDTO> getMetricsAndTimePeriodWithStatistic(@RequestParam("sensorIds") List<Long> sensorIds,
-                                                                                    @RequestParam (required = false, defaultValue = "false") boolean temperature,
-                                                                                    @RequestParam (required = false, defaultValue = "false") boolean humidity,
-                                                                                    @RequestParam (required = false, defaultValue = "false") boolean wind,
-                                                                                    @RequestParam (required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-                                                                                    @RequestParam (required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
-                                                                                    @RequestParam (defaultValue = "avg") String statistic) {
-
-        return service.getMetricsAndTimePeriodWithConstraintAndStatistic(sensorIds,temperature, humidity, wind, startDate,endDate, statistic);
+    public ResponseEntity<List<SensorAggregationResponseDTO>> getMetricsAndTimePeriodWithStatistic(@RequestParam("sensorIds") List<Long> sensorIds,
+                                                                                                    @RequestParam (required = false, defaultValue = "false") boolean temperature,
+                                                                                                    @RequestParam (required = false, defaultValue = "false") boolean humidity,
+                                                                                                    @RequestParam (required = false, defaultValue = "false") boolean wind,
+                                                                                                    @RequestParam (required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+                                                                                                    @RequestParam (required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+                                                                                                    @RequestParam (defaultValue = "avg") String statistic,
+                                                                                                    @RequestParam (required = false) Double accuracy,
+                                                                                                    @RequestParam (required = false) Long maxLatencyMillis) {
+
+        ShardedResult<SensorAggregationResponseDTO> result = service.getApproximateMetricsAndTimePeriodWithConstraintAndStatistic(
+                sensorIds, temperature, humidity, wind, startDate, endDate, statistic, accuracy, maxLatencyMillis);
+
+        // Shards which timed out or failed are listed so the client knows the results are partial
+        if (result.isPartial()) {
+            return ResponseEntity.ok()
+                    .header("X-Partial-Results", String.join(",", result.failedShards()))
+                    .body(result.results());
+        }
+        return ResponseEntity.ok(result.results());
+    }
+
+    // Returns one statistic per sensor group, each group treated as if it was one sensor
+    // Statistic defaults to AVG (AVG, MAX, MIN, SUM)
+    // Time defaults to all time if no range given
+    @GetMapping("/get-group-metrics")
+    public ResponseEntity<List<SensorAggregationResponseDTO>> getGroupMetricsWithStatistic(@RequestParam("groupNames") List<String> groupNames,
+                                                                                           @RequestParam (required = false, defaultValue = "false") boolean temperature,
+                                                                                           @RequestParam (required = false, defaultValue = "false") boolean humidity,
+                                                                                           @RequestParam (required = false, defaultValue = "false") boolean wind,
+                                                                                           @RequestParam (required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+                                                                                           @RequestParam (required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+                                                                                           @RequestParam (defaultValue = "avg") String statistic) {
+
+        ShardedResult<SensorAggregationResponseDTO> result = service.getGroupMetricsWithStatistic(
+                groupNames, temperature, humidity, wind, startDate, endDate, statistic);
+
+        if (result.isPartial()) {
+            return ResponseEntity.ok()
+                    .header("X-Partial-Results", String.join(",", result.failedShards()))
+                    .body(result.results());
+        }
+        return ResponseEntity.ok(result.results());
+    }
+
+    // Returns statistics for a list of sensors over a live window (last 5 minutes / last hour)
+    // Statistic defaults to AVG (AVG, MAX, MIN, SUM)
+    // Window defaults to the shortest live window
+    @GetMapping("/get-live-metrics")
+    public List<SensorAggregationResponseDTO> getLiveMetricsWithStatistic(@RequestParam("sensorIds") List<Long> sensorIds,
+                                                                          @RequestParam (required = false, defaultValue = "false") boolean temperature,
+                                                                          @RequestParam (required = false, defaultValue = "false") boolean humidity,
+                                                                          @RequestParam (required = false, defaultValue = "false") boolean wind,
+                                                                          @RequestParam (required = false) Long windowSeconds,
+                                                                          @RequestParam (defaultValue = "avg") String statistic) {
+
+        return service.getLiveMetricsWithStatistic(sensorIds, temperature, humidity, wind, windowSeconds, statistic);
     }
 }
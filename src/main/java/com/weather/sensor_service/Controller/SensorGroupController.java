@@ -0,0 +1,41 @@
+package com.weather.sensor_service.Controller;
+
+import com.weather.sensor_service.DTO.SensorGroupDTO;
+import com.weather.sensor_service.Services.SensorGroupService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/groups")
+@Profile("!reactive")
+public class SensorGroupController {
+
+    // Keeps the groups and their rollups
+    private final SensorGroupService groupService;
+
+    // Constructor
+    public SensorGroupController(SensorGroupService groupService) {
+        this.groupService = groupService;
+    }
+
+    // Creates a group, a group with the same name is replaced
+    // Status is building until its rollups have been filled from the database
+    @PostMapping
+    public SensorGroupDTO putGroup(@RequestBody SensorGroupDTO group) {
+        return groupService.putGroup(group);
+    }
+
+    // Retrieves ALL groups
+    @GetMapping
+    public List<SensorGroupDTO> getGroups() {
+        return groupService.getGroups();
+    }
+
+    // Removes a group
+    @DeleteMapping("/{name}")
+    public void removeGroup(@PathVariable("name") String name) {
+        groupService.removeGroup(name);
+    }
+}
@@ -0,0 +1,55 @@
+package com.weather.sensor_service.Controller;
+
+import com.weather.sensor_service.Config.ShardRouter;
+import com.weather.sensor_service.DTO.ShardMoveDTO;
+import com.weather.sensor_service.Services.ShardRebalancer;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.context.annotation.Profile;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/shards")
+@Profile("!reactive")
+public class ShardController {
+
+    private final ShardRouter router;
+    private final ShardRebalancer rebalancer;
+
+    // Constructor
+    public ShardController(ShardRouter router, ShardRebalancer rebalancer) {
+        this.router = router;
+        this.rebalancer = rebalancer;
+    }
+
+    // Lists the configured shards
+    @GetMapping
+    public List<String> getShards() {
+        return router.getShards();
+    }
+
+    // Shows which shard a sensor belongs to
+    @GetMapping("/owner")
+    public String getOwner(@RequestParam("sensorId") Long sensorId) {
+        return router.shardFor(sensorId);
+    }
+
+    // Dry run, lists the sensors that would be moved
+    @GetMapping("/rebalance-plan")
+    public List<ShardMoveDTO> getRebalancePlan() {
+        return rebalancer.plan();
+    }
+
+    // Starts moving misplaced sensors to their shard
+    @PostMapping("/rebalance")
+    public List<ShardMoveDTO> rebalance() {
+        return rebalancer.rebalance();
+    }
+
+    // Progress of the rebalance
+    @GetMapping("/rebalance-status")
+    public Map<String, Object> getRebalanceStatus() {
+        return rebalancer.status();
+    }
+}
@@ -0,0 +1,105 @@
+package com.weather.sensor_service.DTO;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// Request / response object for an alert rule
+// e.g. temperature > 40 for sensors [1,2,3] for 3 consecutive readings
+// e.g. windSpeed avg over 600 seconds > 25 for all sensors
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AlertRuleDTO {
+
+    // Unique name of the rule
+    private String name;
+
+    // Sensors the rule applies to (null or empty = every sensor)
+    private List<Long> sensorIds;
+
+    // temperature, humidity or windSpeed
+    private String metric;
+
+    // >, >=, <, <=
+    private String operator;
+
+    // Value the metric is compared against
+    private Double threshold;
+
+    // How many readings in a row must break the threshold (defaults to 1)
+    private Integer consecutive;
+
+    // If set the average over this many seconds is compared instead of each reading
+    private Long windowSeconds;
+
+    public AlertRuleDTO() {
+
+    }
+
+    public AlertRuleDTO(String name, List<Long> sensorIds, String metric, String operator, Double threshold, Integer consecutive, Long windowSeconds) {
+        this.name = name;
+        this.sensorIds = sensorIds;
+        this.metric = metric;
+        this.operator = operator;
+        this.threshold = threshold;
+        this.consecutive = consecutive;
+        this.windowSeconds = windowSeconds;
+    }
+
+    // Getters
+    public String getName() {
+        return name;
+    }
+
+    public List<Long> getSensorIds() {
+        return sensorIds;
+    }
+
+    public String getMetric() {
+        return metric;
+    }
+
+    public String getOperator() {
+        return operator;
+    }
+
+    public Double getThreshold() {
+        return threshold;
+    }
+
+    public Integer getConsecutive() {
+        return consecutive;
+    }
+
+    public Long getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    // Setters
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public void setSensorIds(List<Long> sensorIds) {
+        this.sensorIds = sensorIds;
+    }
+
+    public void setMetric(String metric) {
+        this.metric = metric;
+    }
+
+    public void setOperator(String operator) {
+        this.operator = operator;
+    }
+
+    public void setThreshold(Double threshold) {
+        this.threshold = threshold;
+    }
+
+    public void setConsecutive(Integer consecutive) {
+        this.consecutive = consecutive;
+    }
+
+    public void setWindowSeconds(Long windowSeconds) {
+        this.windowSeconds = windowSeconds;
+    }
+}
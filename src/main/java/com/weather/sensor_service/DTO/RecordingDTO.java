@@ -0,0 +1,48 @@
+package com.weather.sensor_service.DTO;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+// State of the JFR recording started through /profiling/recordings
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RecordingDTO {
+
+    // State when no recording has been started yet
+    public static final String IDLE = "IDLE";
+
+    // IDLE, or NEW, RUNNING, STOPPED or CLOSED (see jdk.jfr.RecordingState)
+    private final String state;
+
+    // Where the recording is (or will be) written, open with JDK Mission Control
+    private final String file;
+
+    private final LocalDateTime startTime;
+
+    // Seconds before the recording stops by itself, null if it runs until stopped
+    private final Long durationSeconds;
+
+    public RecordingDTO(String state, String file, LocalDateTime startTime, Long durationSeconds) {
+        this.state = state;
+        this.file = file;
+        this.startTime = startTime;
+        this.durationSeconds = durationSeconds;
+    }
+
+    // Getters
+    public String getState() {
+        return state;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public Long getDurationSeconds() {
+        return durationSeconds;
+    }
+}
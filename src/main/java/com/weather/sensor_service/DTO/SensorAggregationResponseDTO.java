@@ -16,6 +16,18 @@ public class SensorAggregationResponseDTO {
     private final LocalDateTime startDate;
     private final LocalDateTime endDate;
 
+    // Only set when the answer is for a sensor group instead of one sensor (sensorId is then null)
+    private String groupName;
+
+    // Only set for approximate (sampled) answers, each metric is within +/- its margin at confidenceLevel
+    private Boolean approximate;
+    private Long sampleSize;
+    private Long readingCount;
+    private Double confidenceLevel;
+    private Double temperatureMargin;
+    private Double windSpeedMargin;
+    private Double humidityMargin;
+
 
     public SensorAggregationResponseDTO(Long sensorId, String metricName,  double temperatureMetric, double windSpeedMetric, double humidityMetric, LocalDateTime startDate, LocalDateTime endDate) {
         this.sensorId = sensorId;
@@ -48,6 +60,30 @@ public class SensorAggregationResponseDTO {
     public LocalDateTime getEndDate() {
         return endDate;
     }
+    public String getGroupName() {
+        return groupName;
+    }
+    public Boolean getApproximate() {
+        return approximate;
+    }
+    public Long getSampleSize() {
+        return sampleSize;
+    }
+    public Long getReadingCount() {
+        return readingCount;
+    }
+    public Double getConfidenceLevel() {
+        return confidenceLevel;
+    }
+    public Double getTemperatureMargin() {
+        return temperatureMargin;
+    }
+    public Double getWindSpeedMargin() {
+        return windSpeedMargin;
+    }
+    public Double getHumidityMargin() {
+        return humidityMargin;
+    }
 
     // Setters
     public void setTemperatureMetric(Double temperatureMetric) {
@@ -61,4 +97,36 @@ public class SensorAggregationResponseDTO {
     public void setWindSpeedMetric(Double windSpeedMetric) {
         this.windSpeedMetric = windSpeedMetric;
     }
+
+    public void setGroupName(String groupName) {
+        this.groupName = groupName;
+    }
+
+    public void setApproximate(Boolean approximate) {
+        this.approximate = approximate;
+    }
+
+    public void setSampleSize(Long sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
+    public void setReadingCount(Long readingCount) {
+        this.readingCount = readingCount;
+    }
+
+    public void setConfidenceLevel(Double confidenceLevel) {
+        this.confidenceLevel = confidenceLevel;
+    }
+
+    public void setTemperatureMargin(Double temperatureMargin) {
+        this.temperatureMargin = temperatureMargin;
+    }
+
+    public void setWindSpeedMargin(Double windSpeedMargin) {
+        this.windSpeedMargin = windSpeedMargin;
+    }
+
+    public void setHumidityMargin(Double humidityMargin) {
+        this.humidityMargin = humidityMargin;
+    }
 }
@@ -0,0 +1,48 @@
+package com.weather.sensor_service.DTO;
+
+import java.time.LocalDateTime;
+
+// Raised when a reading breaks an alert rule
+public class SensorAlertDTO {
+
+    private final String ruleName;
+    private final Long sensorId;
+    private final String metric;
+    private final double value;
+    private final double threshold;
+    private final LocalDateTime timestamp;
+
+    public SensorAlertDTO(String ruleName, Long sensorId, String metric, double value, double threshold, LocalDateTime timestamp) {
+        this.ruleName = ruleName;
+        this.sensorId = sensorId;
+        this.metric = metric;
+        this.value = value;
+        this.threshold = threshold;
+        this.timestamp = timestamp;
+    }
+
+    // Getters
+    public String getRuleName() {
+        return ruleName;
+    }
+
+    public Long getSensorId() {
+        return sensorId;
+    }
+
+    public String getMetric() {
+        return metric;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,37 @@
+package com.weather.sensor_service.DTO;
+
+import java.time.LocalDateTime;
+
+// First / last reading time and number of readings for one sensor
+// Timestamps are null if none of the sensor's readings has one
+public class SensorExtentDTO {
+
+    private final Long sensorId;
+    private final LocalDateTime firstTimestamp;
+    private final LocalDateTime lastTimestamp;
+    private final long readingCount;
+
+    public SensorExtentDTO(Long sensorId, LocalDateTime firstTimestamp, LocalDateTime lastTimestamp, long readingCount) {
+        this.sensorId = sensorId;
+        this.firstTimestamp = firstTimestamp;
+        this.lastTimestamp = lastTimestamp;
+        this.readingCount = readingCount;
+    }
+
+    // Getters
+    public Long getSensorId() {
+        return sensorId;
+    }
+
+    public LocalDateTime getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public LocalDateTime getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public long getReadingCount() {
+        return readingCount;
+    }
+}
@@ -0,0 +1,57 @@
+package com.weather.sensor_service.DTO;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// Request / response object for a named group of sensors
+// e.g. "north-region" for sensors [1,2,3], aggregated as if it was one sensor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SensorGroupDTO {
+
+    // Unique name of the group
+    private String name;
+
+    // Sensors in the group
+    private List<Long> sensorIds;
+
+    // building while the rollups are filled from the database, then ready (failed if that didn't work)
+    // Set by the service, ignored on requests
+    private String status;
+
+    public SensorGroupDTO() {
+
+    }
+
+    public SensorGroupDTO(String name, List<Long> sensorIds, String status) {
+        this.name = name;
+        this.sensorIds = sensorIds;
+        this.status = status;
+    }
+
+    // Getters
+    public String getName() {
+        return name;
+    }
+
+    public List<Long> getSensorIds() {
+        return sensorIds;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    // Setters
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public void setSensorIds(List<Long> sensorIds) {
+        this.sensorIds = sensorIds;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+}
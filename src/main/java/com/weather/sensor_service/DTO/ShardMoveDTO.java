@@ -0,0 +1,34 @@
+package com.weather.sensor_service.DTO;
+
+// A sensor whose readings are on the wrong shard and need moving
+public class ShardMoveDTO {
+
+    private final Long sensorId;
+    private final String fromShard;
+    private final String toShard;
+    private final long readings;
+
+    public ShardMoveDTO(Long sensorId, String fromShard, String toShard, long readings) {
+        this.sensorId = sensorId;
+        this.fromShard = fromShard;
+        this.toShard = toShard;
+        this.readings = readings;
+    }
+
+    // Getters
+    public Long getSensorId() {
+        return sensorId;
+    }
+
+    public String getFromShard() {
+        return fromShard;
+    }
+
+    public String getToShard() {
+        return toShard;
+    }
+
+    public long getReadings() {
+        return readings;
+    }
+}
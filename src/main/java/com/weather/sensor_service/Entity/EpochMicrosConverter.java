@@ -0,0 +1,34 @@
+package com.weather.sensor_service.Entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Stores a reading's timestamp as microseconds since 1970 in a BIGINT (compact profile)
+// The wall clock time is encoded as if it were UTC, the same as PostgreSQL's EXTRACT(EPOCH FROM timestamp),
+// so it is plain arithmetic with no time zone rules and reads back as exactly the same LocalDateTime
+// It is NOT a real instant : anything else reading the column has to treat it as local wall clock time
+// Only JPA knows about it, the reactive profile (SensorReadingRow) can't read a compact table and refuses to start with it
+@Converter
+public class EpochMicrosConverter implements AttributeConverter<LocalDateTime, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(LocalDateTime timestamp) {
+        if (timestamp == null) {
+            return null;
+        }
+        return Math.addExact(Math.multiplyExact(timestamp.toEpochSecond(ZoneOffset.UTC), 1_000_000L), timestamp.getNano() / 1_000);
+    }
+
+    @Override
+    public LocalDateTime convertToEntityAttribute(Long micros) {
+        if (micros == null) {
+            return null;
+        }
+        long seconds = Math.floorDiv(micros, 1_000_000L);
+        int nanos = (int) Math.floorMod(micros, 1_000_000L) * 1_000;
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,21 @@
+package com.weather.sensor_service.Entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Stores a metric as a 4 byte REAL instead of an 8 byte DOUBLE PRECISION (compact profile)
+// About 7 significant digits, well past what a temperature / humidity / wind sensor reports
+// Read back as the shortest decimal for the float so 20.1 comes back as 20.1 and not 20.100000381
+@Converter
+public class RealMetricConverter implements AttributeConverter<Double, Float> {
+
+    @Override
+    public Float convertToDatabaseColumn(Double value) {
+        return value == null ? null : value.floatValue();
+    }
+
+    @Override
+    public Double convertToEntityAttribute(Float value) {
+        return value == null ? null : Double.valueOf(Float.toString(value));
+    }
+}
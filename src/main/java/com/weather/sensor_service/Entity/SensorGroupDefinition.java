@@ -0,0 +1,51 @@
+package com.weather.sensor_service.Entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// A sensor group as it was defined, so groups survive a restart (the rollups are rebuilt from the readings)
+// Stored on the default database (shard-0 when sharded)
+@Entity
+@Table(name = "sensor_groups")
+public class SensorGroupDefinition {
+
+    // Unique name of the group
+    @Id
+    private String name;
+
+    // Sensors in the group, in the order they were given
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "sensor_group_sensors", joinColumns = @JoinColumn(name = "group_name"))
+    @OrderColumn(name = "sensor_order")
+    @Column(name = "sensor_id")
+    private List<Long> sensorIds = new ArrayList<>();
+
+    // When the group was (last) defined, groups are loaded back in this order
+    private LocalDateTime createdAt;
+
+    public SensorGroupDefinition() {
+
+    }
+
+    public SensorGroupDefinition(String name, List<Long> sensorIds, LocalDateTime createdAt) {
+        this.name = name;
+        this.sensorIds = new ArrayList<>(sensorIds);
+        this.createdAt = createdAt;
+    }
+
+    // Getters
+    public String getName() {
+        return name;
+    }
+
+    public List<Long> getSensorIds() {
+        return sensorIds;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
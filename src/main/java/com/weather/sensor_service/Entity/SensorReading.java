@@ -1,15 +1,26 @@
 package com.weather.sensor_service.Entity;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.weather.sensor_service.Config.ShardSequence;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "sensor_readings")
+// A reading key is stored once per sensor, readings without one (NULL) never clash
+@Table(name = "sensor_readings", uniqueConstraints = @UniqueConstraint(
+        name = "uk_sensor_readings_sensor_device_sequence", columnNames = {"sensor_id", "device_sequence"}))
 public class SensorReading {
 
+    // Ids handed out per sequence call, the reactive service allocates ids in the same blocks
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // First value of sensor_readings_seq (start with 1, as Hibernate's DDL and db/sensor_readings_sequence.sql create it)
+    public static final long ID_INITIAL_VALUE = 1;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequence (not IDENTITY) so Hibernate can batch inserts, ids are handed out 50 at a time
+    // With sharding each shard gets its own blocks and id range so ids are unique across shards
+    @ShardSequence(sequenceName = "sensor_readings_seq", allocationSize = ID_ALLOCATION_SIZE)
 
     // ID of Sensor scan.
     private Long id;
@@ -29,6 +40,11 @@ public class SensorReading {
     // WindSpeed amount
     private Double windSpeed;
 
+    // Optional reading key from the device : a counter it increments per reading, or its own timestamp in epoch millis
+    // A reading sent again with the same sensorId and deviceSequence (a retry) is only stored once
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long deviceSequence;
+
     public SensorReading() {
 
     }
@@ -68,6 +84,10 @@ public class SensorReading {
         return timestamp;
     }
 
+    public Long getDeviceSequence() {
+        return deviceSequence;
+    }
+
 
     // SETTERS
 
@@ -94,4 +114,8 @@ public class SensorReading {
     public void setSensorId(Long sensorId) {
         this.sensorId = sensorId;
     }
+
+    public void setDeviceSequence(Long deviceSequence) {
+        this.deviceSequence = deviceSequence;
+    }
 }
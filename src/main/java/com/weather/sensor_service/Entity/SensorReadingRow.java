@@ -0,0 +1,110 @@
+package com.weather.sensor_service.Entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+// R2DBC mapping of the sensor_readings table used by the reactive profile
+// Kept apart from SensorReading because R2DBC doesn't read the JPA annotations
+@Table("sensor_readings")
+public class SensorReadingRow {
+
+    @Id
+    private Long id;
+
+    private Long sensorId;
+
+    private LocalDateTime timestamp;
+
+    private Double temperature;
+
+    private Double humidity;
+
+    private Double windSpeed;
+
+    // Optional reading key from the device, see SensorReading
+    private Long deviceSequence;
+
+    public SensorReadingRow() {
+
+    }
+
+    public static SensorReadingRow from(SensorReading reading, Long id) {
+        SensorReadingRow row = new SensorReadingRow();
+        row.id = id;
+        row.sensorId = reading.getSensorId();
+        row.timestamp = reading.getTimestamp();
+        row.temperature = reading.getTemperature();
+        row.humidity = reading.getHumidity();
+        row.windSpeed = reading.getWindSpeed();
+        row.deviceSequence = reading.getDeviceSequence();
+        return row;
+    }
+
+    public SensorReading toReading() {
+        SensorReading reading = new SensorReading(id, sensorId, temperature, humidity, windSpeed, timestamp);
+        reading.setDeviceSequence(deviceSequence);
+        return reading;
+    }
+
+    // GETTERS
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getSensorId() {
+        return sensorId;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public Double getTemperature() {
+        return temperature;
+    }
+
+    public Double getHumidity() {
+        return humidity;
+    }
+
+    public Double getWindSpeed() {
+        return windSpeed;
+    }
+
+    public Long getDeviceSequence() {
+        return deviceSequence;
+    }
+
+    // SETTERS
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public void setSensorId(Long sensorId) {
+        this.sensorId = sensorId;
+    }
+
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public void setTemperature(Double temperature) {
+        this.temperature = temperature;
+    }
+
+    public void setHumidity(Double humidity) {
+        this.humidity = humidity;
+    }
+
+    public void setWindSpeed(Double windSpeed) {
+        this.windSpeed = windSpeed;
+    }
+
+    public void setDeviceSequence(Long deviceSequence) {
+        this.deviceSequence = deviceSequence;
+    }
+}
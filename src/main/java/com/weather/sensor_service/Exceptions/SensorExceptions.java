@@ -24,4 +24,61 @@ public class SensorExceptions {
             super("MetricCalculationException : " + message);
         }
     }
+
+    // Thrown if an alert rule is invalid
+    public static class AlertRuleException extends RuntimeException {
+        public AlertRuleException(String message) {
+            super("AlertRuleException : " + message);
+        }
+    }
+
+    // Thrown if a sensor group is invalid
+    public static class SensorGroupException extends RuntimeException {
+        public SensorGroupException(String message) {
+            super("SensorGroupException : " + message);
+        }
+    }
+
+    // Thrown if a sensor group doesn't exist
+    public static class SensorGroupNotFoundException extends RuntimeException {
+        public SensorGroupNotFoundException(String message) {
+            super("SensorGroupNotFoundException : " + message);
+        }
+    }
+
+    // Thrown if a JFR recording can't be started / stopped
+    public static class ProfilingException extends RuntimeException {
+        public ProfilingException(String message) {
+            super("ProfilingException : " + message);
+        }
+    }
+
+    // Thrown if no shard could answer a query
+    public static class ShardUnavailableException extends RuntimeException {
+        public ShardUnavailableException(String message) {
+            super("ShardUnavailableException : " + message);
+        }
+    }
+
+    // Thrown if a servlet profile only endpoint is called on the reactive profile
+    public static class ReactiveUnsupportedException extends RuntimeException {
+        public ReactiveUnsupportedException(String message) {
+            super("ReactiveUnsupportedException : " + message);
+        }
+    }
+
+    // Thrown if a client / sensor is over its rate or concurrency limit
+    public static class TooManyRequestsException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public TooManyRequestsException(String message, long retryAfterSeconds) {
+            super("TooManyRequestsException : " + message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        // Whole seconds the client should wait before trying again
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
 }
@@ -0,0 +1,127 @@
+package com.weather.sensor_service.Ingest;
+
+import com.weather.sensor_service.Entity.SensorReading;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+// Wire format for the binary ingest listener (big endian)
+//
+// batch       = header, frame * frameCount
+// header      = int batchId, int frameCount (top bit set = keyed frames)        (8 bytes)
+// frame       = long sensorId, long epochMillis, double temperature, humidity, windSpeed  (40 bytes)
+// keyed frame = frame, long deviceSequence                                      (48 bytes)
+// ack         = int batchId, int accepted, int rejected                         (12 bytes)
+//
+// epochMillis of 0 means "now", a NaN metric counts as missing and the frame is rejected like the REST endpoint would
+// deviceSequence is the reading key (see Idempotent Ingest) so a retried batch isn't stored twice, NO_KEY means none
+public final class BinaryFrameCodec {
+
+    public static final int HEADER_BYTES = 8;
+    public static final int FRAME_BYTES = 40;
+    public static final int KEYED_FRAME_BYTES = 48;
+    public static final int ACK_BYTES = 12;
+
+    // Set on the header's frameCount when every frame carries a deviceSequence, older senders never set it
+    public static final int KEYED_FLAG = 0x8000_0000;
+
+    // deviceSequence of a keyed frame which has no key
+    public static final long NO_KEY = Long.MIN_VALUE;
+
+    private BinaryFrameCodec() {
+
+    }
+
+    // Size of a whole batch on the wire
+    public static int batchBytes(int frameCount) {
+        return batchBytes(frameCount, false);
+    }
+
+    public static int batchBytes(int frameCount, boolean keyed) {
+        return HEADER_BYTES + frameCount * (keyed ? KEYED_FRAME_BYTES : FRAME_BYTES);
+    }
+
+    // The header's frameCount word split into its flag and count
+    public static boolean isKeyed(int countWord) {
+        return (countWord & KEYED_FLAG) != 0;
+    }
+
+    public static int frameCount(int countWord) {
+        return countWord & ~KEYED_FLAG;
+    }
+
+    // Reads frameCount frames from the buffer's position straight into readings
+    public static List<SensorReading> decodeFrames(ByteBuffer buffer, int frameCount) {
+        return decodeFrames(buffer, frameCount, false);
+    }
+
+    public static List<SensorReading> decodeFrames(ByteBuffer buffer, int frameCount, boolean keyed) {
+        List<SensorReading> readings = new ArrayList<>(frameCount);
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDateTime now = null;
+
+        for (int i = 0; i < frameCount; i++) {
+            long sensorId = buffer.getLong();
+            long epochMillis = buffer.getLong();
+            double temperature = buffer.getDouble();
+            double humidity = buffer.getDouble();
+            double windSpeed = buffer.getDouble();
+            long deviceSequence = keyed ? buffer.getLong() : NO_KEY;
+
+            LocalDateTime timestamp;
+            if (epochMillis != 0) {
+                timestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), zone);
+            } else {
+                if (now == null) {
+                    now = LocalDateTime.now();
+                }
+                timestamp = now;
+            }
+
+            SensorReading reading = new SensorReading(null, sensorId, orNull(temperature), orNull(humidity), orNull(windSpeed), timestamp);
+            if (deviceSequence != NO_KEY) {
+                reading.setDeviceSequence(deviceSequence);
+            }
+            readings.add(reading);
+        }
+        return readings;
+    }
+
+    // Writes a whole batch, used by clients and tests
+    // Keyed frames are only used when a reading has a deviceSequence, so unkeyed batches stay readable by older servers
+    public static ByteBuffer encodeBatch(int batchId, List<SensorReading> readings) {
+        boolean keyed = readings.stream().anyMatch(reading -> reading.getDeviceSequence() != null);
+        ByteBuffer buffer = ByteBuffer.allocate(batchBytes(readings.size(), keyed));
+        buffer.putInt(batchId).putInt(keyed ? readings.size() | KEYED_FLAG : readings.size());
+
+        for (SensorReading reading : readings) {
+            buffer.putLong(reading.getSensorId())
+                    .putLong(reading.getTimestamp() != null
+                            ? reading.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                            : 0L)
+                    .putDouble(orNaN(reading.getTemperature()))
+                    .putDouble(orNaN(reading.getHumidity()))
+                    .putDouble(orNaN(reading.getWindSpeed()));
+            if (keyed) {
+                buffer.putLong(reading.getDeviceSequence() != null ? reading.getDeviceSequence() : NO_KEY);
+            }
+        }
+        return buffer.flip();
+    }
+
+    public static ByteBuffer encodeAck(int batchId, int accepted, int rejected) {
+        return ByteBuffer.allocate(ACK_BYTES).putInt(batchId).putInt(accepted).putInt(rejected).flip();
+    }
+
+    private static Double orNull(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private static double orNaN(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+}
@@ -0,0 +1,333 @@
+package com.weather.sensor_service.Ingest;
+
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Services.SensorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.context.annotation.Profile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Optional non-blocking listener for constrained edge sensors (see BinaryFrameCodec for the format)
+// One selector thread reads TCP connections and UDP datagrams, decoded batches are saved on a bounded worker pool
+// through SensorService.saveReadings() and every batch gets one ack
+// Enabled with sensor.ingest.binary.enabled=true, a port of -1 turns that transport off (0 = any free port)
+@Component
+@ConditionalOnProperty(name = "sensor.ingest.binary.enabled", havingValue = "true")
+@Profile("!reactive")
+public class BinaryIngestServer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(BinaryIngestServer.class);
+
+    // Largest UDP payload
+    private static final int MAX_DATAGRAM = 65507;
+
+    private final SensorService service;
+    private final int tcpPort;
+    private final int udpPort;
+    private final int maxFramesPerBatch;
+
+    // Batches waiting to be saved, full = batch rejected straight away
+    private final ThreadPoolExecutor workers;
+
+    // TCP connections with acks ready to be written by the selector thread
+    private final Queue<TcpConnection> acksReady = new ConcurrentLinkedQueue<>();
+
+    private Selector selector;
+    private ServerSocketChannel tcpChannel;
+    private DatagramChannel udpChannel;
+    private ByteBuffer udpBuffer;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    // Reading side and queued acks of one TCP connection
+    private final class TcpConnection {
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocate(BinaryFrameCodec.batchBytes(maxFramesPerBatch, true));
+        private final Queue<ByteBuffer> acks = new ConcurrentLinkedQueue<>();
+        private SelectionKey key;
+
+        TcpConnection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        // Called from worker threads
+        void queueAck(ByteBuffer ack) {
+            acks.add(ack);
+            acksReady.add(this);
+            selector.wakeup();
+        }
+    }
+
+    public BinaryIngestServer(SensorService service,
+                              @Value("${sensor.ingest.binary.tcp-port:9400}") int tcpPort,
+                              @Value("${sensor.ingest.binary.udp-port:9401}") int udpPort,
+                              @Value("${sensor.ingest.binary.max-frames-per-batch:1000}") int maxFramesPerBatch,
+                              @Value("${sensor.ingest.binary.workers:4}") int workerThreads,
+                              @Value("${sensor.ingest.binary.queue-size:256}") int queueSize) {
+        this.service = service;
+        this.tcpPort = tcpPort;
+        this.udpPort = udpPort;
+        this.maxFramesPerBatch = maxFramesPerBatch;
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "binary-ingest-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Override
+    public synchronized void start() {
+        try {
+            selector = Selector.open();
+
+            if (tcpPort >= 0) {
+                tcpChannel = ServerSocketChannel.open();
+                tcpChannel.bind(new InetSocketAddress(tcpPort));
+                tcpChannel.configureBlocking(false);
+                tcpChannel.register(selector, SelectionKey.OP_ACCEPT);
+            }
+            if (udpPort >= 0) {
+                udpChannel = DatagramChannel.open();
+                udpChannel.bind(new InetSocketAddress(udpPort));
+                udpChannel.configureBlocking(false);
+                udpChannel.register(selector, SelectionKey.OP_READ);
+                udpBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cant start binary ingest listener", e);
+        }
+
+        running = true;
+        selectorThread = new Thread(this::selectLoop, "binary-ingest-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+        log.info("Binary ingest listening on tcp {} udp {}", getTcpPort(), getUdpPort());
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        try {
+            if (selectorThread != null) {
+                selectorThread.join(2000);
+            }
+            workers.shutdown();
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeQuietly();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Actual bound ports (useful when configured as 0), -1 if off
+    public int getTcpPort() {
+        return tcpChannel != null ? tcpChannel.socket().getLocalPort() : -1;
+    }
+
+    public int getUdpPort() {
+        return udpChannel != null ? udpChannel.socket().getLocalPort() : -1;
+    }
+
+    private void selectLoop() {
+        while (running) {
+            try {
+                selector.select();
+
+                // Acks finished by workers, the selector thread is the only one touching interest ops
+                TcpConnection ready;
+                while ((ready = acksReady.poll()) != null) {
+                    if (ready.key.isValid()) {
+                        ready.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    }
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.channel() == udpChannel) {
+                        readDatagrams();
+                    } else {
+                        TcpConnection connection = (TcpConnection) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                readTcp(connection);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                writeAcks(connection);
+                            }
+                        } catch (IOException e) {
+                            close(connection);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Binary ingest selector error : {}", e.getMessage());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = tcpChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        TcpConnection connection = new TcpConnection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    // Decodes every complete batch in the connection's buffer, a partial batch waits for more bytes
+    private void readTcp(TcpConnection connection) throws IOException {
+        ByteBuffer in = connection.in;
+        if (connection.channel.read(in) < 0) {
+            close(connection);
+            return;
+        }
+
+        in.flip();
+        while (in.remaining() >= BinaryFrameCodec.HEADER_BYTES) {
+            int batchId = in.getInt(in.position());
+            int countWord = in.getInt(in.position() + 4);
+            boolean keyed = BinaryFrameCodec.isKeyed(countWord);
+            int frameCount = BinaryFrameCodec.frameCount(countWord);
+
+            if (frameCount > maxFramesPerBatch) {
+                log.warn("Closing binary ingest connection, batch {} has {} frames (max {})", batchId, frameCount, maxFramesPerBatch);
+                close(connection);
+                return;
+            }
+            if (in.remaining() < BinaryFrameCodec.batchBytes(frameCount, keyed)) {
+                break;
+            }
+
+            in.position(in.position() + BinaryFrameCodec.HEADER_BYTES);
+            List<SensorReading> readings = BinaryFrameCodec.decodeFrames(in, frameCount, keyed);
+            submit(batchId, readings, connection::queueAck);
+        }
+        in.compact();
+    }
+
+    // One datagram = one batch
+    private void readDatagrams() throws IOException {
+        SocketAddress sender;
+        while ((sender = udpChannel.receive(udpBuffer)) != null) {
+            udpBuffer.flip();
+
+            if (udpBuffer.remaining() >= BinaryFrameCodec.HEADER_BYTES) {
+                int batchId = udpBuffer.getInt();
+                int countWord = udpBuffer.getInt();
+                boolean keyed = BinaryFrameCodec.isKeyed(countWord);
+                int frameCount = BinaryFrameCodec.frameCount(countWord);
+
+                if (frameCount <= maxFramesPerBatch
+                        && udpBuffer.remaining() + BinaryFrameCodec.HEADER_BYTES == BinaryFrameCodec.batchBytes(frameCount, keyed)) {
+                    SocketAddress replyTo = sender;
+                    submit(batchId, BinaryFrameCodec.decodeFrames(udpBuffer, frameCount, keyed), ack -> sendDatagram(ack, replyTo));
+                } else {
+                    log.debug("Dropping malformed datagram from {}", sender);
+                }
+            }
+            udpBuffer.clear();
+        }
+    }
+
+    // Saves the batch on a worker, or rejects it straight away if the workers are backed up
+    private void submit(int batchId, List<SensorReading> readings, Consumer<ByteBuffer> ack) {
+        try {
+            workers.execute(() -> {
+                int accepted = 0;
+                try {
+                    accepted = service.saveReadings(readings);
+                } catch (Exception e) {
+                    log.warn("Binary ingest batch {} failed : {}", batchId, e.getMessage());
+                }
+                ack.accept(BinaryFrameCodec.encodeAck(batchId, accepted, readings.size() - accepted));
+            });
+        } catch (RejectedExecutionException e) {
+            ack.accept(BinaryFrameCodec.encodeAck(batchId, 0, readings.size()));
+        }
+    }
+
+    private void writeAcks(TcpConnection connection) throws IOException {
+        ByteBuffer ack;
+        while ((ack = connection.acks.peek()) != null) {
+            connection.channel.write(ack);
+            if (ack.hasRemaining()) {
+                return;
+            }
+            connection.acks.poll();
+        }
+        connection.key.interestOps(SelectionKey.OP_READ);
+    }
+
+    // UDP is best effort, an ack that can't be sent is dropped
+    private void sendDatagram(ByteBuffer ack, SocketAddress target) {
+        try {
+            udpChannel.send(ack, target);
+        } catch (IOException e) {
+            log.debug("Cant send ack to {} : {}", target, e.getMessage());
+        }
+    }
+
+    private void close(TcpConnection connection) {
+        try {
+            connection.key.cancel();
+            connection.channel.close();
+        } catch (IOException e) {
+            log.debug("Error closing binary ingest connection : {}", e.getMessage());
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            if (selector != null) {
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+                selector.close();
+            }
+        } catch (IOException e) {
+            log.debug("Error closing binary ingest listener : {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.weather.sensor_service.Profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Working out one statistic in SensorService, the event's duration is the calculation time
+@Name("com.weather.sensor.Aggregation")
+@Label("Aggregation")
+@Category({"Sensor Service"})
+@Description("A statistic calculated over a sensor's readings")
+public class AggregationEvent extends jdk.jfr.Event {
+
+    @Label("Request Id")
+    public long requestId;
+
+    @Label("Statistic")
+    public String statistic;
+
+    @Label("Values")
+    public long values;
+}
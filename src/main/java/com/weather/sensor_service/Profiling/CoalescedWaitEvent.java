@@ -0,0 +1,20 @@
+package com.weather.sensor_service.Profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// A call waiting on an identical call already running (SingleFlight), the event's duration is the wait
+@Name("com.weather.sensor.CoalescedWait")
+@Label("Coalesced Wait")
+@Category({"Sensor Service"})
+@Description("Time a request waited for an identical query already running")
+public class CoalescedWaitEvent extends jdk.jfr.Event {
+
+    @Label("Request Id")
+    public long requestId;
+
+    @Label("Name")
+    public String name;
+}
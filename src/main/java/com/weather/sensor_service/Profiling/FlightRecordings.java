@@ -0,0 +1,129 @@
+package com.weather.sensor_service.Profiling;
+
+import com.weather.sensor_service.DTO.RecordingDTO;
+import com.weather.sensor_service.Exceptions.SensorExceptions;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+// Starts / stops a Java Flight Recorder recording on a live node
+// Uses the JDK's "default" settings (designed for production, ~1% overhead) plus the Sensor Service events
+// One recording at a time, written to sensor.profiling.directory when it stops
+@Service
+public class FlightRecordings {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightRecordings.class);
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path directory;
+    private final String settings;
+    private final boolean recordOnStartup;
+
+    private Recording recording;
+
+    public FlightRecordings(@Value("${sensor.profiling.directory:${java.io.tmpdir}}") String directory,
+                            @Value("${sensor.profiling.settings:default}") String settings,
+                            @Value("${sensor.profiling.record-on-startup:false}") boolean recordOnStartup) {
+        this.directory = Path.of(directory);
+        this.settings = settings;
+        this.recordOnStartup = recordOnStartup;
+    }
+
+    // sensor.profiling.record-on-startup=true records from startup until stopped (or shutdown)
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnStartup() {
+        if (recordOnStartup) {
+            start(null);
+        }
+    }
+
+    // Starts recording, stops by itself after durationSeconds if given
+    public synchronized RecordingDTO start(Long durationSeconds) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new SensorExceptions.ProfilingException("A recording is already running, stop it first");
+        }
+        if (durationSeconds != null && durationSeconds <= 0) {
+            throw new SensorExceptions.ProfilingException("durationSeconds must be positive : " + durationSeconds);
+        }
+        closeRecording();
+
+        try {
+            Files.createDirectories(directory);
+            Recording started = new Recording(Configuration.getConfiguration(settings));
+            started.setName("sensor-service");
+            started.enable(SensorRequestEvent.class);
+            started.enable(RepositoryQueryEvent.class);
+            started.enable(AggregationEvent.class);
+            started.enable(CoalescedWaitEvent.class);
+            started.enable(SerializationEvent.class);
+            started.setToDisk(true);
+            started.setDestination(directory.resolve("sensor-service-" + LocalDateTime.now().format(FILE_TIME) + ".jfr"));
+            if (durationSeconds != null) {
+                started.setDuration(Duration.ofSeconds(durationSeconds));
+            }
+            started.start();
+            recording = started;
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            throw new SensorExceptions.ProfilingException("Cant start recording : " + e.getMessage());
+        }
+
+        log.info("JFR recording started, writing to {}", recording.getDestination());
+        return status();
+    }
+
+    // Stops the recording and writes it out
+    public synchronized RecordingDTO stop() {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            throw new SensorExceptions.ProfilingException("No recording is running");
+        }
+
+        recording.stop();
+        log.info("JFR recording written to {}", recording.getDestination());
+        return status();
+    }
+
+    // State of the last recording, IDLE if none has been started
+    public synchronized RecordingDTO status() {
+        if (recording == null) {
+            return new RecordingDTO(RecordingDTO.IDLE, null, null, null);
+        }
+        Duration duration = recording.getDuration();
+        return new RecordingDTO(
+                recording.getState().name(),
+                String.valueOf(recording.getDestination()),
+                recording.getStartTime() != null ? LocalDateTime.ofInstant(recording.getStartTime(), ZoneId.systemDefault()) : null,
+                duration != null ? duration.getSeconds() : null);
+    }
+
+    // Anything still recording is written out on shutdown
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        closeRecording();
+    }
+
+    private void closeRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
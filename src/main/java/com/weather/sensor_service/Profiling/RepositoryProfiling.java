@@ -0,0 +1,70 @@
+package com.weather.sensor_service.Profiling;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactoryBean;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+
+// Times every JPA repository call as a RepositoryQueryEvent with the rows it returned
+// Added to the repository proxies as they are created so no call site has to change
+@Component
+public class RepositoryProfiling implements BeanPostProcessor {
+
+    private static final MethodInterceptor QUERY_EVENTS = RepositoryProfiling::profile;
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof JpaRepositoryFactoryBean<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory ->
+                    factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(QUERY_EVENTS)));
+        }
+        return bean;
+    }
+
+    // A failed (e.g. timed out) query is still recorded, with 0 rows
+    private static Object profile(MethodInvocation invocation) throws Throwable {
+        RepositoryQueryEvent event = new RepositoryQueryEvent();
+        event.begin();
+        long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = invocation.proceed();
+            return result;
+        } finally {
+            long rows = rowsIn(result);
+            RequestProfile.addQuery(System.nanoTime() - start, rows);
+            if (event.shouldCommit()) {
+                event.requestId = RequestProfile.currentRequestId();
+                event.method = invocation.getMethod().getName();
+                event.sensorCount = sensorCount(invocation.getArguments());
+                event.rows = rows;
+                event.commit();
+            }
+        }
+    }
+
+    private static long rowsIn(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return result != null && !(result instanceof Number) ? 1 : 0;
+    }
+
+    // sensorId / sensorIds come first in every query method (saves pass readings instead and count as 0)
+    private static int sensorCount(Object[] arguments) {
+        if (arguments.length == 0) {
+            return 0;
+        }
+        if (arguments[0] instanceof Collection<?> sensorIds) {
+            return sensorIds.stream().allMatch(Long.class::isInstance) ? sensorIds.size() : 0;
+        }
+        return arguments[0] instanceof Long ? 1 : 0;
+    }
+}
@@ -0,0 +1,26 @@
+package com.weather.sensor_service.Profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// One SensorReadingRepository call, the event's duration is the query time
+@Name("com.weather.sensor.RepositoryQuery")
+@Label("Repository Query")
+@Category({"Sensor Service"})
+@Description("A SensorReadingRepository call and the rows it returned")
+public class RepositoryQueryEvent extends jdk.jfr.Event {
+
+    @Label("Request Id")
+    public long requestId;
+
+    @Label("Method")
+    public String method;
+
+    @Label("Sensor Count")
+    public int sensorCount;
+
+    @Label("Rows")
+    public long rows;
+}
@@ -0,0 +1,132 @@
+package com.weather.sensor_service.Profiling;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Running totals for ONE request which its JFR events add up (query / aggregation / wait time, rows scanned)
+// Shared with shard and chunk threads working on the request through propagate()
+public final class RequestProfile {
+
+    private static final ThreadLocal<RequestProfile> CURRENT = new ThreadLocal<>();
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private final long requestId = NEXT_ID.incrementAndGet();
+    private final LongAdder rowsScanned = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+    private final LongAdder aggregationNanos = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    // Started once the response body is handed over to be written
+    private volatile long serializationStart;
+    private volatile SerializationEvent serialization;
+
+    private RequestProfile() {
+
+    }
+
+    // Starts a profile for the request running on this thread
+    public static RequestProfile start() {
+        RequestProfile profile = new RequestProfile();
+        CURRENT.set(profile);
+        return profile;
+    }
+
+    // Profile of the request running on this thread, null outside a request
+    public static RequestProfile current() {
+        return CURRENT.get();
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    // 0 outside a request
+    public static long currentRequestId() {
+        RequestProfile profile = CURRENT.get();
+        return profile != null ? profile.requestId : 0;
+    }
+
+    // Runs work on another thread as part of the current request
+    public static <T> Supplier<T> propagate(Supplier<T> work) {
+        RequestProfile profile = CURRENT.get();
+        if (profile == null) {
+            return work;
+        }
+        return () -> {
+            RequestProfile previous = CURRENT.get();
+            CURRENT.set(profile);
+            try {
+                return work.get();
+            } finally {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        };
+    }
+
+    static void addQuery(long nanos, long rows) {
+        RequestProfile profile = CURRENT.get();
+        if (profile != null) {
+            profile.queryNanos.add(nanos);
+            profile.rowsScanned.add(rows);
+        }
+    }
+
+    static void addAggregation(long nanos) {
+        RequestProfile profile = CURRENT.get();
+        if (profile != null) {
+            profile.aggregationNanos.add(nanos);
+        }
+    }
+
+    static void addWait(long nanos) {
+        RequestProfile profile = CURRENT.get();
+        if (profile != null) {
+            profile.waitNanos.add(nanos);
+        }
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public long getRowsScanned() {
+        return rowsScanned.sum();
+    }
+
+    public long getQueryNanos() {
+        return queryNanos.sum();
+    }
+
+    public long getAggregationNanos() {
+        return aggregationNanos.sum();
+    }
+
+    public long getWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    public void markSerializationStart(String endpoint) {
+        SerializationEvent event = new SerializationEvent();
+        event.requestId = requestId;
+        event.endpoint = endpoint;
+        event.begin();
+        serialization = event;
+        serializationStart = System.nanoTime();
+    }
+
+    // Ends the serialization event, returns how long it took (0 if nothing was written)
+    public long finishSerialization() {
+        SerializationEvent event = serialization;
+        if (event == null) {
+            return 0;
+        }
+        serialization = null;
+        event.commit();
+        return System.nanoTime() - serializationStart;
+    }
+}
@@ -0,0 +1,47 @@
+package com.weather.sensor_service.Profiling;
+
+import java.util.function.Supplier;
+
+// Wraps a stage of a request in its JFR event and adds its time to the request's profile
+// With no recording running the events are never committed, so the cost is a couple of nanoTime calls
+public final class SensorProfiling {
+
+    private SensorProfiling() {
+
+    }
+
+    // Working out a statistic over values readings
+    public static <T> T aggregation(String statistic, long values, Supplier<T> work) {
+        AggregationEvent event = new AggregationEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            RequestProfile.addAggregation(System.nanoTime() - start);
+            if (event.shouldCommit()) {
+                event.requestId = RequestProfile.currentRequestId();
+                event.statistic = statistic;
+                event.values = values;
+                event.commit();
+            }
+        }
+    }
+
+    // Waiting on an identical call already running
+    public static <T> T coalescedWait(String name, Supplier<T> wait) {
+        CoalescedWaitEvent event = new CoalescedWaitEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            return wait.get();
+        } finally {
+            RequestProfile.addWait(System.nanoTime() - start);
+            if (event.shouldCommit()) {
+                event.requestId = RequestProfile.currentRequestId();
+                event.name = name;
+                event.commit();
+            }
+        }
+    }
+}
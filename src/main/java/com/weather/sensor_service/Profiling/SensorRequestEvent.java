@@ -0,0 +1,50 @@
+package com.weather.sensor_service.Profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// One API request with the time spent in each stage, the event's duration is the whole request
+@Name("com.weather.sensor.Request")
+@Label("Sensor Request")
+@Category({"Sensor Service"})
+@Description("An API request with its query, aggregation, wait and serialization time")
+public class SensorRequestEvent extends jdk.jfr.Event {
+
+    @Label("Request Id")
+    public long requestId;
+
+    @Label("Method")
+    public String method;
+
+    @Label("Endpoint")
+    public String endpoint;
+
+    @Label("Status")
+    public int status;
+
+    @Label("Sensor Count")
+    public int sensorCount;
+
+    @Label("Rows Scanned")
+    public long rowsScanned;
+
+    @Label("Query Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long queryTime;
+
+    @Label("Aggregation Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long aggregationTime;
+
+    @Label("Wait Time")
+    @Description("Time spent waiting for an identical query already running")
+    @Timespan(Timespan.NANOSECONDS)
+    public long waitTime;
+
+    @Label("Serialization Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long serializationTime;
+}
@@ -0,0 +1,20 @@
+package com.weather.sensor_service.Profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Writing a response body, the event's duration is from the body being handed over to the request finishing
+@Name("com.weather.sensor.Serialization")
+@Label("Serialization")
+@Category({"Sensor Service"})
+@Description("Time spent turning a response into JSON and writing it")
+public class SerializationEvent extends jdk.jfr.Event {
+
+    @Label("Request Id")
+    public long requestId;
+
+    @Label("Endpoint")
+    public String endpoint;
+}
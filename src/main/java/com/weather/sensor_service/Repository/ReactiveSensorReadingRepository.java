@@ -0,0 +1,21 @@
+package com.weather.sensor_service.Repository;
+
+import com.weather.sensor_service.Entity.SensorReadingRow;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+// Non-blocking version of SensorReadingRepository for the reactive profile
+// Rows are emitted as they are read so long ranges never sit in memory as one list
+@Repository
+public interface ReactiveSensorReadingRepository extends R2dbcRepository<SensorReadingRow, Long> {
+
+    Flux<SensorReadingRow> findBySensorIdAndTimestampBetween(Long sensorId, LocalDateTime startDate, LocalDateTime endDate);
+
+    // The stored copy of a keyed reading, used to answer a retried create-reading
+    Mono<SensorReadingRow> findBySensorIdAndDeviceSequence(Long sensorId, Long deviceSequence);
+
+}
@@ -0,0 +1,14 @@
+package com.weather.sensor_service.Repository;
+
+import com.weather.sensor_service.Entity.SensorGroupDefinition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SensorGroupRepository extends JpaRepository<SensorGroupDefinition, String> {
+
+    // Every group in the order it was created, loaded at startup
+    List<SensorGroupDefinition> findAllByOrderByCreatedAtAsc();
+}
@@ -1,20 +1,58 @@
 package com.weather.sensor_service.Repository;
 
+import com.weather.sensor_service.DTO.SensorExtentDTO;
 import com.weather.sensor_service.Entity.SensorReading;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface SensorReadingRepository extends JpaRepository<SensorReading, Long> {
+public interface SensorReadingRepository extends JpaRepository<SensorReading, Long>, SensorReadingSampling {
 
     List<SensorReading> findBySensorId(Long sensorId);
 
     List<SensorReading> findBySensorIdAndTimestampBetween(Long sensorId, LocalDateTime startDate, LocalDateTime endDate);
 
+    // Same as above in time order, one chunk of a long range query
+    List<SensorReading> findBySensorIdAndTimestampBetweenOrderByTimestampAsc(Long sensorId, LocalDateTime startDate, LocalDateTime endDate);
+
+    // First page of the above, lets approximate aggregation find out whether a range is small without counting all of it
+    List<SensorReading> findBySensorIdAndTimestampBetweenOrderByTimestampAsc(Long sensorId, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
+
+    // Last reading in a range, approximate aggregation samples between the first and this one
+    Optional<SensorReading> findFirstBySensorIdAndTimestampBetweenOrderByTimestampDesc(Long sensorId, LocalDateTime startDate, LocalDateTime endDate);
+
+    // Readings in a range, counted on the (sensor_id, timestamp) index
+    long countBySensorIdAndTimestampBetween(Long sensorId, LocalDateTime startDate, LocalDateTime endDate);
+
+    // Oldest readings first, used to move a sensor between shards in batches
+    List<SensorReading> findBySensorIdOrderByIdAsc(Long sensorId, Pageable pageable);
+
+    // Next batch of a sensor's readings after afterId, used to fill sensor group rollups and to copy a sensor to its new shard
+    List<SensorReading> findBySensorIdAndIdGreaterThanOrderByIdAsc(Long sensorId, Long afterId, Pageable pageable);
+
+    // Readings of several sensors between dates, used for the edges of a sensor group query
+    List<SensorReading> findBySensorIdInAndTimestampBetween(Collection<Long> sensorIds, LocalDateTime startDate, LocalDateTime endDate);
+
+    // The stored copy of a keyed reading, used to answer a retried create-reading
+    Optional<SensorReading> findBySensorIdAndDeviceSequence(Long sensorId, Long deviceSequence);
+
+    long countBySensorId(Long sensorId);
+
+    @Query("select distinct r.sensorId from SensorReading r")
+    List<Long> findDistinctSensorIds();
+
+    // First / last timestamp and count of every sensor, loads the sensor catalog
+    @Query("select new com.weather.sensor_service.DTO.SensorExtentDTO(r.sensorId, min(r.timestamp), max(r.timestamp), count(r)) "
+            + "from SensorReading r group by r.sensorId")
+    List<SensorExtentDTO> findSensorExtents();
 
 }
 
@@ -0,0 +1,14 @@
+package com.weather.sensor_service.Repository;
+
+import com.weather.sensor_service.Entity.SensorReading;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Sample queries for approximate aggregation, part of SensorReadingRepository
+public interface SensorReadingSampling {
+
+    // First reading at or after each probe time (up to endDate), all in one query
+    // A probe with no reading after it is just missing from the result, probes landing on the same reading each return it
+    List<SensorReading> findFirstAfterEach(Long sensorId, List<LocalDateTime> probes, LocalDateTime endDate);
+}
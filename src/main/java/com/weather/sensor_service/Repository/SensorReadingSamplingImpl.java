@@ -0,0 +1,48 @@
+package com.weather.sensor_service.Repository;
+
+import com.weather.sensor_service.Entity.SensorReading;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// One indexed "first reading after t" lookup per probe, glued together with UNION ALL so a batch is one round trip
+// Written in HQL rather than SQL so the compact profile's converters still apply to the timestamp and metric columns
+public class SensorReadingSamplingImpl implements SensorReadingSampling {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<SensorReading> findFirstAfterEach(Long sensorId, List<LocalDateTime> probes, LocalDateTime endDate) {
+        if (probes.isEmpty()) {
+            return List.of();
+        }
+
+        StringBuilder hql = new StringBuilder();
+        for (int i = 0; i < probes.size(); i++) {
+            if (i > 0) {
+                hql.append(" union all ");
+            }
+            hql.append("(select r.id, r.temperature, r.humidity, r.windSpeed, r.timestamp from SensorReading r")
+                    .append(" where r.sensorId = :sensorId and r.timestamp between :p").append(i).append(" and :endDate")
+                    .append(" order by r.timestamp limit 1)");
+        }
+
+        TypedQuery<Object[]> query = entityManager.createQuery(hql.toString(), Object[].class)
+                .setParameter("sensorId", sensorId)
+                .setParameter("endDate", endDate);
+        for (int i = 0; i < probes.size(); i++) {
+            query.setParameter("p" + i, probes.get(i));
+        }
+
+        List<SensorReading> readings = new ArrayList<>(probes.size());
+        for (Object[] row : query.getResultList()) {
+            readings.add(new SensorReading((Long) row[0], sensorId, (Double) row[1], (Double) row[2], (Double) row[3], (LocalDateTime) row[4]));
+        }
+        return readings;
+    }
+}
@@ -0,0 +1,293 @@
+package com.weather.sensor_service.Services;
+
+import com.weather.sensor_service.Exceptions.SensorExceptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Rate and concurrency limits per client and per sensor, set per endpoint under sensor.admission.endpoints
+// e.g. one gateway flooding create-reading or one analyst running get-all in a loop gets a 429 instead of the database
+// Rates use lock-free token buckets and concurrency uses atomic counters, so an admitted request only costs a few CAS operations
+@Service
+public class AdmissionControl {
+
+    // Limits for one endpoint, 0 means no limit
+    public static class EndpointLimits {
+        // Requests per second per client and how many can arrive at once
+        private double clientRate;
+        private int clientBurst;
+
+        // Requests per second per sensor and how many can arrive at once
+        private double sensorRate;
+        private int sensorBurst;
+
+        // Requests one client can have running at the same time (sensor.admission.client-concurrency if 0)
+        private int clientConcurrency;
+
+        // Expensive aggregation endpoint, shares the sensor.admission.aggregation-concurrency slots
+        private boolean aggregation;
+
+        public double getClientRate() {
+            return clientRate;
+        }
+
+        public void setClientRate(double clientRate) {
+            this.clientRate = clientRate;
+        }
+
+        public int getClientBurst() {
+            return clientBurst;
+        }
+
+        public void setClientBurst(int clientBurst) {
+            this.clientBurst = clientBurst;
+        }
+
+        public double getSensorRate() {
+            return sensorRate;
+        }
+
+        public void setSensorRate(double sensorRate) {
+            this.sensorRate = sensorRate;
+        }
+
+        public int getSensorBurst() {
+            return sensorBurst;
+        }
+
+        public void setSensorBurst(int sensorBurst) {
+            this.sensorBurst = sensorBurst;
+        }
+
+        public int getClientConcurrency() {
+            return clientConcurrency;
+        }
+
+        public void setClientConcurrency(int clientConcurrency) {
+            this.clientConcurrency = clientConcurrency;
+        }
+
+        public boolean isAggregation() {
+            return aggregation;
+        }
+
+        public void setAggregation(boolean aggregation) {
+            this.aggregation = aggregation;
+        }
+    }
+
+    // A running request's concurrency slots, released once when the request finishes
+    // Also keeps the tokens it took so a later rejection of the same request can give them back
+    public static final class Permit {
+        private final AtomicInteger clientSlots;
+        private final AtomicInteger aggregationSlots;
+        private final List<TokenBucket> tokens;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private final AtomicBoolean refunded = new AtomicBoolean();
+
+        private Permit(AtomicInteger clientSlots, AtomicInteger aggregationSlots, List<TokenBucket> tokens) {
+            this.clientSlots = clientSlots;
+            this.aggregationSlots = aggregationSlots;
+            this.tokens = tokens;
+        }
+
+        private void refundTokens() {
+            if (refunded.compareAndSet(false, true)) {
+                tokens.forEach(TokenBucket::refund);
+            }
+        }
+
+        public void release() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            if (clientSlots != null) clientSlots.decrementAndGet();
+            if (aggregationSlots != null) aggregationSlots.decrementAndGet();
+        }
+    }
+
+    private static final EndpointLimits NO_LIMITS = new EndpointLimits();
+    private static final Permit NO_PERMIT = new Permit(null, null, List.of());
+
+    // Buckets / counters tracked before full (idle) ones are dropped
+    private static final int MAX_TRACKED = 100_000;
+
+    private final boolean enabled;
+
+    // Running requests per client for endpoints without their own limit
+    private final int defaultClientConcurrency;
+
+    // Running aggregation queries across every client
+    private final int aggregationConcurrency;
+
+    // endpoint -> limits
+    private final Map<String, EndpointLimits> endpoints;
+
+    // "endpoint client" / "endpoint sensorId" -> bucket
+    private final ConcurrentHashMap<String, TokenBucket> clientBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TokenBucket> sensorBuckets = new ConcurrentHashMap<>();
+
+    // "endpoint client" -> running requests
+    private final ConcurrentHashMap<String, AtomicInteger> clientRunning = new ConcurrentHashMap<>();
+    private final AtomicInteger aggregationsRunning = new AtomicInteger();
+
+    private final MeterRegistry registry;
+
+    public AdmissionControl(Environment environment, MeterRegistry registry,
+                            @Value("${sensor.admission.enabled:true}") boolean enabled,
+                            @Value("${sensor.admission.client-concurrency:32}") int defaultClientConcurrency,
+                            @Value("${sensor.admission.aggregation-concurrency:8}") int aggregationConcurrency) {
+        this.registry = registry;
+        this.enabled = enabled;
+        this.defaultClientConcurrency = defaultClientConcurrency;
+        this.aggregationConcurrency = aggregationConcurrency;
+        this.endpoints = Binder.get(environment)
+                .bind("sensor.admission.endpoints", Bindable.mapOf(String.class, EndpointLimits.class))
+                .orElse(Map.of());
+    }
+
+    // Admits a request to an endpoint or throws TooManyRequestsException
+    // The permit has to be released when the request finishes
+    // A rejected request gives back every token it took, so a limit that passed isn't charged for it
+    public Permit admit(String endpoint, String clientId, Collection<Long> sensorIds) {
+        if (!enabled) {
+            return NO_PERMIT;
+        }
+
+        EndpointLimits limits = endpoints.getOrDefault(endpoint, NO_LIMITS);
+        long now = System.nanoTime();
+        List<TokenBucket> taken = new ArrayList<>(1 + sensorIds.size());
+
+        try {
+            if (limits.getClientRate() > 0) {
+                taken.add(takeToken(clientBuckets, endpoint + " " + clientId, limits.getClientRate(), limits.getClientBurst(), now,
+                        endpoint, "client-rate", "client " + clientId));
+            }
+            for (Long sensorId : sensorIds) {
+                TokenBucket bucket = checkSensor(endpoint, sensorId, limits, now);
+                if (bucket != null) {
+                    taken.add(bucket);
+                }
+            }
+
+            AtomicInteger clientSlots = null;
+            int clientLimit = limits.getClientConcurrency() > 0 ? limits.getClientConcurrency() : defaultClientConcurrency;
+            if (clientLimit > 0) {
+                clientSlots = counter(endpoint + " " + clientId);
+                if (!tryIncrement(clientSlots, clientLimit)) {
+                    throw reject(endpoint, "client-concurrency",
+                            "client " + clientId + " already has " + clientLimit + " " + endpoint + " requests running", 1);
+                }
+            }
+
+            AtomicInteger aggregationSlots = null;
+            if (limits.isAggregation() && aggregationConcurrency > 0) {
+                if (!tryIncrement(aggregationsRunning, aggregationConcurrency)) {
+                    if (clientSlots != null) clientSlots.decrementAndGet();
+                    throw reject(endpoint, "aggregation-concurrency",
+                            aggregationConcurrency + " aggregation queries already running", 1);
+                }
+                aggregationSlots = aggregationsRunning;
+            }
+
+            return new Permit(clientSlots, aggregationSlots, taken);
+        } catch (SensorExceptions.TooManyRequestsException e) {
+            taken.forEach(TokenBucket::refund);
+            throw e;
+        }
+    }
+
+    // Rate limit for one sensor, used where the sensorId is only known from the request body
+    // permit is the one admit gave the same request (null if none), its tokens are given back if the sensor is rejected
+    public void admitSensor(String endpoint, Long sensorId, Permit permit) {
+        if (!enabled || sensorId == null) {
+            return;
+        }
+        try {
+            checkSensor(endpoint, sensorId, endpoints.getOrDefault(endpoint, NO_LIMITS), System.nanoTime());
+        } catch (SensorExceptions.TooManyRequestsException e) {
+            if (permit != null) {
+                permit.refundTokens();
+            }
+            throw e;
+        }
+    }
+
+    // Returns the bucket a token was taken from, null if the endpoint has no sensor rate
+    private TokenBucket checkSensor(String endpoint, Long sensorId, EndpointLimits limits, long now) {
+        if (limits.getSensorRate() <= 0) {
+            return null;
+        }
+        return takeToken(sensorBuckets, endpoint + " " + sensorId, limits.getSensorRate(), limits.getSensorBurst(), now,
+                endpoint, "sensor-rate", "sensorId " + sensorId);
+    }
+
+    private TokenBucket takeToken(ConcurrentHashMap<String, TokenBucket> buckets, String key, double rate, int burst, long now,
+                           String endpoint, String reason, String who) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            dropFullBuckets(buckets, now);
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(rate, Math.max(1, burst)));
+        }
+
+        long waitNanos = bucket.tryAcquire(now);
+        if (waitNanos > 0) {
+            throw reject(endpoint, reason, who + " is over " + rate + " " + endpoint + " requests per second",
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+        }
+        return bucket;
+    }
+
+    private AtomicInteger counter(String key) {
+        AtomicInteger running = clientRunning.get(key);
+        if (running == null) {
+            if (clientRunning.size() > MAX_TRACKED) {
+                clientRunning.values().removeIf(count -> count.get() == 0);
+            }
+            running = clientRunning.computeIfAbsent(key, k -> new AtomicInteger());
+        }
+        return running;
+    }
+
+    // A full bucket is the same as a new one so it can be dropped
+    private static void dropFullBuckets(ConcurrentHashMap<String, TokenBucket> buckets, long now) {
+        if (buckets.size() > MAX_TRACKED) {
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+        }
+    }
+
+    private static boolean tryIncrement(AtomicInteger running, int limit) {
+        while (true) {
+            int current = running.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (running.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private SensorExceptions.TooManyRequestsException reject(String endpoint, String reason, String message, long retryAfterSeconds) {
+        Counter.builder("sensor.admission.rejections")
+                .description("Requests rejected by rate / concurrency limits")
+                .tag("endpoint", endpoint)
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+        return new SensorExceptions.TooManyRequestsException(message, retryAfterSeconds);
+    }
+}
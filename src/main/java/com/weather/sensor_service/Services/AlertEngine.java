@@ -0,0 +1,293 @@
+package com.weather.sensor_service.Services;
+
+import com.weather.sensor_service.Alerts.AlertSink;
+import com.weather.sensor_service.DTO.AlertRuleDTO;
+import com.weather.sensor_service.DTO.SensorAlertDTO;
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Exceptions.SensorExceptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Evaluates alert rules inline as readings are saved
+// Rules are compiled into a per-sensor index so a reading only ever checks the rules that apply to its sensor
+@Service
+public class AlertEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertEngine.class);
+
+    // Comparison operators
+    private static final int GREATER = 0;
+    private static final int GREATER_OR_EQUAL = 1;
+    private static final int LESS = 2;
+    private static final int LESS_OR_EQUAL = 3;
+
+    // A validated rule turned into ints / doubles so evaluating it is just a comparison
+    private record CompiledRule(String name, String metricName, int metric, int operator, double threshold,
+                                int consecutive, long windowMillis) {
+
+        boolean test(double value) {
+            return switch (operator) {
+                case GREATER -> value > threshold;
+                case GREATER_OR_EQUAL -> value >= threshold;
+                case LESS -> value < threshold;
+                default -> value <= threshold;
+            };
+        }
+    }
+
+    // Compiled rules keyed by sensor plus the rules for every sensor
+    // Replaced as a whole whenever a rule changes
+    private record RuleIndex(Map<Long, List<CompiledRule>> bySensor, List<CompiledRule> global) {
+
+        static final RuleIndex EMPTY = new RuleIndex(Map.of(), List.of());
+
+        boolean isEmpty() {
+            return bySensor.isEmpty() && global.isEmpty();
+        }
+
+        CompiledRule[] rulesFor(Long sensorId) {
+            List<CompiledRule> rules = new ArrayList<>(bySensor.getOrDefault(sensorId, List.of()));
+            rules.addAll(global);
+            return rules.toArray(new CompiledRule[0]);
+        }
+    }
+
+    // Streak counter of ONE rule for ONE sensor plus its window if the rule is averaged
+    private static final class RuleState {
+        private int streak;
+        private final SlidingWindow window;
+
+        RuleState(CompiledRule rule) {
+            this.window = rule.windowMillis() > 0 ? new SlidingWindow(rule.windowMillis()) : null;
+        }
+    }
+
+    // State machine for ONE sensor: the state of every rule that applies to it
+    // When the rules change the state of every rule still in the index (same compiled instance) is carried over,
+    // so editing one rule doesn't reset the streaks and windows of the others
+    private static final class SensorState {
+        private final RuleIndex index;
+        private final CompiledRule[] rules;
+        private final RuleState[] ruleStates;
+
+        // Shared with the states this one replaces, a reading still being evaluated against an old one can't race a new one
+        private final Object lock;
+
+        SensorState(RuleIndex index, Long sensorId, SensorState previous) {
+            this.index = index;
+            this.rules = index.rulesFor(sensorId);
+            this.ruleStates = new RuleState[rules.length];
+            this.lock = previous != null ? previous.lock : new Object();
+
+            Map<CompiledRule, RuleState> carried = new IdentityHashMap<>();
+            if (previous != null) {
+                for (int i = 0; i < previous.rules.length; i++) {
+                    carried.put(previous.rules[i], previous.ruleStates[i]);
+                }
+            }
+            for (int i = 0; i < rules.length; i++) {
+                RuleState state = carried.get(rules[i]);
+                ruleStates[i] = state != null ? state : new RuleState(rules[i]);
+            }
+        }
+
+        // Returns the alerts fired by this reading (null if none so nothing is allocated on the normal path)
+        List<SensorAlertDTO> evaluate(Long sensorId, long at, double temperature, double humidity, double windSpeed, LocalDateTime timestamp) {
+            synchronized (lock) {
+                List<SensorAlertDTO> fired = null;
+
+                for (int i = 0; i < rules.length; i++) {
+                    CompiledRule rule = rules[i];
+                    RuleState state = ruleStates[i];
+                    double value;
+
+                    if (state.window != null) {
+                        state.window.add(at, temperature, humidity, windSpeed);
+                        value = state.window.calculate(rule.metric(), "avg", at);
+                    } else {
+                        value = switch (rule.metric()) {
+                            case SlidingWindow.TEMPERATURE -> temperature;
+                            case SlidingWindow.HUMIDITY -> humidity;
+                            default -> windSpeed;
+                        };
+                    }
+
+                    if (!rule.test(value)) {
+                        state.streak = 0;
+                        continue;
+                    }
+
+                    // Only fires once when the streak is reached, then again after the condition clears
+                    if (state.streak < rule.consecutive()) {
+                        state.streak++;
+                        if (state.streak == rule.consecutive()) {
+                            if (fired == null) {
+                                fired = new ArrayList<>(2);
+                            }
+                            fired.add(new SensorAlertDTO(rule.name(), sensorId, rule.metricName(), value, rule.threshold(), timestamp));
+                        }
+                    }
+                }
+                return fired;
+            }
+        }
+    }
+
+    // Where fired alerts are sent
+    private final List<AlertSink> sinks;
+
+    // Rules as they were defined, keyed by name
+    private final Map<String, AlertRuleDTO> rules = new LinkedHashMap<>();
+
+    // Compiled form of each rule, only replaced when its definition changes (state is matched by instance)
+    private final Map<String, CompiledRule> compiledRules = new HashMap<>();
+
+    // Current compiled rules
+    private volatile RuleIndex index = RuleIndex.EMPTY;
+
+    // sensorId -> state for the rules that apply to it
+    private final ConcurrentHashMap<Long, SensorState> states = new ConcurrentHashMap<>();
+
+    public AlertEngine(List<AlertSink> sinks) {
+        this.sinks = sinks;
+    }
+
+    // Adds a rule (or replaces the rule with the same name)
+    public synchronized AlertRuleDTO addRule(AlertRuleDTO rule) {
+        CompiledRule compiled = compile(rule);
+        rules.put(rule.getName(), rule);
+        if (!compiled.equals(compiledRules.get(rule.getName()))) {
+            compiledRules.put(rule.getName(), compiled);
+        }
+        rebuildIndex();
+        return rule;
+    }
+
+    // Removes a rule by name
+    public synchronized void removeRule(String name) {
+        if (rules.remove(name) == null) {
+            throw new SensorExceptions.AlertRuleException("No alert rule named " + name);
+        }
+        compiledRules.remove(name);
+        rebuildIndex();
+    }
+
+    // Returns every rule
+    public synchronized List<AlertRuleDTO> getRules() {
+        return new ArrayList<>(rules.values());
+    }
+
+    // Checks a saved reading against its sensor's rules and delivers any alerts
+    public void evaluate(SensorReading reading) {
+        RuleIndex current = index;
+        if (current.isEmpty()) {
+            return;
+        }
+
+        // State is rebuilt lazily if the rules have changed since it was created, keeping the unchanged rules' state
+        SensorState state = states.compute(reading.getSensorId(),
+                (sensorId, existing) -> existing != null && existing.index == current ? existing : new SensorState(current, sensorId, existing));
+
+        List<SensorAlertDTO> fired = state.evaluate(
+                reading.getSensorId(),
+                LiveWindowAggregator.toEpochMillis(reading.getTimestamp()),
+                reading.getTemperature(),
+                reading.getHumidity(),
+                reading.getWindSpeed(),
+                reading.getTimestamp() != null ? reading.getTimestamp() : LocalDateTime.now());
+
+        if (fired != null) {
+            fired.forEach(this::deliver);
+        }
+    }
+
+    // A failing sink should never fail the save
+    private void deliver(SensorAlertDTO alert) {
+        for (AlertSink sink : sinks) {
+            try {
+                sink.deliver(alert);
+            } catch (Exception e) {
+                log.warn("Alert sink {} failed for rule {} : {}", sink.getClass().getSimpleName(), alert.getRuleName(), e.getMessage());
+            }
+        }
+    }
+
+    // Builds the per-sensor index from every rule
+    // Sensor states move over to it on their next reading, dropping only the state of removed or changed rules
+    private void rebuildIndex() {
+        Map<Long, List<CompiledRule>> bySensor = new HashMap<>();
+        List<CompiledRule> global = new ArrayList<>();
+
+        for (AlertRuleDTO rule : rules.values()) {
+            CompiledRule compiled = compiledRules.get(rule.getName());
+            if (rule.getSensorIds() == null || rule.getSensorIds().isEmpty()) {
+                global.add(compiled);
+            } else {
+                for (Long sensorId : rule.getSensorIds()) {
+                    bySensor.computeIfAbsent(sensorId, id -> new ArrayList<>()).add(compiled);
+                }
+            }
+        }
+
+        index = new RuleIndex(Map.copyOf(bySensor), List.copyOf(global));
+        if (index.isEmpty()) {
+            states.clear();
+        }
+    }
+
+    // Validates a rule and turns it into a CompiledRule
+    private CompiledRule compile(AlertRuleDTO rule) {
+        if (rule.getName() == null || rule.getName().isBlank()) {
+            throw new SensorExceptions.AlertRuleException("name is needed to create a rule");
+        }
+        if (rule.getMetric() == null) {
+            throw new SensorExceptions.AlertRuleException("metric is needed to create rule " + rule.getName());
+        }
+        if (rule.getOperator() == null) {
+            throw new SensorExceptions.AlertRuleException("operator is needed to create rule " + rule.getName());
+        }
+        if (rule.getThreshold() == null) {
+            throw new SensorExceptions.AlertRuleException("threshold is needed to create rule " + rule.getName());
+        }
+
+        int metric = switch (rule.getMetric().toLowerCase()) {
+            case "temperature" -> SlidingWindow.TEMPERATURE;
+            case "humidity" -> SlidingWindow.HUMIDITY;
+            case "windspeed", "wind" -> SlidingWindow.WIND;
+            default -> throw new SensorExceptions.AlertRuleException("Invalid metric : " + rule.getMetric());
+        };
+
+        int operator = switch (rule.getOperator().trim()) {
+            case ">" -> GREATER;
+            case ">=" -> GREATER_OR_EQUAL;
+            case "<" -> LESS;
+            case "<=" -> LESS_OR_EQUAL;
+            default -> throw new SensorExceptions.AlertRuleException("Invalid operator : " + rule.getOperator());
+        };
+
+        int consecutive = rule.getConsecutive() != null ? rule.getConsecutive() : 1;
+        if (consecutive < 1) {
+            throw new SensorExceptions.AlertRuleException("consecutive must be at least 1 for rule " + rule.getName());
+        }
+
+        long windowMillis = 0;
+        if (rule.getWindowSeconds() != null) {
+            if (rule.getWindowSeconds() <= 0) {
+                throw new SensorExceptions.AlertRuleException("windowSeconds must be positive for rule " + rule.getName());
+            }
+            windowMillis = rule.getWindowSeconds() * 1000;
+        }
+
+        return new CompiledRule(rule.getName(), rule.getMetric(), metric, operator, rule.getThreshold(), consecutive, windowMillis);
+    }
+}
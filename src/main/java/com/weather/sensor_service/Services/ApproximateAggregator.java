@@ -0,0 +1,248 @@
+package com.weather.sensor_service.Services;
+
+import com.weather.sensor_service.DTO.SensorAggregationResponseDTO;
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Exceptions.SensorExceptions;
+import com.weather.sensor_service.Repository.SensorReadingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Estimates AVG / SUM over a large range from a sample instead of reading every row
+// The time between the sensor's first and last reading in the range is cut into as many equal strata as samples wanted
+// and one reading is taken from a random point in each (an indexed "first reading after t" lookup, batch-size of them
+// per query), the sample is doubled until the answer is accurate enough or time runs out
+// Probes landing on a reading already in the sample are dropped so no reading counts twice
+// Readings after a long gap are slightly more likely to be picked, fine for sensors reporting at a steady rate
+// SUM uses the exact reading count (an index range count) so its margin is only the mean's margin scaled up
+@Service
+@Profile("!reactive")
+public class ApproximateAggregator {
+
+    // Margins are two sided 95% normal confidence intervals
+    public static final double CONFIDENCE_LEVEL = 0.95;
+    private static final double Z = 1.959964;
+
+    private final SensorReadingRepository repository;
+
+    // Samples taken in the first round for every sensor
+    private final int initialSample;
+
+    // Most samples taken for one sensor
+    private final int maxSample;
+
+    // Sensors with this many readings or fewer in the range are calculated exactly, sampling wouldn't be faster
+    private final int exactBelow;
+
+    // Sample points looked up per query, the deadline is checked between batches
+    private final int batchSize;
+
+    // A margin (in the metric's own units) that is always accurate enough, so a mean near 0 doesn't need an ever tighter margin
+    private final double minMargin;
+
+    public ApproximateAggregator(SensorReadingRepository repository,
+                                 @Value("${sensor.approximate.initial-sample:64}") int initialSample,
+                                 @Value("${sensor.approximate.max-sample:4096}") int maxSample,
+                                 @Value("${sensor.approximate.exact-below:5000}") int exactBelow,
+                                 @Value("${sensor.approximate.batch-size:256}") int batchSize,
+                                 @Value("${sensor.approximate.min-margin:0.1}") double minMargin) {
+        this.repository = repository;
+        this.initialSample = initialSample;
+        this.maxSample = maxSample;
+        this.exactBelow = exactBelow;
+        this.batchSize = batchSize;
+        this.minMargin = minMargin;
+    }
+
+    // MIN / MAX can't be bounded from a sample
+    public boolean supports(String statistic) {
+        return statistic.equalsIgnoreCase("avg") || statistic.equalsIgnoreCase("sum");
+    }
+
+    // accuracy is the wanted margin relative to the answer (0.01 = +/- 1%), null to sample until the deadline
+    // deadlineNanos is a System.nanoTime() value, every sensor gets at least its first round
+    public List<SensorAggregationResponseDTO> aggregate(
+            List<Long> sensorIds,
+            boolean temperature,
+            boolean humidity,
+            boolean wind,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            String statistic,
+            Double accuracy,
+            long deadlineNanos) {
+
+        List<SensorAggregationResponseDTO> results = new ArrayList<>();
+        for (Long sensorId : sensorIds) {
+            results.add(aggregateSensor(sensorId, temperature, humidity, wind, startDate, endDate, statistic, accuracy, deadlineNanos));
+        }
+        return results;
+    }
+
+    private SensorAggregationResponseDTO aggregateSensor(
+            Long sensorId,
+            boolean temperature,
+            boolean humidity,
+            boolean wind,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            String statistic,
+            Double accuracy,
+            long deadlineNanos) {
+
+        // Reads at most exactBelow + 1 readings : a small range is answered from them, a large one is never counted in full
+        List<SensorReading> firstReadings = repository.findBySensorIdAndTimestampBetweenOrderByTimestampAsc(
+                sensorId, startDate, endDate, PageRequest.of(0, exactBelow + 1));
+        if (firstReadings.isEmpty()) {
+            throw new SensorExceptions.SensorNotFoundException(
+                    "No readings found in databases for sensorId : " + sensorId + " between " + startDate + " and " + endDate);
+        }
+
+        List<Integer> metrics = new ArrayList<>();
+        if (temperature) metrics.add(SlidingWindow.TEMPERATURE);
+        if (humidity) metrics.add(SlidingWindow.HUMIDITY);
+        if (wind) metrics.add(SlidingWindow.WIND);
+
+        MetricAccumulator accumulator = new MetricAccumulator();
+        boolean approximate = firstReadings.size() > exactBelow;
+        long readingCount;
+        long samples = 0;
+
+        if (!approximate) {
+            firstReadings.forEach(accumulator::add);
+            readingCount = firstReadings.size();
+            samples = readingCount;
+        } else {
+            readingCount = repository.countBySensorIdAndTimestampBetween(sensorId, startDate, endDate);
+
+            // Strata only cover the readings, an open (1970) start would otherwise put most probes on the first reading
+            LocalDateTime first = firstReadings.getFirst().getTimestamp();
+            LocalDateTime last = repository.findFirstBySensorIdAndTimestampBetweenOrderByTimestampDesc(sensorId, startDate, endDate)
+                    .map(SensorReading::getTimestamp)
+                    .orElse(firstReadings.getLast().getTimestamp());
+
+            Set<Long> sampled = new HashSet<>();
+            int probed = 0;
+            int round = initialSample;
+            boolean firstRound = true;
+            while (true) {
+                int added = sample(sensorId, first, last, round, sampled, accumulator, firstRound ? Long.MAX_VALUE : deadlineNanos);
+                samples += added;
+                probed += round;
+                firstRound = false;
+
+                // nothing new means the probes keep landing on readings already sampled
+                if (added == 0 || probed >= maxSample || System.nanoTime() - deadlineNanos >= 0) {
+                    break;
+                }
+                if (accuracy != null && accurateEnough(accumulator, metrics, accuracy)) {
+                    break;
+                }
+                // double the sample each round
+                round = Math.min(probed, maxSample - probed);
+            }
+        }
+
+        Double temperatureMetric = temperature ? estimate(accumulator, SlidingWindow.TEMPERATURE, statistic, readingCount, approximate) : null;
+        Double humidityMetric = humidity ? estimate(accumulator, SlidingWindow.HUMIDITY, statistic, readingCount, approximate) : null;
+        Double windSpeedMetric = wind ? estimate(accumulator, SlidingWindow.WIND, statistic, readingCount, approximate) : null;
+
+        SensorAggregationResponseDTO response = new SensorAggregationResponseDTO(
+                sensorId,
+                statistic,
+                temperatureMetric != null ? temperatureMetric : 0.0,
+                windSpeedMetric != null ? windSpeedMetric : 0.0,
+                humidityMetric != null ? humidityMetric : 0.0,
+                startDate,
+                endDate
+        );
+
+        // Then nulling metrics if not requested
+        if (!temperature) response.setTemperatureMetric(null);
+        if (!humidity) response.setHumidityMetric(null);
+        if (!wind) response.setWindSpeedMetric(null);
+
+        response.setApproximate(approximate);
+        response.setSampleSize(samples);
+        response.setReadingCount(readingCount);
+        if (approximate) {
+            response.setConfidenceLevel(CONFIDENCE_LEVEL);
+            if (temperature) response.setTemperatureMargin(margin(accumulator, SlidingWindow.TEMPERATURE, statistic, readingCount));
+            if (humidity) response.setHumidityMargin(margin(accumulator, SlidingWindow.HUMIDITY, statistic, readingCount));
+            if (wind) response.setWindSpeedMargin(margin(accumulator, SlidingWindow.WIND, statistic, readingCount));
+        }
+
+        return response;
+    }
+
+    // Takes one reading from a random point in each of n equal slices of first..last, returns how many new ones were found
+    // Readings already in sampled (by id) are skipped
+    // The slices are looked up batchSize at a time, stopping early once the deadline has passed
+    private int sample(Long sensorId, LocalDateTime first, LocalDateTime last, int n, Set<Long> sampled,
+                       MetricAccumulator accumulator, long deadlineNanos) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long spanNanos = Duration.between(first, last).toNanos();
+        int found = 0;
+
+        for (int batchStart = 0; batchStart < n; batchStart += batchSize) {
+            if (batchStart > 0 && System.nanoTime() - deadlineNanos >= 0) {
+                break;
+            }
+
+            List<LocalDateTime> probes = new ArrayList<>(batchSize);
+            for (int i = batchStart; i < Math.min(n, batchStart + batchSize); i++) {
+                long offset = (long) ((i + random.nextDouble()) * spanNanos / n);
+                probes.add(first.plusNanos(offset));
+            }
+
+            for (SensorReading reading : repository.findFirstAfterEach(sensorId, probes, last)) {
+                if (sampled.add(reading.getId())) {
+                    accumulator.add(reading);
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    // Relative to the mean, but a margin within minMargin is always enough (a mean near 0 would otherwise never get there)
+    private boolean accurateEnough(MetricAccumulator accumulator, List<Integer> metrics, double accuracy) {
+        for (int metric : metrics) {
+            if (accumulator.count(metric) < 2) {
+                return false;
+            }
+            double mean = accumulator.statistic(metric, "avg");
+            if (margin(accumulator, metric, "avg", 0) > Math.max(accuracy * Math.abs(mean), minMargin)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // AVG is the sample mean, SUM scales it up to every reading in the range
+    private static double estimate(MetricAccumulator accumulator, int metric, String statistic, long readingCount, boolean approximate) {
+        if (!approximate || statistic.equalsIgnoreCase("avg")) {
+            return accumulator.statistic(metric, statistic);
+        }
+        return accumulator.statistic(metric, "avg") * readingCount;
+    }
+
+    // Half width of the confidence interval, readingCount is exact so SUM only carries the mean's error
+    private static double margin(MetricAccumulator accumulator, int metric, String statistic, long readingCount) {
+        long n = accumulator.count(metric);
+        if (n == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double meanMargin = Z * Math.sqrt(accumulator.variance(metric) / n);
+        return statistic.equalsIgnoreCase("sum") ? meanMargin * readingCount : meanMargin;
+    }
+}
@@ -0,0 +1,245 @@
+package com.weather.sensor_service.Services;
+
+import com.weather.sensor_service.Config.ReplicaRouting;
+import com.weather.sensor_service.Config.ShardRouter;
+import com.weather.sensor_service.DTO.SensorExtentDTO;
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Profiling.RequestProfile;
+import com.weather.sensor_service.Repository.SensorReadingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Splits a long range for one sensor into time chunks which are read in parallel
+// Aggregates are worked out per chunk and merged, raw readings come back chunk by chunk in time order
+// Chunk length adapts to how many readings per second each sensor has had so a chunk is about target-rows readings
+@Service
+@Profile("!reactive")
+public class ChunkedQueryExecutor {
+
+    // Smallest chunk worth a query of its own
+    private static final long MIN_CHUNK_SECONDS = 60;
+
+    // Weight of the newest rows per second observation
+    private static final double DENSITY_WEIGHT = 0.5;
+
+    private final SensorReadingRepository repository;
+    private final ShardRouter shardRouter;
+    private final ReplicaRouting replicaRouting;
+    private final SensorCatalog catalog;
+
+    // Each chunk is its own read-only transaction on the chunk thread
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final boolean enabled;
+
+    // Ranges shorter than this are still read in one query
+    private final long minRangeSeconds;
+
+    // Readings aimed for per chunk
+    private final long targetRows;
+
+    // Most chunks a single range is split into
+    private final int maxChunks;
+
+    // Chunks one query has in flight at a time (also the pool size)
+    private final int parallelism;
+
+    // sensorId -> readings per second seen in recent chunks
+    private final ConcurrentHashMap<Long, Double> densities = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor;
+
+    private final Counter chunks;
+
+    public ChunkedQueryExecutor(SensorReadingRepository repository, ShardRouter shardRouter, ReplicaRouting replicaRouting,
+                                SensorCatalog catalog, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                @Value("${sensor.query.chunking.enabled:true}") boolean enabled,
+                                @Value("${sensor.query.chunking.min-range-hours:168}") long minRangeHours,
+                                @Value("${sensor.query.chunking.target-rows:20000}") long targetRows,
+                                @Value("${sensor.query.chunking.max-chunks:256}") int maxChunks,
+                                @Value("${sensor.query.chunking.threads:4}") int parallelism) {
+        if (minRangeHours <= 0 || targetRows <= 0 || maxChunks <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("sensor.query.chunking.* values must be positive");
+        }
+        this.repository = repository;
+        this.shardRouter = shardRouter;
+        this.replicaRouting = replicaRouting;
+        this.catalog = catalog;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.minRangeSeconds = minRangeHours * 3600;
+        this.targetRows = targetRows;
+        this.maxChunks = maxChunks;
+        this.parallelism = parallelism;
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "chunked-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.chunks = Counter.builder("sensor.query.chunks")
+                .description("Time chunks read for long range queries")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // True if from..to is long enough to be split
+    public boolean shouldSplit(LocalDateTime from, LocalDateTime to) {
+        return enabled && Duration.between(from, to).getSeconds() >= minRangeSeconds;
+    }
+
+    // Totals of every reading of the sensor between from and to (inclusive)
+    public MetricAccumulator aggregate(Long sensorId, LocalDateTime from, LocalDateTime to) {
+        MetricAccumulator totals = new MetricAccumulator();
+        try (Chunks<MetricAccumulator> partials = new Chunks<>(sensorId, from, to, ChunkedQueryExecutor::accumulate)) {
+            partials.forEachRemaining(totals::merge);
+        }
+        return totals;
+    }
+
+    // Readings of the sensor between from and to in timestamp order, one list per chunk
+    // Chunks are read ahead in parallel, close the stream to cancel the rest
+    public Stream<List<SensorReading>> stream(Long sensorId, LocalDateTime from, LocalDateTime to) {
+        Chunks<List<SensorReading>> readings = new Chunks<>(sensorId, from, to, Function.identity());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(readings, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(readings::close);
+    }
+
+    private static MetricAccumulator accumulate(List<SensorReading> readings) {
+        MetricAccumulator partial = new MetricAccumulator();
+        readings.forEach(partial::add);
+        return partial;
+    }
+
+    // Reads one chunk and records how dense it was
+    private List<SensorReading> fetch(Long sensorId, LocalDateTime from, LocalDateTime to) {
+        List<SensorReading> readings = readOnlyTransaction.execute(status -> {
+            replicaRouting.readYourWrites(Collections.singletonList(sensorId));
+            return shardRouter.onSensorShard(sensorId,
+                    () -> repository.findBySensorIdAndTimestampBetweenOrderByTimestampAsc(sensorId, from, to));
+        });
+        chunks.increment();
+
+        double seconds = Math.max(1, Duration.between(from, to).getSeconds());
+        densities.merge(sensorId, readings.size() / seconds,
+                (previous, latest) -> previous * (1 - DENSITY_WEIGHT) + latest * DENSITY_WEIGHT);
+        return readings;
+    }
+
+    // Length of the next chunk, from the sensor's recent chunks or else its catalog extent
+    // With nothing known the remaining range is shared between the threads
+    private long chunkSeconds(Long sensorId, long rangeSeconds, long remainingSeconds) {
+        long smallest = Math.max(MIN_CHUNK_SECONDS, rangeSeconds / maxChunks);
+
+        Double density = densities.get(sensorId);
+        if (density == null) {
+            SensorExtentDTO extent = catalog.get(sensorId);
+            if (extent != null && extent.getFirstTimestamp() != null) {
+                long span = Math.max(1, Duration.between(extent.getFirstTimestamp(), extent.getLastTimestamp()).getSeconds());
+                density = (double) extent.getReadingCount() / span;
+            }
+        }
+
+        long seconds = density == null || density <= 0
+                ? remainingSeconds / parallelism
+                : (long) (targetRows / density);
+        return Math.max(smallest, Math.min(seconds, remainingSeconds));
+    }
+
+    // Plans chunks as it goes so each one uses the latest density, keeping up to parallelism of them in flight
+    // Results come back in chunk (time) order
+    private final class Chunks<T> implements Iterator<T>, AutoCloseable {
+
+        private final Long sensorId;
+        private final LocalDateTime to;
+        private final long rangeSeconds;
+        private final Function<List<SensorReading>, T> work;
+        private final ArrayDeque<CompletableFuture<T>> ahead = new ArrayDeque<>();
+
+        // Start of the next chunk to plan, null once the whole range is planned
+        private LocalDateTime next;
+
+        Chunks(Long sensorId, LocalDateTime from, LocalDateTime to, Function<List<SensorReading>, T> work) {
+            this.sensorId = sensorId;
+            this.to = to;
+            this.rangeSeconds = Math.max(1, Duration.between(from, to).getSeconds());
+            this.work = work;
+            this.next = from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            fill();
+            return !ahead.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                return ahead.pollFirst().join();
+            } catch (CompletionException e) {
+                close();
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        @Override
+        public void close() {
+            ahead.forEach(future -> future.cancel(true));
+            ahead.clear();
+            next = null;
+        }
+
+        private void fill() {
+            while (next != null && ahead.size() < parallelism) {
+                LocalDateTime start = next;
+                long remaining = Math.max(1, Duration.between(start, to).getSeconds());
+                LocalDateTime end = start.plusSeconds(chunkSeconds(sensorId, rangeSeconds, remaining));
+
+                // Between is inclusive so a chunk stops a microsecond (storage precision) before the next one
+                if (end.isBefore(to)) {
+                    next = end;
+                    end = end.minusNanos(1000);
+                } else {
+                    end = to;
+                    next = null;
+                }
+
+                LocalDateTime chunkEnd = end;
+                ahead.addLast(CompletableFuture.supplyAsync(
+                        RequestProfile.propagate(() -> work.apply(fetch(sensorId, start, chunkEnd))), executor));
+            }
+        }
+    }
+}
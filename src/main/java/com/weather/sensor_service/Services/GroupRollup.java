@@ -0,0 +1,146 @@
+package com.weather.sensor_service.Services;
+
+import com.weather.sensor_service.Entity.SensorReading;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Totals for ONE sensor group in fixed time buckets, e.g. every hour of every sensor in "north-region" merged together
+// A range is answered by merging the whole buckets inside it, so a month costs the same however many sensors are in the group
+// Readings from before the group was created are added by the backfill, anything newer on ingest
+public class GroupRollup {
+
+    public static final String BUILDING = "building";
+    public static final String READY = "ready";
+    public static final String FAILED = "failed";
+
+    private final String name;
+    private final List<Long> sensorIds;
+
+    // Length of a bucket, buckets start on multiples of this since 1970 (wall clock time)
+    private final long bucketSeconds;
+
+    // Readings timestamped before this are left to the backfill so nothing is counted twice
+    private final LocalDateTime createdAt;
+
+    private volatile String status = BUILDING;
+
+    // bucket number -> totals of every reading in it
+    private final ConcurrentSkipListMap<Long, MetricAccumulator> buckets = new ConcurrentSkipListMap<>();
+
+    public GroupRollup(String name, List<Long> sensorIds, long bucketSeconds, LocalDateTime createdAt) {
+        this.name = name;
+        this.sensorIds = List.copyOf(sensorIds);
+        this.bucketSeconds = bucketSeconds;
+        this.createdAt = createdAt;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Long> getSensorIds() {
+        return sensorIds;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public boolean isReady() {
+        return READY.equals(status);
+    }
+
+    void markReady() {
+        status = READY;
+    }
+
+    void markFailed() {
+        status = FAILED;
+    }
+
+    // Called once a reading for one of the group's sensors has been saved
+    public void record(SensorReading reading) {
+        if (reading.getTimestamp() == null) {
+            return;
+        }
+        // older readings are still being read from the database
+        if (!isReady() && reading.getTimestamp().isBefore(createdAt)) {
+            return;
+        }
+        add(reading);
+    }
+
+    // Called for every reading the backfill reads from the database
+    void backfill(SensorReading reading) {
+        if (reading.getTimestamp() != null && reading.getTimestamp().isBefore(createdAt)) {
+            add(reading);
+        }
+    }
+
+    // Totals of the whole buckets inside from..to
+    public MetricAccumulator merged(LocalDateTime from, LocalDateTime to) {
+        MetricAccumulator totals = new MetricAccumulator();
+        long first = firstWholeBucket(from);
+        long last = bucketOf(to);
+        if (first >= last) {
+            return totals;
+        }
+
+        for (MetricAccumulator bucket : buckets.subMap(first, true, last, false).values()) {
+            synchronized (bucket) {
+                totals.merge(bucket);
+            }
+        }
+        return totals;
+    }
+
+    // Parts of from..to not covered by whole buckets, these have to be read from the database
+    // Each range is {start, end} inclusive like the repository's Between queries
+    public List<LocalDateTime[]> edgesOf(LocalDateTime from, LocalDateTime to) {
+        long first = firstWholeBucket(from);
+        long last = bucketOf(to);
+        List<LocalDateTime[]> edges = new ArrayList<>();
+
+        if (first >= last) {
+            edges.add(new LocalDateTime[]{from, to});
+            return edges;
+        }
+
+        // timestamps are stored to the microsecond so this is the last instant before the bucket
+        if (from.isBefore(bucketStart(first))) {
+            edges.add(new LocalDateTime[]{from, bucketStart(first).minusNanos(1000)});
+        }
+        edges.add(new LocalDateTime[]{bucketStart(last), to});
+        return edges;
+    }
+
+    // Number of buckets holding readings
+    public int size() {
+        return buckets.size();
+    }
+
+    private void add(SensorReading reading) {
+        MetricAccumulator bucket = buckets.computeIfAbsent(bucketOf(reading.getTimestamp()), number -> new MetricAccumulator());
+        synchronized (bucket) {
+            bucket.add(reading);
+        }
+    }
+
+    private long bucketOf(LocalDateTime timestamp) {
+        return Math.floorDiv(timestamp.toEpochSecond(ZoneOffset.UTC), bucketSeconds);
+    }
+
+    // First bucket starting at or after from
+    private long firstWholeBucket(LocalDateTime from) {
+        long bucket = bucketOf(from);
+        return bucketStart(bucket).equals(from) ? bucket : bucket + 1;
+    }
+
+    private LocalDateTime bucketStart(long bucket) {
+        return LocalDateTime.ofEpochSecond(bucket * bucketSeconds, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,190 @@
+package com.weather.sensor_service.Services;
+
+import com.weather.sensor_service.DTO.SensorAggregationResponseDTO;
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Exceptions.SensorExceptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Keeps "last N seconds" windows for every sensor updated on ingest
+// Live statistics are answered from memory instead of scanning sensor_readings
+// Sensors which stop reporting are dropped once their longest window is empty, checked at most once per longest window
+@Service
+public class LiveWindowAggregator {
+
+    // Window lengths kept for every sensor in seconds (defaults to 5 minutes and 1 hour)
+    private final long[] windowSeconds;
+
+    // sensorId -> one window per configured length
+    private final ConcurrentHashMap<Long, SlidingWindow[]> windows = new ConcurrentHashMap<>();
+
+    // When the next idle sweep is due (epoch millis)
+    private final AtomicLong nextSweepMillis = new AtomicLong();
+
+    public LiveWindowAggregator(@Value("${sensor.live-windows-seconds:300,3600}") long[] windowSeconds) {
+        if (windowSeconds.length == 0 || Arrays.stream(windowSeconds).anyMatch(seconds -> seconds <= 0)) {
+            throw new IllegalArgumentException("sensor.live-windows-seconds must be positive values");
+        }
+        this.windowSeconds = windowSeconds.clone();
+        Arrays.sort(this.windowSeconds);
+        this.nextSweepMillis.set(System.currentTimeMillis() + longestWindowMillis());
+    }
+
+    // Called once a reading has been saved
+    public void record(SensorReading reading) {
+        long at = toEpochMillis(reading.getTimestamp());
+
+        // added under the map's lock so an idle sweep can't drop the windows between lookup and add
+        windows.compute(reading.getSensorId(), (id, sensorWindows) -> {
+            if (sensorWindows == null) {
+                sensorWindows = newWindows();
+            }
+            for (SlidingWindow window : sensorWindows) {
+                window.add(at, reading.getTemperature(), reading.getHumidity(), reading.getWindSpeed());
+            }
+            return sensorWindows;
+        });
+
+        long now = System.currentTimeMillis();
+        long due = nextSweepMillis.get();
+        if (now >= due && nextSweepMillis.compareAndSet(due, now + longestWindowMillis())) {
+            evictIdle(now);
+        }
+    }
+
+    // Drops sensors with nothing left in their longest window (and so in any window), returns how many went
+    public int evictIdle(long nowMillis) {
+        int evicted = 0;
+        for (Long sensorId : windows.keySet()) {
+            boolean[] removed = new boolean[1];
+            windows.computeIfPresent(sensorId, (id, sensorWindows) -> {
+                removed[0] = sensorWindows[sensorWindows.length - 1].size(nowMillis) == 0;
+                return removed[0] ? null : sensorWindows;
+            });
+            if (removed[0]) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    // Number of sensors with windows held
+    public int sensorCount() {
+        return windows.size();
+    }
+
+    // Checks the requested window is one that is being maintained
+    // Defaults to the shortest window if none given
+    public long resolveWindow(Long requestedSeconds) {
+        if (requestedSeconds == null) {
+            return windowSeconds[0];
+        }
+        if (indexOf(requestedSeconds) < 0) {
+            throw new SensorExceptions.MetricCalculationException(
+                    "No live window of " + requestedSeconds + " seconds, available windows : " + Arrays.toString(windowSeconds));
+        }
+        return requestedSeconds;
+    }
+
+    // Returns the statistic for a sensor's metric, null if the sensor has nothing in the window
+    public Double calculate(Long sensorId, long windowLengthSeconds, int metric, String statistic, long nowMillis) {
+        int index = indexOf(windowLengthSeconds);
+        if (index < 0) {
+            throw new SensorExceptions.MetricCalculationException("No live window of " + windowLengthSeconds + " seconds");
+        }
+
+        SlidingWindow[] sensorWindows = windows.get(sensorId);
+        if (sensorWindows == null) {
+            // still validate the statistic so bad input is reported the same way
+            SlidingWindow.validateStatistic(statistic);
+            return null;
+        }
+        return sensorWindows[index].calculate(metric, statistic, nowMillis);
+    }
+
+    // Returns statistics for a list of sensors over a live window (e.g. last 5 minutes)
+    // Window defaults to the shortest configured window
+    public List<SensorAggregationResponseDTO> liveMetrics(
+            List<Long> sensorIds,
+            boolean temperature,
+            boolean humidity,
+            boolean wind,
+            Long windowSeconds,
+            String statistic) {
+
+        long window = resolveWindow(windowSeconds);
+        long nowMillis = System.currentTimeMillis();
+        LocalDateTime endDate = LocalDateTime.now();
+        LocalDateTime startDate = endDate.minusSeconds(window);
+
+        List<SensorAggregationResponseDTO> results = new ArrayList<>();
+
+        for (Long sensorId : sensorIds) {
+            Double temperatureMetric = temperature ? liveMetric(sensorId, window, SlidingWindow.TEMPERATURE, statistic, nowMillis) : null;
+            Double humidityMetric = humidity ? liveMetric(sensorId, window, SlidingWindow.HUMIDITY, statistic, nowMillis) : null;
+            Double windSpeedMetric = wind ? liveMetric(sensorId, window, SlidingWindow.WIND, statistic, nowMillis) : null;
+
+            SensorAggregationResponseDTO response = new SensorAggregationResponseDTO(
+                    sensorId,
+                    statistic,
+                    temperatureMetric != null ? temperatureMetric : 0.0,
+                    windSpeedMetric != null ? windSpeedMetric : 0.0,
+                    humidityMetric != null ? humidityMetric : 0.0,
+                    startDate,
+                    endDate
+            );
+
+            // Then nulling metrics if not requested
+            if (!temperature) response.setTemperatureMetric(null);
+            if (!humidity) response.setHumidityMetric(null);
+            if (!wind) response.setWindSpeedMetric(null);
+
+            results.add(response);
+        }
+
+        return results;
+    }
+
+    // Helper function to read one metric from the live windows
+    private Double liveMetric(Long sensorId, long window, int metric, String statistic, long nowMillis) {
+        Double value = calculate(sensorId, window, metric, statistic, nowMillis);
+
+        if (value == null) {
+            throw new SensorExceptions.SensorNotFoundException(
+                    "No readings found for sensorId : " + sensorId + " in the last " + window + " seconds");
+        }
+        return value;
+    }
+
+    // Readings without a timestamp are treated as arriving now
+    static long toEpochMillis(LocalDateTime timestamp) {
+        if (timestamp == null) {
+            return System.currentTimeMillis();
+        }
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private int indexOf(long seconds) {
+        return Arrays.binarySearch(windowSeconds, seconds);
+    }
+
+    private long longestWindowMillis() {
+        return windowSeconds[windowSeconds.length - 1] * 1000;
+    }
+
+    private SlidingWindow[] newWindows() {
+        SlidingWindow[] sensorWindows = new SlidingWindow[windowSeconds.length];
+        for (int i = 0; i < windowSeconds.length; i++) {
+            sensorWindows[i] = new SlidingWindow(windowSeconds[i] * 1000);
+        }
+        return sensorWindows;
+    }
+}
@@ -0,0 +1,83 @@
+package com.weather.sensor_service.Services;
+
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Exceptions.SensorExceptions;
+
+// Running count / sum / min / max of each metric so a statistic can be worked out without holding every reading
+// Two accumulators can be merged, so parts of a range can be summed separately and combined after
+public class MetricAccumulator {
+
+    // Metric positions, same as SlidingWindow
+    private static final int METRICS = 3;
+
+    private final long[] counts = new long[METRICS];
+    private final double[] sums = new double[METRICS];
+    private final double[] sumsOfSquares = new double[METRICS];
+    private final double[] mins = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+    private final double[] maxes = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+    // Adds one reading, null metrics are skipped like the stream version in SensorService
+    public MetricAccumulator add(SensorReading reading) {
+        add(SlidingWindow.TEMPERATURE, reading.getTemperature());
+        add(SlidingWindow.HUMIDITY, reading.getHumidity());
+        add(SlidingWindow.WIND, reading.getWindSpeed());
+        return this;
+    }
+
+    public MetricAccumulator add(int metric, Double value) {
+        if (value == null) {
+            return this;
+        }
+        counts[metric]++;
+        sums[metric] += value;
+        sumsOfSquares[metric] += value * value;
+        mins[metric] = Math.min(mins[metric], value);
+        maxes[metric] = Math.max(maxes[metric], value);
+        return this;
+    }
+
+    // Folds another accumulator into this one
+    public MetricAccumulator merge(MetricAccumulator other) {
+        for (int metric = 0; metric < METRICS; metric++) {
+            counts[metric] += other.counts[metric];
+            sums[metric] += other.sums[metric];
+            sumsOfSquares[metric] += other.sumsOfSquares[metric];
+            mins[metric] = Math.min(mins[metric], other.mins[metric]);
+            maxes[metric] = Math.max(maxes[metric], other.maxes[metric]);
+        }
+        return this;
+    }
+
+    // Number of values seen for a metric
+    public long count(int metric) {
+        return counts[metric];
+    }
+
+    // Sample variance of a metric, 0 with fewer than 2 values
+    public double variance(int metric) {
+        long n = counts[metric];
+        if (n < 2) {
+            return 0.0;
+        }
+        double mean = sums[metric] / n;
+        return Math.max(0.0, (sumsOfSquares[metric] - n * mean * mean) / (n - 1));
+    }
+
+    // Returns the statistic for a metric, throws if there is nothing to calculate
+    public double statistic(int metric, String statistic) {
+        String stat = statistic.toLowerCase();
+        if (!stat.equals("min") && !stat.equals("max") && !stat.equals("sum") && !stat.equals("avg")) {
+            throw new SensorExceptions.MetricCalculationException("Invalid statistic   : " + statistic);
+        }
+        if (counts[metric] == 0) {
+            throw new SensorExceptions.MetricCalculationException("Cannot calculate " + statistic + " when its empty");
+        }
+
+        return switch (stat) {
+            case "min" -> mins[metric];
+            case "max" -> maxes[metric];
+            case "sum" -> sums[metric];
+            default -> sums[metric] / counts[metric];
+        };
+    }
+}
@@ -0,0 +1,324 @@
+package com.weather.sensor_service.Services;
+
+import com.weather.sensor_service.DTO.SensorAggregationResponseDTO;
+import com.weather.sensor_service.DTO.SensorExtentDTO;
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Entity.SensorReadingRow;
+import com.weather.sensor_service.Exceptions.SensorExceptions;
+import com.weather.sensor_service.Repository.ReactiveSensorReadingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// SensorService for the reactive profile
+// Same checks and SensorExceptions, but nothing blocks : readings are streamed from R2DBC as they arrive
+// and statistics are folded into a MetricAccumulator instead of collecting every reading first
+@Service
+@Profile("reactive")
+public class ReactiveSensorService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveSensorService.class);
+
+    // Non-blocking repository for reads
+    private final ReactiveSensorReadingRepository repository;
+
+    // Inserts rows with an id already set (repository.save() would treat them as updates)
+    private final R2dbcEntityTemplate template;
+
+    // Live sliding windows updated on every save
+    private final LiveWindowAggregator liveAggregator;
+
+    // Alert rules checked on every save
+    private final AlertEngine alertEngine;
+
+    // Returns the next value of sensor_readings_seq (syntax differs between databases)
+    private final String nextIdSql;
+
+    // Ids are taken from the sequence in the same blocks Hibernate uses so the servlet and reactive modes can share a database
+    // (the default layout only, SensorReadingRow maps TIMESTAMP / DOUBLE columns and can't read the compact one)
+    private final IdBlock ids = new IdBlock();
+
+    // First / last reading of every sensor, rejects queries which can't find anything before they reach the database
+    private final SensorCatalog catalog;
+
+    // Spots retried keyed readings without a query per insert
+    private final ReadingDeduplicator deduplicator;
+
+    public ReactiveSensorService(ReactiveSensorReadingRepository repository,
+                                 R2dbcEntityTemplate template,
+                                 LiveWindowAggregator liveAggregator,
+                                 AlertEngine alertEngine,
+                                 SensorCatalog catalog,
+                                 ReadingDeduplicator deduplicator,
+                                 @Value("${sensor.reactive.next-id-sql:select nextval('sensor_readings_seq')}") String nextIdSql,
+                                 Environment environment) {
+        // The compact layout (BIGINT timestamps, REAL metrics) is only mapped for JPA, fail at startup rather than on the first row
+        if (environment.acceptsProfiles(Profiles.of("compact"))) {
+            throw new IllegalStateException("The compact and reactive profiles can't be used together");
+        }
+        this.repository = repository;
+        this.template = template;
+        this.liveAggregator = liveAggregator;
+        this.alertEngine = alertEngine;
+        this.nextIdSql = nextIdSql;
+        this.catalog = catalog;
+        this.deduplicator = deduplicator;
+    }
+
+    // Loads the sensor catalog once the app has started
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCatalog() {
+        template.getDatabaseClient()
+                .sql("select sensor_id, min(timestamp) as first_timestamp, max(timestamp) as last_timestamp, count(*) as reading_count "
+                        + "from sensor_readings group by sensor_id")
+                .map(row -> new SensorExtentDTO(
+                        row.get("sensor_id", Long.class),
+                        row.get("first_timestamp", LocalDateTime.class),
+                        row.get("last_timestamp", LocalDateTime.class),
+                        row.get("reading_count", Long.class)))
+                .all()
+                .collectList()
+                .doOnNext(catalog::load)
+                .subscribe(
+                        extents -> log.info("Sensor catalog loaded with {} sensors", extents.size()),
+                        e -> log.warn("Sensor catalog not loaded : {}", e.getMessage()));
+    }
+
+
+    // Saves a sensor reading when object hits endpoint
+    // A retry of a keyed reading (same sensorId and deviceSequence) gets the stored copy back instead of a second row
+    public Mono<SensorReading> saveReading(SensorReading reading) {
+        return Mono.defer(() -> {
+            // keep the integrity of the object
+            String error = SensorValidation.validationError(reading);
+            if (error != null) {
+                return Mono.error(new SensorExceptions.SensorSaveException(error));
+            }
+
+            // only keys the dedup filter may have seen before cost a lookup
+            Mono<SensorReading> duplicate = Mono.empty();
+            if (reading.getDeviceSequence() != null && deduplicator.seenBefore(reading.getSensorId(), reading.getDeviceSequence())) {
+                duplicate = findByReadingKey(reading)
+                        .doOnNext(existing -> deduplicator.countDuplicate("filter"))
+                        .switchIfEmpty(Mono.fromRunnable(deduplicator::countFalsePositive))
+                        // the insert and its unique constraint decide instead
+                        .onErrorResume(e -> Mono.empty());
+            }
+
+            return duplicate.switchIfEmpty(Mono.defer(() -> insert(reading)));
+        });
+    }
+
+    private Mono<SensorReading> insert(SensorReading reading) {
+        // widened before the insert so a committed reading is never rejected by the catalog
+        catalog.record(reading);
+        return nextId()
+                .flatMap(id -> template.insert(SensorReadingRow.from(reading, id)))
+                .map(SensorReadingRow::toReading)
+                // Only counted once it is in the database
+                .doOnNext(saved -> {
+                    liveAggregator.record(saved);
+                    alertEngine.evaluate(saved);
+                })
+                // the unique constraint has the final say on keyed readings the filter missed
+                .onErrorResume(e -> e instanceof DataIntegrityViolationException && reading.getDeviceSequence() != null,
+                        e -> findByReadingKey(reading)
+                                .doOnNext(existing -> deduplicator.countDuplicate("constraint"))
+                                .switchIfEmpty(Mono.error(e)))
+                .onErrorMap(e -> !(e instanceof SensorExceptions.SensorSaveException),
+                        e -> new SensorExceptions.SensorSaveException(
+                                "Cant save sensor reading for sensorId: " + reading.getSensorId() + " Reason : " + e.getMessage()));
+    }
+
+    private Mono<SensorReading> findByReadingKey(SensorReading reading) {
+        return repository.findBySensorIdAndDeviceSequence(reading.getSensorId(), reading.getDeviceSequence())
+                .map(SensorReadingRow::toReading);
+    }
+
+
+    // Returns all records in database
+    public Flux<SensorReading> getAllReadings() {
+        return Flux.defer(() -> {
+            catalog.requireAnyReadings();
+
+            return repository.findAll()
+                    .map(SensorReadingRow::toReading)
+                    // let user know that none exists
+                    .switchIfEmpty(Flux.error(() -> new SensorExceptions.SensorNotFoundException("No sensor readings in database")));
+        });
+    }
+
+
+    // Returns readings between a time period for a specific sensorId
+    // Readings are emitted one at a time so a long range starts arriving straight away
+    public Flux<SensorReading> getSpecificSensorMetricsBetweenTimePeriod(
+            Long sensorId, boolean temperature, boolean humidity, boolean wind,
+            LocalDateTime startDate, LocalDateTime endDate) {
+
+        return Flux.defer(() -> {
+            LocalDateTime[] validatedDates = SensorValidation.validateAndNormaliseDates(startDate, endDate);
+            catalog.requireReadings(sensorId, validatedDates[0], validatedDates[1]);
+
+            validatedDates = SensorValidation.validateAndNormaliseDates(startDate, endDate, catalog.extentOf(List.of(sensorId)));
+            LocalDateTime from = validatedDates[0];
+            LocalDateTime to = validatedDates[1];
+
+            return repository.findBySensorIdAndTimestampBetween(sensorId, from, to)
+                    .map(row -> new SensorReading(
+                            row.getId(),
+                            row.getSensorId(),
+
+                            // if its set true get the double else set as null
+                            temperature ? row.getTemperature() : null,
+                            humidity ? row.getHumidity() : null,
+                            wind ? row.getWindSpeed() : null,
+                            row.getTimestamp()
+                    ))
+                    .switchIfEmpty(Flux.error(() -> new SensorExceptions.SensorNotFoundException(
+                            "No readings found in databases for sensorId : " + sensorId + " between " + from + " and " + to)));
+        });
+    }
+
+
+    // Retrieves multiple sensor readings between dates
+    // Sensors are queried concurrently but emitted in the order they were asked for
+    public Flux<SensorAggregationResponseDTO> getMetricsAndTimePeriodWithConstraintAndStatistic(
+            List<Long> sensorIds,
+            boolean temperature,
+            boolean humidity,
+            boolean wind,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            String statistic) {
+
+        return Flux.defer(() -> {
+            // check date integrity
+            LocalDateTime[] validatedDates = SensorValidation.validateAndNormaliseDates(startDate, endDate);
+            for (Long sensorId : sensorIds) {
+                catalog.requireReadings(sensorId, validatedDates[0], validatedDates[1]);
+            }
+
+            // open ended ranges are narrowed to the sensors' readings
+            validatedDates = SensorValidation.validateAndNormaliseDates(startDate, endDate, catalog.extentOf(sensorIds));
+            LocalDateTime from = validatedDates[0];
+            LocalDateTime to = validatedDates[1];
+
+            return Flux.fromIterable(sensorIds)
+                    .flatMapSequential(sensorId -> aggregateSensor(sensorId, temperature, humidity, wind, from, to, statistic));
+        });
+    }
+
+    // Folds one sensor's readings into an accumulator and builds the response from it
+    private Mono<SensorAggregationResponseDTO> aggregateSensor(
+            Long sensorId,
+            boolean temperature,
+            boolean humidity,
+            boolean wind,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            String statistic) {
+
+        return repository.findBySensorIdAndTimestampBetween(sensorId, startDate, endDate)
+                .switchIfEmpty(Flux.error(() -> new SensorExceptions.SensorNotFoundException(
+                        "No readings found in databases for sensorId : " + sensorId + " between " + startDate + " and " + endDate)))
+                .reduceWith(MetricAccumulator::new, (accumulator, row) -> accumulator.add(row.toReading()))
+                .map(accumulator -> {
+                    // Fields to hold outputs
+                    Double temperatureMetric = null;
+                    Double humidityMetric = null;
+                    Double windSpeedMetric = null;
+
+                    try {
+                        if (temperature) temperatureMetric = accumulator.statistic(SlidingWindow.TEMPERATURE, statistic);
+                        if (humidity) humidityMetric = accumulator.statistic(SlidingWindow.HUMIDITY, statistic);
+                        if (wind) windSpeedMetric = accumulator.statistic(SlidingWindow.WIND, statistic);
+                    } catch (SensorExceptions.MetricCalculationException e) {
+                        throw new SensorExceptions.MetricCalculationException(
+                                "Failed to calculate " + statistic + " metrics for sensorId " + sensorId);
+                    }
+
+                    SensorAggregationResponseDTO response = new SensorAggregationResponseDTO(
+                            sensorId,
+                            statistic,
+                            temperatureMetric != null ? temperatureMetric : 0.0,
+                            windSpeedMetric != null ? windSpeedMetric : 0.0,
+                            humidityMetric != null ? humidityMetric : 0.0,
+                            startDate,
+                            endDate
+                    );
+
+                    // Then nulling metrics if not requested
+                    if (!temperature) response.setTemperatureMetric(null);
+                    if (!humidity) response.setHumidityMetric(null);
+                    if (!wind) response.setWindSpeedMetric(null);
+
+                    return response;
+                });
+    }
+
+
+    // Returns statistics for a list of sensors over a live window, answered from memory
+    public Flux<SensorAggregationResponseDTO> getLiveMetricsWithStatistic(
+            List<Long> sensorIds,
+            boolean temperature,
+            boolean humidity,
+            boolean wind,
+            Long windowSeconds,
+            String statistic) {
+
+        return Flux.defer(() -> Flux.fromIterable(
+                liveAggregator.liveMetrics(sensorIds, temperature, humidity, wind, windowSeconds, statistic)));
+    }
+
+
+    // Next free id, only goes to the database once every ID_ALLOCATION_SIZE readings
+    private Mono<Long> nextId() {
+        Long id = ids.take();
+        if (id != null) {
+            return Mono.just(id);
+        }
+        return template.getDatabaseClient().sql(nextIdSql)
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .map(ids::refill);
+    }
+
+    // Block of ids from one sequence value, hi is the last id of the block (same as Hibernate's pooled optimizer)
+    private static final class IdBlock {
+        private long next = 1;
+        private long last = 0;
+
+        synchronized Long take() {
+            return next <= last ? next++ : null;
+        }
+
+        // Returns the first id of the new block and keeps the rest
+        // Two callers refilling at once each keep a valid block, the loser's leftovers are just skipped
+        synchronized long refill(long hi) {
+            long first = firstOfBlock(hi);
+            next = first + 1;
+            last = hi;
+            return first;
+        }
+    }
+
+    // First id of the block ending at hi
+    // A sequence's first value has nothing below it (start with 1 increment by 50 would give -48..1), so it is a block
+    // of its own and the next value (51) covers 2..51. Hibernate's pooled optimizer also starts at the first value
+    public static long firstOfBlock(long hi) {
+        return hi == SensorReading.ID_INITIAL_VALUE ? hi : hi - SensorReading.ID_ALLOCATION_SIZE + 1;
+    }
+}
@@ -0,0 +1,162 @@
+package com.weather.sensor_service.Services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Remembers the reading keys (sensorId + deviceSequence) saved recently so a gateway retry is spotted without a query per insert
+// Sliding Bloom filter : one filter per time window, keys go into the newest and a lookup checks every live one,
+// the oldest is cleared and reused when a new window starts. Memory is fixed at windows x bits per window
+// "Never seen" is certain so the reading is just inserted, "maybe seen" is confirmed against the database,
+// and the unique constraint on (sensor_id, device_sequence) has the final say for anything older or racing
+@Service
+public class ReadingDeduplicator {
+
+    // One window of keys, number is the window it holds (time / window length)
+    private static final class Window {
+        private final AtomicLongArray bits;
+        private volatile long number = Long.MIN_VALUE;
+
+        Window(int words) {
+            this.bits = new AtomicLongArray(words);
+        }
+    }
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final Window[] windows;
+
+    // Bits per window and bits set per key
+    private final long bitCount;
+    private final int hashCount;
+
+    private final MeterRegistry registry;
+    private final Counter maybeSeen;
+    private final Counter falsePositives;
+
+    public ReadingDeduplicator(MeterRegistry registry,
+                               @Value("${sensor.ingest.dedup.enabled:true}") boolean enabled,
+                               @Value("${sensor.ingest.dedup.window-seconds:600}") long windowSeconds,
+                               @Value("${sensor.ingest.dedup.windows:6}") int windowCount,
+                               @Value("${sensor.ingest.dedup.expected-keys-per-window:1000000}") long expectedKeys,
+                               @Value("${sensor.ingest.dedup.false-positive-rate:0.01}") double falsePositiveRate) {
+        if (windowSeconds <= 0 || windowCount <= 0 || expectedKeys <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("sensor.ingest.dedup.* values must be positive (false-positive-rate below 1)");
+        }
+        this.registry = registry;
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+
+        // A lookup checks every window so each one gets a share of the false positive rate
+        double perWindowRate = falsePositiveRate / windowCount;
+        long bits = (long) Math.ceil(-expectedKeys * Math.log(perWindowRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) / 64);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedKeys * Math.log(2)));
+
+        this.windows = new Window[enabled ? windowCount : 0];
+        for (int i = 0; i < windows.length; i++) {
+            windows[i] = new Window(words);
+        }
+
+        this.maybeSeen = Counter.builder("sensor.ingest.dedup.maybe.seen")
+                .description("Keyed readings the filter may have seen, each costs a lookup")
+                .register(registry);
+        this.falsePositives = Counter.builder("sensor.ingest.dedup.false.positives")
+                .description("Keyed readings the filter may have seen which turned out to be new")
+                .register(registry);
+    }
+
+    // Adds the key, returns true if it may have been added before (a retry, or a false positive)
+    // false means it definitely wasn't added within the live windows
+    // With the filter off every keyed reading is inserted and the unique constraint catches the duplicates
+    public boolean seenBefore(Long sensorId, Long deviceSequence) {
+        if (!enabled) {
+            return false;
+        }
+
+        long h1 = mix(sensorId * 0x9E3779B97F4A7C15L + deviceSequence);
+        long h2 = mix(h1 ^ deviceSequence ^ 0xC2B2AE3D27D4EB4FL) | 1;
+
+        long newest = System.nanoTime() / windowNanos;
+        boolean seen = false;
+        for (Window window : windows) {
+            long number = window.number;
+            if (number > newest - windows.length && number <= newest && contains(window, h1, h2)) {
+                seen = true;
+                break;
+            }
+        }
+
+        // a retry is added again so it stays in the newest window
+        add(current(newest), h1, h2);
+        if (seen) {
+            maybeSeen.increment();
+        }
+        return seen;
+    }
+
+    // detectedBy : filter (confirmed by a lookup), constraint (the unique constraint caught it) or batch (twice in one batch)
+    public void countDuplicate(String detectedBy) {
+        Counter.builder("sensor.ingest.duplicates")
+                .description("Readings not stored again because their key was already saved")
+                .tag("detected", detectedBy)
+                .register(registry)
+                .increment();
+    }
+
+    public void countFalsePositive() {
+        falsePositives.increment();
+    }
+
+    // The window for number, cleared first if it still holds an expired one
+    private Window current(long number) {
+        Window window = windows[(int) Math.floorMod(number, (long) windows.length)];
+        if (window.number != number) {
+            synchronized (window) {
+                if (window.number != number) {
+                    for (int i = 0; i < window.bits.length(); i++) {
+                        window.bits.set(i, 0);
+                    }
+                    window.number = number;
+                }
+            }
+        }
+        return window;
+    }
+
+    private boolean contains(Window window, long h1, long h2) {
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((window.bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(Window window, long h1, long h2) {
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((window.bits.get(word) & mask) == 0) {
+                window.bits.getAndAccumulate(word, mask, (current, set) -> current | set);
+            }
+        }
+    }
+
+    // MurmurHash3 finalizer
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB93FE53E9A63L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,233 @@
+package com.weather.sensor_service.Services;
+
+import com.weather.sensor_service.Entity.SensorReading;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Encoded response bodies of read queries over ranges that have finished (endDate settle-seconds or more in the past)
+// Such a range only changes if a reading is written with an older timestamp (binary ingest carries device timestamps),
+// so entries live until one of their sensors gets one of those, their group changes, they are pushed out (least recently used)
+// or they are ttl-seconds old
+// Only this instance's writes invalidate entries, the ttl bounds how long a late reading saved by another instance goes unseen
+// A hit is served without a query or serialization and a matching If-None-Match is a 304 with no body
+@Service
+@Profile("!reactive")
+public class ResponseCache {
+
+    // One cached body, sensorIds are every sensor the answer was worked out from
+    public record Entry(String etag, String contentType, byte[] body, Set<Long> sensorIds, boolean group) {
+    }
+
+    // An entry and when it stops being served (System.nanoTime())
+    private record Stored(Entry entry, long expiresAtNanos) {
+    }
+
+    // Invalidation markers kept before they are all swapped for one floor generation
+    private static final int MAX_INVALIDATED_SENSORS = 10_000;
+
+    private final boolean enabled;
+
+    // Readings this old or older are treated as final
+    private final long settleSeconds;
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+
+    // Longest an entry is served for
+    private final long ttlNanos;
+
+    // key -> entry in least recently used first order
+    private final LinkedHashMap<String, Stored> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long bytes;
+
+    // sensorId -> keys of the entries worked out from it, and the keys of group answers
+    // so an invalidation only touches its own entries instead of scanning all of them
+    private final Map<Long, Set<String>> keysBySensor = new HashMap<>();
+    private final Set<String> groupKeys = new HashSet<>();
+
+    // Bumped on every invalidation, a response worked out before one touching it isn't stored after it
+    private long generation;
+
+    // sensorId -> generation of its latest late reading, and the generation of the latest group change
+    // Past MAX_INVALIDATED_SENSORS the markers are dropped and invalidatedFloor raised instead :
+    // a response worked out before the floor isn't stored at all, so it costs a few misses rather than memory
+    private final Map<Long, Long> sensorInvalidated = new HashMap<>();
+    private long invalidatedFloor;
+    private long groupsInvalidated;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter notModified;
+    private final Counter invalidations;
+
+    public ResponseCache(MeterRegistry meterRegistry,
+                         @Value("${sensor.response-cache.enabled:true}") boolean enabled,
+                         @Value("${sensor.response-cache.settle-seconds:60}") long settleSeconds,
+                         @Value("${sensor.response-cache.max-megabytes:64}") long maxMegabytes,
+                         @Value("${sensor.response-cache.max-entry-kilobytes:1024}") long maxEntryKilobytes,
+                         @Value("${sensor.response-cache.ttl-seconds:300}") long ttlSeconds) {
+        if (settleSeconds < 0 || maxMegabytes <= 0 || maxEntryKilobytes <= 0 || ttlSeconds <= 0) {
+            throw new IllegalArgumentException("sensor.response-cache.* sizes must be positive");
+        }
+        this.enabled = enabled;
+        this.settleSeconds = settleSeconds;
+        this.maxBytes = maxMegabytes * 1024 * 1024;
+        this.maxEntryBytes = maxEntryKilobytes * 1024;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+        this.notModified = counter(meterRegistry, "not-modified");
+        this.invalidations = Counter.builder("sensor.response.cache.invalidations")
+                .description("Cached responses dropped because a late reading or a group change touched them")
+                .register(meterRegistry);
+        Gauge.builder("sensor.response.cache.bytes", this, ResponseCache::size)
+                .description("Bytes of encoded responses held")
+                .register(meterRegistry);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("sensor.response.cache")
+                .description("Cacheable read requests by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // True if nothing can be added to a range ending at endDate any more, barring late readings
+    public boolean isSettled(LocalDateTime endDate) {
+        return endDate != null && endDate.isBefore(LocalDateTime.now().minusSeconds(settleSeconds));
+    }
+
+    public synchronized Entry get(String key) {
+        Stored stored = entries.get(key);
+        if (stored != null && System.nanoTime() - stored.expiresAtNanos() >= 0) {
+            remove(key);
+            stored = null;
+        }
+        (stored != null ? hits : misses).increment();
+        return stored != null ? stored.entry() : null;
+    }
+
+    public synchronized long generation() {
+        return generation;
+    }
+
+    // Stores an entry unless one of its sensors (or groups) was invalidated since generation was read
+    public synchronized void put(String key, Entry entry, long generation) {
+        if (entry.body().length > maxEntryBytes || generation < invalidatedFloor || (entry.group() && groupsInvalidated > generation)) {
+            return;
+        }
+        for (Long sensorId : entry.sensorIds()) {
+            if (sensorInvalidated.getOrDefault(sensorId, 0L) > generation) {
+                return;
+            }
+        }
+        remove(key);
+        entries.put(key, new Stored(entry, System.nanoTime() + ttlNanos));
+        bytes += entry.body().length;
+        for (Long sensorId : entry.sensorIds()) {
+            keysBySensor.computeIfAbsent(sensorId, id -> new HashSet<>()).add(key);
+        }
+        if (entry.group()) {
+            groupKeys.add(key);
+        }
+
+        while (bytes > maxBytes && !entries.isEmpty()) {
+            remove(entries.keySet().iterator().next());
+        }
+    }
+
+    // Called once a reading has been saved, only readings older than settle-seconds can change a cached range
+    public void recordWrite(SensorReading reading) {
+        if (enabled && reading.getTimestamp() != null && isSettled(reading.getTimestamp())) {
+            Long sensorId = reading.getSensorId();
+            synchronized (this) {
+                generation++;
+                if (sensorInvalidated.size() >= MAX_INVALIDATED_SENSORS) {
+                    sensorInvalidated.clear();
+                    invalidatedFloor = generation;
+                } else {
+                    sensorInvalidated.put(sensorId, generation);
+                }
+                invalidate(keysBySensor.get(sensorId));
+            }
+        }
+    }
+
+    // Called when a group is created, replaced or removed
+    public void invalidateGroups() {
+        if (enabled) {
+            synchronized (this) {
+                generation++;
+                groupsInvalidated = generation;
+                invalidate(groupKeys);
+            }
+        }
+    }
+
+    public void countNotModified() {
+        notModified.increment();
+    }
+
+    // Quoted hex MD5 of the body, like Spring's ShallowEtagHeaderFilter
+    public static String etagOf(byte[] body) {
+        return "\"0" + DigestUtils.md5DigestAsHex(body) + "\"";
+    }
+
+    // Drops the entries under keys (copied first, removing them changes the index they came from)
+    private void invalidate(Set<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return;
+        }
+        for (String key : List.copyOf(keys)) {
+            if (remove(key)) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    // Removes an entry and its index entries, false if there was none
+    private boolean remove(String key) {
+        Stored stored = entries.remove(key);
+        if (stored == null) {
+            return false;
+        }
+        Entry entry = stored.entry();
+        bytes -= entry.body().length;
+        for (Long sensorId : entry.sensorIds()) {
+            Set<String> keys = keysBySensor.get(sensorId);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysBySensor.remove(sensorId);
+                }
+            }
+        }
+        if (entry.group()) {
+            groupKeys.remove(key);
+        }
+        return true;
+    }
+
+    private synchronized long size() {
+        return bytes;
+    }
+}
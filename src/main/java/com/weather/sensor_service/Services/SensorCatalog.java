@@ -0,0 +1,145 @@
+package com.weather.sensor_service.Services;
+
+import com.weather.sensor_service.DTO.SensorExtentDTO;
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Exceptions.SensorExceptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Every sensor with its first / last reading time and reading count, kept in memory
+// Loaded from the database at startup and updated on every save
+// By default it only gives hints (chunk sizes) : other instances may be writing readings it never sees, so a sensor
+// it doesn't know or a range outside what it knows just means "go to the database"
+// Authoritative (sensor.catalog.authoritative=true, for a single instance which is the only writer to its database)
+// also rejects unknown sensors / ranges outside a sensor's readings and narrows open ranges without a query
+@Service
+public class SensorCatalog {
+
+    private final boolean enabled;
+
+    // This instance sees every write so a miss really means no readings
+    private final boolean authoritative;
+
+    // sensorId -> extent of its readings
+    private final ConcurrentHashMap<Long, SensorExtentDTO> extents = new ConcurrentHashMap<>();
+
+    // Nothing is rejected until the startup load has finished
+    private volatile boolean loaded;
+
+    // Queries answered without the database
+    private final Counter rejections;
+
+    public SensorCatalog(@Value("${sensor.catalog.enabled:true}") boolean enabled,
+                         @Value("${sensor.catalog.authoritative:false}") boolean authoritative,
+                         MeterRegistry registry) {
+        this.enabled = enabled;
+        this.authoritative = authoritative;
+        this.rejections = Counter.builder("sensor.catalog.rejections")
+                .description("Queries rejected by the sensor catalog without a database query")
+                .register(registry);
+        Gauge.builder("sensor.catalog.sensors", extents, ConcurrentHashMap::size)
+                .description("Sensors in the sensor catalog")
+                .register(registry);
+    }
+
+    // Adds the extents read from the database at startup
+    // Readings saved while the load query ran may be counted twice, first / last are still exact
+    public void load(List<SensorExtentDTO> loadedExtents) {
+        loadedExtents.forEach(extent -> extents.merge(extent.getSensorId(), extent, SensorCatalog::merge));
+        loaded = true;
+    }
+
+    // Called just before a reading is inserted, so a query can't be rejected for a reading that has been committed
+    // If the insert fails the extent is only wider than it should be, which costs a query that finds nothing
+    public void record(SensorReading reading) {
+        SensorExtentDTO single = new SensorExtentDTO(reading.getSensorId(), reading.getTimestamp(), reading.getTimestamp(), 1);
+        extents.merge(reading.getSensorId(), single, SensorCatalog::merge);
+    }
+
+    // True once the startup load has finished
+    public boolean isActive() {
+        return enabled && loaded;
+    }
+
+    // True once the catalog can be trusted to reject queries and narrow ranges
+    public boolean isAuthoritative() {
+        return authoritative && isActive();
+    }
+
+    // What this instance knows about a sensor, only a hint unless the catalog is authoritative
+    // null if it knows of no readings (or the catalog isn't active)
+    public SensorExtentDTO get(Long sensorId) {
+        return isActive() ? extents.get(sensorId) : null;
+    }
+
+    // Throws SensorNotFoundException when there are no readings at all (authoritative only)
+    public void requireAnyReadings() {
+        if (isAuthoritative() && extents.isEmpty()) {
+            rejections.increment();
+            throw new SensorExceptions.SensorNotFoundException("No sensor readings in database");
+        }
+    }
+
+    // Throws SensorNotFoundException when the sensor has no readings between from and to (authoritative only)
+    public void requireReadings(Long sensorId, LocalDateTime from, LocalDateTime to) {
+        if (!isAuthoritative()) {
+            return;
+        }
+
+        SensorExtentDTO extent = extents.get(sensorId);
+        boolean overlaps = extent != null && extent.getFirstTimestamp() != null
+                && !extent.getFirstTimestamp().isAfter(to) && !extent.getLastTimestamp().isBefore(from);
+
+        if (!overlaps) {
+            rejections.increment();
+            throw new SensorExceptions.SensorNotFoundException(
+                    "No readings found in databases for sensorId : " + sensorId + " between " + from + " and " + to);
+        }
+    }
+
+    // Earliest first and latest last reading over several sensors to narrow a query with
+    // null if any of them is unknown or the catalog isn't authoritative
+    public SensorExtentDTO extentOf(Collection<Long> sensorIds) {
+        if (!isAuthoritative() || sensorIds.isEmpty()) {
+            return null;
+        }
+
+        SensorExtentDTO combined = null;
+        for (Long sensorId : sensorIds) {
+            SensorExtentDTO extent = extents.get(sensorId);
+            if (extent == null || extent.getFirstTimestamp() == null) {
+                return null;
+            }
+            combined = combined == null ? extent : merge(combined, extent);
+        }
+        return combined;
+    }
+
+    private static SensorExtentDTO merge(SensorExtentDTO a, SensorExtentDTO b) {
+        return new SensorExtentDTO(
+                a.getSensorId(),
+                earliest(a.getFirstTimestamp(), b.getFirstTimestamp()),
+                latest(a.getLastTimestamp(), b.getLastTimestamp()),
+                a.getReadingCount() + b.getReadingCount());
+    }
+
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.isAfter(b) ? a : b;
+    }
+}
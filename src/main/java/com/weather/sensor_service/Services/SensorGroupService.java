@@ -0,0 +1,215 @@
+package com.weather.sensor_service.Services;
+
+import com.weather.sensor_service.Config.ShardRouter;
+import com.weather.sensor_service.DTO.SensorGroupDTO;
+import com.weather.sensor_service.Entity.SensorGroupDefinition;
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Exceptions.SensorExceptions;
+import com.weather.sensor_service.Repository.SensorGroupRepository;
+import com.weather.sensor_service.Repository.SensorReadingRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Named groups of sensors (e.g. a region) with rollups kept up to date on ingest
+// Creating a group fills its rollups from the database in the background, queries read the raw readings until that is done
+// Group definitions are stored in sensor_groups and loaded back at startup, the rollups themselves are rebuilt from the readings
+@Service
+@Profile("!reactive")
+public class SensorGroupService {
+
+    private static final Logger log = LoggerFactory.getLogger(SensorGroupService.class);
+
+    private final SensorReadingRepository repository;
+    private final ShardRouter shardRouter;
+
+    // Group definitions, so they survive a restart
+    private final SensorGroupRepository groupRepository;
+
+    // Cached group answers are dropped whenever a group changes
+    private final ResponseCache responseCache;
+
+    // Rollup bucket length in seconds (defaults to an hour)
+    private final long bucketSeconds;
+
+    // Readings read per query while filling a rollup
+    private final int backfillBatchSize;
+
+    // name -> rollup, in the order groups were created
+    private final Map<String, GroupRollup> groups = new LinkedHashMap<>();
+
+    // sensorId -> rollups of every group it is in
+    // Replaced as a whole whenever a group changes
+    private volatile Map<Long, List<GroupRollup>> bySensor = Map.of();
+
+    // Backfills run one at a time on their own thread so creating a group returns straight away
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sensor-group-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SensorGroupService(SensorReadingRepository repository, ShardRouter shardRouter, SensorGroupRepository groupRepository,
+                              ResponseCache responseCache,
+                              @Value("${sensor.groups.bucket-seconds:3600}") long bucketSeconds,
+                              @Value("${sensor.groups.backfill-batch-size:1000}") int backfillBatchSize) {
+        if (bucketSeconds <= 0 || backfillBatchSize <= 0) {
+            throw new IllegalArgumentException("sensor.groups.bucket-seconds and sensor.groups.backfill-batch-size must be positive");
+        }
+        this.repository = repository;
+        this.shardRouter = shardRouter;
+        this.groupRepository = groupRepository;
+        this.responseCache = responseCache;
+        this.bucketSeconds = bucketSeconds;
+        this.backfillBatchSize = backfillBatchSize;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    // Loads the stored group definitions once the app has started and rebuilds their rollups
+    // If they can't be read the service starts without groups, they can still be created again
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void loadGroups() {
+        List<SensorGroupDefinition> definitions;
+        try {
+            definitions = groupRepository.findAllByOrderByCreatedAtAsc();
+        } catch (Exception e) {
+            log.warn("Sensor groups not loaded : {}", e.getMessage());
+            return;
+        }
+        for (SensorGroupDefinition definition : definitions) {
+            define(definition.getName(), definition.getSensorIds());
+        }
+        log.info("Sensor groups loaded : {}", definitions.size());
+    }
+
+    // Creates a group, a group with the same name is replaced and its rollups rebuilt
+    public synchronized SensorGroupDTO putGroup(SensorGroupDTO group) {
+        if (group == null || group.getName() == null || group.getName().isBlank()) {
+            throw new SensorExceptions.SensorGroupException("Group needs a name");
+        }
+        if (group.getSensorIds() == null || group.getSensorIds().isEmpty()) {
+            throw new SensorExceptions.SensorGroupException("Group " + group.getName() + " needs at least one sensorId");
+        }
+        if (group.getSensorIds().contains(null)) {
+            throw new SensorExceptions.SensorGroupException("Group " + group.getName() + " has a null sensorId");
+        }
+
+        // a sensor listed twice would be counted twice
+        List<Long> sensorIds = new ArrayList<>(new LinkedHashSet<>(group.getSensorIds()));
+        groupRepository.save(new SensorGroupDefinition(group.getName(), sensorIds, LocalDateTime.now()));
+        return toDTO(define(group.getName(), sensorIds));
+    }
+
+    // Removes a group by name
+    public synchronized void removeGroup(String name) {
+        if (!groups.containsKey(name)) {
+            throw new SensorExceptions.SensorGroupNotFoundException("No sensor group named " + name);
+        }
+        groupRepository.deleteById(name);
+        groups.remove(name);
+        rebuildIndex();
+        responseCache.invalidateGroups();
+    }
+
+    // Returns every group
+    public synchronized List<SensorGroupDTO> getGroups() {
+        return groups.values().stream().map(SensorGroupService::toDTO).toList();
+    }
+
+    // Returns the rollup of a group, throws if there is no such group
+    public synchronized GroupRollup require(String name) {
+        GroupRollup rollup = groups.get(name);
+        if (rollup == null) {
+            throw new SensorExceptions.SensorGroupNotFoundException("No sensor group named " + name);
+        }
+        return rollup;
+    }
+
+    // Puts a (stored) group in memory and starts filling its rollups
+    private GroupRollup define(String name, List<Long> sensorIds) {
+        GroupRollup rollup = new GroupRollup(name, sensorIds, bucketSeconds, LocalDateTime.now());
+        groups.put(name, rollup);
+        rebuildIndex();
+        responseCache.invalidateGroups();
+
+        worker.execute(() -> backfill(rollup));
+        return rollup;
+    }
+
+    // Called once a reading has been saved
+    public void record(SensorReading reading) {
+        List<GroupRollup> rollups = bySensor.get(reading.getSensorId());
+        if (rollups != null) {
+            rollups.forEach(rollup -> rollup.record(reading));
+        }
+    }
+
+    // Reads every existing reading of the group's sensors into its rollup in id order
+    private void backfill(GroupRollup rollup) {
+        try {
+            for (Long sensorId : rollup.getSensorIds()) {
+                long afterId = 0;
+                while (true) {
+                    // stop early if the group was replaced or removed in the meantime
+                    if (!isCurrent(rollup)) {
+                        return;
+                    }
+
+                    long from = afterId;
+                    List<SensorReading> batch = shardRouter.onSensorShard(sensorId,
+                            () -> repository.findBySensorIdAndIdGreaterThanOrderByIdAsc(sensorId, from, PageRequest.of(0, backfillBatchSize)));
+                    batch.forEach(rollup::backfill);
+
+                    if (batch.size() < backfillBatchSize) {
+                        break;
+                    }
+                    afterId = batch.get(batch.size() - 1).getId();
+                }
+            }
+            rollup.markReady();
+            log.info("Sensor group {} ready with {} rollup buckets", rollup.getName(), rollup.size());
+        } catch (Exception e) {
+            // queries keep reading raw readings for this group
+            rollup.markFailed();
+            log.warn("Sensor group {} rollup failed : {}", rollup.getName(), e.getMessage());
+        }
+    }
+
+    private synchronized boolean isCurrent(GroupRollup rollup) {
+        return groups.get(rollup.getName()) == rollup;
+    }
+
+    private void rebuildIndex() {
+        Map<Long, List<GroupRollup>> index = new HashMap<>();
+        for (GroupRollup rollup : groups.values()) {
+            for (Long sensorId : rollup.getSensorIds()) {
+                index.computeIfAbsent(sensorId, id -> new ArrayList<>()).add(rollup);
+            }
+        }
+        bySensor = index;
+    }
+
+    private static SensorGroupDTO toDTO(GroupRollup rollup) {
+        return new SensorGroupDTO(rollup.getName(), rollup.getSensorIds(), rollup.getStatus());
+    }
+}
@@ -1,56 +1,288 @@
 package com.weather.sensor_service.Services;
 
+import com.weather.sensor_service.Config.ReplicaRouting;
+import com.weather.sensor_service.Config.ShardRouter;
 import com.weather.sensor_service.DTO.SensorAggregationResponseDTO;
+import com.weather.sensor_service.DTO.SensorExtentDTO;
 import com.weather.sensor_service.Entity.SensorReading;
 import com.weather.sensor_service.Exceptions.SensorExceptions;
+import com.weather.sensor_service.Profiling.SensorProfiling;
 import com.weather.sensor_service.Repository.SensorReadingRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.context.annotation.Profile;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 @Service
+@Profile("!reactive")
 public class SensorService {
 
+    private static final Logger log = LoggerFactory.getLogger(SensorService.class);
+
     // Repository handles db functionality
     private final SensorReadingRepository repository;
 
-    public SensorService(SensorReadingRepository repository) {
+    // Live sliding windows updated on every save
+    private final LiveWindowAggregator liveAggregator;
+
+    // Alert rules checked on every save
+    private final AlertEngine alertEngine;
+
+    // Read-your-writes tracking for replica reads
+    private final ReplicaRouting replicaRouting;
+
+    // Picks the shard a sensor's readings live on
+    private final ShardRouter shardRouter;
+
+    // Runs multi-sensor queries on every shard in parallel
+    private final ShardScatterGather scatterGather;
+
+    // Identical aggregation queries running at the same time share one scan (sensor.aggregation.* metrics)
+    private final SingleFlight<AggregationKey, ShardedResult<SensorAggregationResponseDTO>> aggregations;
+
+    // Read-only transaction for the query that actually runs, callers waiting on it don't hold a connection
+    private final TransactionTemplate readOnlyTransaction;
+
+    // First / last reading of every sensor, rejects queries which can't find anything before they reach the database
+    private final SensorCatalog catalog;
+
+    // Sampled AVG / SUM for the approximate aggregation option
+    private final ApproximateAggregator approximator;
+
+    // Named sensor groups with rollups updated on every save
+    private final SensorGroupService groupService;
+
+    // Splits long ranges into chunks read in parallel
+    private final ChunkedQueryExecutor chunkedQueries;
+
+    // Cached responses of finished ranges, dropped when a late reading lands in them
+    private final ResponseCache responseCache;
+
+    // Spots retried keyed readings without a query per insert
+    private final ReadingDeduplicator deduplicator;
+
+    // Duplicate checks read the primary so a copy saved a moment ago is always found
+    private final TransactionTemplate primaryTransaction;
+
+    // Everything which changes the answer of an aggregation query
+    // endDate stays null for "until now" so open ended requests arriving together still match
+    private record AggregationKey(List<Long> sensorIds, boolean temperature, boolean humidity, boolean wind,
+                                  String statistic, LocalDateTime startDate, LocalDateTime endDate, boolean primaryForced) {
+    }
+
+    public SensorService(SensorReadingRepository repository, LiveWindowAggregator liveAggregator, AlertEngine alertEngine,
+                         ReplicaRouting replicaRouting, ShardRouter shardRouter, ShardScatterGather scatterGather,
+                         MeterRegistry meterRegistry, PlatformTransactionManager transactionManager, SensorCatalog catalog,
+                         ApproximateAggregator approximator, SensorGroupService groupService,
+                         ChunkedQueryExecutor chunkedQueries, ResponseCache responseCache, ReadingDeduplicator deduplicator) {
         this.repository = repository;
+        this.liveAggregator = liveAggregator;
+        this.alertEngine = alertEngine;
+        this.replicaRouting = replicaRouting;
+        this.shardRouter = shardRouter;
+        this.scatterGather = scatterGather;
+        this.aggregations = new SingleFlight<>(meterRegistry, "sensor.aggregation");
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.catalog = catalog;
+        this.approximator = approximator;
+        this.groupService = groupService;
+        this.chunkedQueries = chunkedQueries;
+        this.responseCache = responseCache;
+        this.deduplicator = deduplicator;
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
     }
 
+    // Loads the sensor catalog once the app has started (every shard when sharded)
+    // If a shard doesn't answer the catalog stays off and queries go to the database as before
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCatalog() {
+        ShardedResult<SensorExtentDTO> extents = scatterGather.scatterAll(repository::findSensorExtents);
+        if (extents.isPartial()) {
+            log.warn("Sensor catalog not loaded, shards {} did not answer", extents.failedShards());
+            return;
+        }
+        catalog.load(extents.results());
+        log.info("Sensor catalog loaded with {} sensors", extents.results().size());
+    }
+
+
+    // A saved reading, or the stored copy of a retry (created false)
+    private record Stored(SensorReading reading, boolean created) {
+    }
 
     // Saves a sensor reading when object hits endpoint
+    // A retry of a keyed reading (same sensorId and deviceSequence) gets the stored copy back instead of a second row
     public SensorReading saveReading(SensorReading reading) {
 
         // keep the integrity of the object
-        if (reading.getSensorId() == null) {
-            throw new SensorExceptions.SensorSaveException("sensorId is needed to create reading ");
+        String error = SensorValidation.validationError(reading);
+        if (error != null) {
+            throw new SensorExceptions.SensorSaveException(error);
+        }
+
+        SensorReading duplicate = findDuplicate(reading);
+        if (duplicate != null) {
+            return duplicate;
+        }
+
+        catalog.record(reading);
+        Stored stored;
+        try {
+            stored = insert(reading);
+        } catch (Exception e) {
+            throw new SensorExceptions.SensorSaveException(
+                    "Cant save sensor reading for sensorId: " + reading.getSensorId() + " Reason : " + e.getMessage());
+        }
+
+        if (stored.created()) {
+            afterSave(reading);
         }
-        if (reading.getTemperature() == null) {
-            throw new SensorExceptions.SensorSaveException("temperature is needed to create reading ");
+
+        return stored.reading();
+    }
+
+    // Saves a batch of readings in as few inserts as possible (binary ingest)
+    // Readings failing the same checks as saveReading() are skipped
+    // Returns how many readings were saved
+    public int saveReadings(List<SensorReading> readings) {
+        List<SensorReading> valid = new ArrayList<>(readings.size());
+        Set<List<Long>> keys = new HashSet<>();
+        for (SensorReading reading : readings) {
+            if (SensorValidation.validationError(reading) != null) {
+                continue;
+            }
+            if (reading.getDeviceSequence() != null) {
+                // the same key twice in one batch is stored once
+                if (!keys.add(List.of(reading.getSensorId(), reading.getDeviceSequence()))) {
+                    deduplicator.countDuplicate("batch");
+                    continue;
+                }
+                if (findDuplicate(reading) != null) {
+                    continue;
+                }
+            }
+            valid.add(reading);
         }
-        if (reading.getHumidity() == null) {
-            throw new SensorExceptions.SensorSaveException("humidity is needed to create reading ");
+        if (valid.isEmpty()) {
+            return 0;
         }
-        if (reading.getWindSpeed() == null) {
-            throw new SensorExceptions.SensorSaveException("windSpeed is needed to create reading ");
+        valid.forEach(catalog::record);
+
+        // One saveAll per shard (just one when sharding is off)
+        Map<String, List<SensorReading>> byShard = new LinkedHashMap<>();
+        for (SensorReading reading : valid) {
+            byShard.computeIfAbsent(shardRouter.shardFor(reading.getSensorId()), shard -> new ArrayList<>()).add(reading);
         }
 
+        List<SensorReading> saved = new ArrayList<>(valid.size());
         try {
-            return repository.save(reading);
+            byShard.forEach((shard, shardReadings) -> {
+                try {
+                    shardRouter.onShard(shard, () -> repository.saveAll(shardReadings));
+                    saved.addAll(shardReadings);
+                } catch (DataIntegrityViolationException e) {
+                    // a keyed reading the filter no longer remembered : the batch was rolled back,
+                    // so its readings are saved one at a time and the duplicates left out
+                    for (SensorReading reading : shardReadings) {
+                        reading.setId(null);
+                        if (insert(reading).created()) {
+                            saved.add(reading);
+                        }
+                    }
+                }
+            });
         } catch (Exception e) {
             throw new SensorExceptions.SensorSaveException(
-                    "Cant save sensor reading for sensorId: " + reading.getSensorId() + " Reason : " + e.getMessage());
+                    "Cant save batch of " + valid.size() + " sensor readings Reason : " + e.getMessage());
         }
+
+        saved.forEach(this::afterSave);
+        return saved.size();
+    }
+
+    // Stored copy of a retried keyed reading, null if it is new
+    // Only keys the dedup filter may have seen before cost a lookup
+    private SensorReading findDuplicate(SensorReading reading) {
+        if (reading.getDeviceSequence() == null
+                || !deduplicator.seenBefore(reading.getSensorId(), reading.getDeviceSequence())) {
+            return null;
+        }
+
+        SensorReading existing;
+        try {
+            existing = findByReadingKey(reading);
+        } catch (Exception e) {
+            // the insert and its unique constraint decide instead
+            return null;
+        }
+        if (existing != null) {
+            deduplicator.countDuplicate("filter");
+        } else {
+            deduplicator.countFalsePositive();
+        }
+        return existing;
+    }
+
+    // Inserts one reading, the unique constraint has the final say on keyed readings the filter missed
+    private Stored insert(SensorReading reading) {
+        try {
+            return new Stored(shardRouter.onSensorShard(reading.getSensorId(), () -> repository.save(reading)), true);
+        } catch (DataIntegrityViolationException e) {
+            SensorReading existing = reading.getDeviceSequence() != null ? findByReadingKey(reading) : null;
+            if (existing == null) {
+                throw e;
+            }
+            deduplicator.countDuplicate("constraint");
+            return new Stored(existing, false);
+        }
+    }
+
+    private SensorReading findByReadingKey(SensorReading reading) {
+        return primaryTransaction.execute(status -> shardRouter.onSensorShard(reading.getSensorId(),
+                () -> repository.findBySensorIdAndDeviceSequence(reading.getSensorId(), reading.getDeviceSequence()).orElse(null)));
+    }
+
+    // Only counted once it is in the database (the catalog is widened before the insert instead)
+    private void afterSave(SensorReading reading) {
+        replicaRouting.recordWrite(reading.getSensorId());
+        liveAggregator.record(reading);
+        alertEngine.evaluate(reading);
+        groupService.record(reading);
+        responseCache.recordWrite(reading);
     }
 
 
     // Returns all records in database
+    // Read-only so it can be served by a replica
     public List<SensorReading> getAllReadings() {
-        List<SensorReading> readings = repository.findAll();
+        catalog.requireAnyReadings();
+
+        List<SensorReading> readings = readOnlyTransaction.execute(status -> {
+            replicaRouting.readYourWrites(null);
+            return scatterGather.scatterAll(repository::findAll).results();
+        });
 
         // let user know that none exists
         if (readings.isEmpty()) {
@@ -62,15 +294,28 @@ public class SensorService {
 
 
     // Returns readings between a time period for a specific sensorId
+    // Read-only so it can be served by a replica
+    // Sensors / ranges the catalog knows are empty are rejected before a connection is taken
     public List<SensorReading> getSpecificSensorMetricsBetweenTimePeriod(
             Long sensorId, boolean temperature, boolean humidity, boolean wind,
             LocalDateTime startDate, LocalDateTime endDate) {
 
-        LocalDateTime[] validatedDates = validateAndNormaliseDates(startDate, endDate);
+        LocalDateTime[] validatedDates = SensorValidation.validateAndNormaliseDates(startDate, endDate);
+        catalog.requireReadings(sensorId, validatedDates[0], validatedDates[1]);
+
+        validatedDates = SensorValidation.validateAndNormaliseDates(startDate, endDate, catalog.extentOf(List.of(sensorId)));
         startDate = validatedDates[0];
         endDate = validatedDates[1];
 
-        List<SensorReading> timeReadings = repository.findBySensorIdAndTimestampBetween(sensorId, startDate, endDate);
+        LocalDateTime from = startDate;
+        LocalDateTime to = endDate;
+        List<SensorReading> timeReadings = chunkedQueries.shouldSplit(from, to)
+                ? readChunked(sensorId, from, to)
+                : readOnlyTransaction.execute(status -> {
+                    replicaRouting.readYourWrites(Collections.singletonList(sensorId));
+                    return shardRouter.onSensorShard(sensorId,
+                            () -> repository.findBySensorIdAndTimestampBetween(sensorId, from, to));
+                });
 
         if (timeReadings.isEmpty()) {
             throw new SensorExceptions.SensorNotFoundException(
@@ -80,6 +325,28 @@ public class SensorService {
         return getSpecificMetrics(timeReadings, temperature, humidity, wind);
     }
 
+    // Same as getSpecificSensorMetricsBetweenTimePeriod() but readings are handed out chunk by chunk in time order
+    // Checks run straight away, readings are only read as the stream is consumed (close it when done)
+    public Stream<List<SensorReading>> streamSpecificSensorMetricsBetweenTimePeriod(
+            Long sensorId, boolean temperature, boolean humidity, boolean wind,
+            LocalDateTime startDate, LocalDateTime endDate) {
+
+        LocalDateTime[] validatedDates = SensorValidation.validateAndNormaliseDates(startDate, endDate);
+        catalog.requireReadings(sensorId, validatedDates[0], validatedDates[1]);
+        validatedDates = SensorValidation.validateAndNormaliseDates(startDate, endDate, catalog.extentOf(List.of(sensorId)));
+
+        return chunkedQueries.stream(sensorId, validatedDates[0], validatedDates[1])
+                .filter(chunk -> !chunk.isEmpty())
+                .map(chunk -> getSpecificMetrics(chunk, temperature, humidity, wind));
+    }
+
+    // Reads a long range in parallel chunks and joins them back in time order
+    private List<SensorReading> readChunked(Long sensorId, LocalDateTime from, LocalDateTime to) {
+        try (Stream<List<SensorReading>> chunks = chunkedQueries.stream(sensorId, from, to)) {
+            return chunks.flatMap(List::stream).toList();
+        }
+    }
+
     // isolates the metrics for getSpecificSensorMetricsBetweenTimePeriod()
     public List<SensorReading> getSpecificMetrics(List<SensorReading> readings, boolean temperature, boolean humidity, boolean wind) {
 
@@ -89,16 +356,20 @@ public class SensorService {
 
         try {
             return readings.stream()
-                    .map(reading -> new SensorReading(
-                            reading.getId(),
-                            reading.getSensorId(),
-
-                            // if its set true get the double else set as null
-                            temperature ? reading.getTemperature() : null,
-                            humidity ? reading.getHumidity() : null,
-                            wind ? reading.getWindSpeed() : null,
-                            reading.getTimestamp()
-                    ))
+                    .map(reading -> {
+                        SensorReading metrics = new SensorReading(
+                                reading.getId(),
+                                reading.getSensorId(),
+
+                                // if its set true get the double else set as null
+                                temperature ? reading.getTemperature() : null,
+                                humidity ? reading.getHumidity() : null,
+                                wind ? reading.getWindSpeed() : null,
+                                reading.getTimestamp()
+                        );
+                        metrics.setDeviceSequence(reading.getDeviceSequence());
+                        return metrics;
+                    })
                     .toList();
         } catch (Exception e) {
             throw new SensorExceptions.SensorSaveException("Cannot process input : " + e.getMessage());
@@ -116,21 +387,25 @@ public class SensorService {
 
         // Switch case based on statistic needed
         // Turns a list fo doubles into a stream so that I can operate on it
-        try {
-            return switch (statistic.toLowerCase()) {
-                case "min" -> values.stream().mapToDouble(Double::doubleValue).min().getAsDouble();
-                case "max" -> values.stream().mapToDouble(Double::doubleValue).max().getAsDouble();
-                case "sum" -> values.stream().mapToDouble(Double::doubleValue).sum();
-                case "avg" -> values.stream().mapToDouble(Double::doubleValue).average().getAsDouble();
-                default -> throw new SensorExceptions.MetricCalculationException("Invalid statistic   : " + statistic);
-            };
-        } catch (Exception e) {
-            throw new SensorExceptions.MetricCalculationException("Cant calculate " + statistic);
-        }
+        // Timed as an AggregationEvent for JFR recordings
+        return SensorProfiling.aggregation(statistic, values.size(), () -> {
+            try {
+                return switch (statistic.toLowerCase()) {
+                    case "min" -> values.stream().mapToDouble(Double::doubleValue).min().getAsDouble();
+                    case "max" -> values.stream().mapToDouble(Double::doubleValue).max().getAsDouble();
+                    case "sum" -> values.stream().mapToDouble(Double::doubleValue).sum();
+                    case "avg" -> values.stream().mapToDouble(Double::doubleValue).average().getAsDouble();
+                    default -> throw new SensorExceptions.MetricCalculationException("Invalid statistic   : " + statistic);
+                };
+            } catch (Exception e) {
+                throw new SensorExceptions.MetricCalculationException("Cant calculate " + statistic);
+            }
+        });
     }
 
     // Retrieves multiple sensor readings between dates
     // Returns a list of filtered DTOs with statistic calculations
+    // Read-only so it can be served by a replica
     public List<SensorAggregationResponseDTO> getMetricsAndTimePeriodWithConstraintAndStatistic(
             List<Long> sensorIds,
             boolean temperature,
@@ -140,15 +415,226 @@ public class SensorService {
             LocalDateTime endDate,
             String statistic) {
 
+        return getShardedMetricsAndTimePeriodWithConstraintAndStatistic(
+                sensorIds, temperature, humidity, wind, startDate, endDate, statistic).results();
+    }
+
+    // Same as getMetricsAndTimePeriodWithConstraintAndStatistic() but reports shards which didn't answer
+    // Sensors are grouped by shard and each shard is queried in parallel
+    // Concurrent identical requests are answered by the one already running
+    public ShardedResult<SensorAggregationResponseDTO> getShardedMetricsAndTimePeriodWithConstraintAndStatistic(
+            List<Long> sensorIds,
+            boolean temperature,
+            boolean humidity,
+            boolean wind,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            String statistic) {
+
         // check date integrity
-        LocalDateTime[] validatedDates = validateAndNormaliseDates(startDate, endDate);
-        startDate = validatedDates[0];
-        endDate = validatedDates[1];
+        LocalDateTime[] validatedDates = checkedRange(sensorIds, startDate, endDate);
+        LocalDateTime from = validatedDates[0];
+        LocalDateTime to = validatedDates[1];
+
+        // Sensor order doesn't change the work, results are put back in each caller's order below
+        List<Long> sortedSensorIds = new ArrayList<>(sensorIds);
+        Collections.sort(sortedSensorIds);
+        AggregationKey key = new AggregationKey(sortedSensorIds, temperature, humidity, wind,
+                statistic, from, endDate, replicaRouting.wroteRecently(sensorIds));
+
+        ShardedResult<SensorAggregationResponseDTO> gathered = aggregations.execute(key, () -> readOnlyTransaction.execute(status -> {
+            replicaRouting.readYourWrites(sensorIds);
+            return scatterGather.scatter(sortedSensorIds,
+                    shardSensorIds -> aggregateSensors(shardSensorIds, temperature, humidity, wind, from, to, statistic));
+        }));
+
+        return inRequestOrder(sensorIds, gathered);
+    }
+
+    // Approximate version of getShardedMetricsAndTimePeriodWithConstraintAndStatistic() for very large ranges
+    // AVG / SUM are estimated from a sample until the margin is within accuracy (0.01 = +/- 1%) or maxLatencyMillis runs out
+    // MIN / MAX can't be bounded by a sample so they are still calculated exactly
+    public ShardedResult<SensorAggregationResponseDTO> getApproximateMetricsAndTimePeriodWithConstraintAndStatistic(
+            List<Long> sensorIds,
+            boolean temperature,
+            boolean humidity,
+            boolean wind,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            String statistic,
+            Double accuracy,
+            Long maxLatencyMillis) {
+
+        if (accuracy != null && (accuracy <= 0 || accuracy >= 1)) {
+            throw new SensorExceptions.MetricCalculationException("accuracy must be between 0 and 1 (0.01 = +/- 1%) : " + accuracy);
+        }
+        if (maxLatencyMillis != null && maxLatencyMillis <= 0) {
+            throw new SensorExceptions.MetricCalculationException("maxLatencyMillis must be positive : " + maxLatencyMillis);
+        }
+        if (accuracy == null && maxLatencyMillis == null) {
+            return getShardedMetricsAndTimePeriodWithConstraintAndStatistic(sensorIds, temperature, humidity, wind, startDate, endDate, statistic);
+        }
+
+        // no maxLatencyMillis means sample until accurate enough (or sensor.approximate.max-sample)
+        long deadline = System.nanoTime() + (maxLatencyMillis != null ? TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis) : Long.MAX_VALUE / 2);
+
+        LocalDateTime[] validatedDates = checkedRange(sensorIds, startDate, endDate);
+        LocalDateTime from = validatedDates[0];
+        LocalDateTime to = validatedDates[1];
+
+        ShardedResult<SensorAggregationResponseDTO> gathered = readOnlyTransaction.execute(status -> {
+            replicaRouting.readYourWrites(sensorIds);
+            return scatterGather.scatter(sensorIds, shardSensorIds -> approximator.supports(statistic)
+                    ? approximator.aggregate(shardSensorIds, temperature, humidity, wind, from, to, statistic, accuracy, deadline)
+                    : aggregateSensors(shardSensorIds, temperature, humidity, wind, from, to, statistic));
+        });
+
+        return inRequestOrder(sensorIds, gathered);
+    }
+
+    // Returns one statistic per sensor group, each group treated as if it was one sensor
+    // Whole buckets come from the group's rollup, only the part buckets at each end of the range are read from the database
+    // Read-only so it can be served by a replica
+    public ShardedResult<SensorAggregationResponseDTO> getGroupMetricsWithStatistic(
+            List<String> groupNames,
+            boolean temperature,
+            boolean humidity,
+            boolean wind,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            String statistic) {
+
+        List<SensorAggregationResponseDTO> results = new ArrayList<>();
+        Set<String> failedShards = new LinkedHashSet<>();
+
+        for (String groupName : groupNames) {
+            GroupRollup rollup = groupService.require(groupName);
+            List<Long> sensorIds = rollup.getSensorIds();
+
+            // check date integrity, open ended ranges are narrowed to the group's readings
+            LocalDateTime[] validatedDates = SensorValidation.validateAndNormaliseDates(startDate, endDate, catalog.extentOf(sensorIds));
+            LocalDateTime from = validatedDates[0];
+            LocalDateTime to = validatedDates[1];
+
+            // Until the rollup has been filled the whole range is read from the database
+            boolean ready = rollup.isReady();
+            MetricAccumulator totals = ready ? rollup.merged(from, to) : new MetricAccumulator();
+            List<LocalDateTime[]> rawRanges = ready ? rollup.edgesOf(from, to) : List.<LocalDateTime[]>of(new LocalDateTime[]{from, to});
+
+            ShardedResult<MetricAccumulator> edges = readOnlyTransaction.execute(status -> {
+                replicaRouting.readYourWrites(sensorIds);
+                return scatterGather.scatter(sensorIds, shardSensorIds -> {
+                    MetricAccumulator shardTotals = new MetricAccumulator();
+                    for (LocalDateTime[] range : rawRanges) {
+                        repository.findBySensorIdInAndTimestampBetween(shardSensorIds, range[0], range[1]).forEach(shardTotals::add);
+                    }
+                    return List.of(shardTotals);
+                });
+            });
+            edges.results().forEach(totals::merge);
+            failedShards.addAll(edges.failedShards());
+
+            if (isEmpty(totals)) {
+                throw new SensorExceptions.SensorNotFoundException(
+                        "No readings found in databases for sensor group : " + groupName + " between " + from + " and " + to);
+            }
+
+            // sensorId is left null, the group name says what the answer is for
+            SensorAggregationResponseDTO response = toResponse(null, totals, temperature, humidity, wind, from, to, statistic, "sensor group " + groupName);
+            response.setGroupName(groupName);
+            results.add(response);
+        }
+
+        return new ShardedResult<>(results, new ArrayList<>(failedShards));
+    }
+
+    private static boolean isEmpty(MetricAccumulator totals) {
+        return totals.count(SlidingWindow.TEMPERATURE) == 0 && totals.count(SlidingWindow.HUMIDITY) == 0
+                && totals.count(SlidingWindow.WIND) == 0;
+    }
+
+    // Builds the response from merged totals, only the requested metrics are set
+    private static SensorAggregationResponseDTO toResponse(Long sensorId, MetricAccumulator totals, boolean temperature, boolean humidity,
+                                                           boolean wind, LocalDateTime startDate, LocalDateTime endDate,
+                                                           String statistic, String calculatedFor) {
+        Double temperatureMetric;
+        Double humidityMetric;
+        Double windSpeedMetric;
+        try {
+            temperatureMetric = temperature ? totals.statistic(SlidingWindow.TEMPERATURE, statistic) : null;
+            humidityMetric = humidity ? totals.statistic(SlidingWindow.HUMIDITY, statistic) : null;
+            windSpeedMetric = wind ? totals.statistic(SlidingWindow.WIND, statistic) : null;
+        } catch (SensorExceptions.MetricCalculationException e) {
+            throw new SensorExceptions.MetricCalculationException(
+                    "Failed to calculate " + statistic + " metrics for " + calculatedFor);
+        }
+
+        SensorAggregationResponseDTO response = new SensorAggregationResponseDTO(
+                sensorId,
+                statistic,
+                temperatureMetric != null ? temperatureMetric : 0.0,
+                windSpeedMetric != null ? windSpeedMetric : 0.0,
+                humidityMetric != null ? humidityMetric : 0.0,
+                startDate,
+                endDate
+        );
+
+        // Then nulling metrics if not requested
+        if (!temperature) response.setTemperatureMetric(null);
+        if (!humidity) response.setHumidityMetric(null);
+        if (!wind) response.setWindSpeedMetric(null);
+
+        return response;
+    }
+
+    // Validates the range, rejects sensors the catalog knows have nothing in it and narrows open ended ranges
+    private LocalDateTime[] checkedRange(List<Long> sensorIds, LocalDateTime startDate, LocalDateTime endDate) {
+        LocalDateTime[] validatedDates = SensorValidation.validateAndNormaliseDates(startDate, endDate);
+        for (Long sensorId : sensorIds) {
+            catalog.requireReadings(sensorId, validatedDates[0], validatedDates[1]);
+        }
+
+        // open ended ranges are narrowed to the sensors' readings
+        return SensorValidation.validateAndNormaliseDates(startDate, endDate, catalog.extentOf(sensorIds));
+    }
+
+    // Shards answer separately so put the results back in the order they were asked for
+    private static ShardedResult<SensorAggregationResponseDTO> inRequestOrder(List<Long> sensorIds, ShardedResult<SensorAggregationResponseDTO> gathered) {
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int i = sensorIds.size() - 1; i >= 0; i--) {
+            positions.put(sensorIds.get(i), i);
+        }
+        List<SensorAggregationResponseDTO> results = new ArrayList<>(gathered.results());
+        results.sort(Comparator.comparing(dto -> positions.get(dto.getSensorId())));
+
+        return new ShardedResult<>(results, gathered.failedShards());
+    }
+
+    // Calculates the statistic for each sensor between the (already validated) dates
+    private List<SensorAggregationResponseDTO> aggregateSensors(
+            List<Long> sensorIds,
+            boolean temperature,
+            boolean humidity,
+            boolean wind,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            String statistic) {
 
         List<SensorAggregationResponseDTO> results = new ArrayList<>();
 
         // perform on each sensor passed in
         for (Long sensorId : sensorIds) {
+            // Long ranges are split into chunks aggregated in parallel and merged
+            if (chunkedQueries.shouldSplit(startDate, endDate)) {
+                MetricAccumulator totals = chunkedQueries.aggregate(sensorId, startDate, endDate);
+                if (isEmpty(totals)) {
+                    throw new SensorExceptions.SensorNotFoundException(
+                            "No readings found in databases for sensorId : " + sensorId + " between " + startDate + " and " + endDate);
+                }
+                results.add(toResponse(sensorId, totals, temperature, humidity, wind, startDate, endDate, statistic, "sensorId " + sensorId));
+                continue;
+            }
+
             // Get readings between time ranges
             List<SensorReading> readings = repository.findBySensorIdAndTimestampBetween(sensorId, startDate, endDate);
 
@@ -229,26 +715,17 @@ public class SensorService {
     }
 
 
-    // Helper function to check integrity of inputted startDate and endDate
-    private LocalDateTime[] validateAndNormaliseDates(LocalDateTime startDate, LocalDateTime endDate) {
-        if (startDate == null) {
-            startDate = LocalDateTime.of(1970, 1, 1, 0, 0);
-        }
-        if (endDate == null) {
-            endDate = LocalDateTime.now();
-        }
-
-        // end before start date
-        if (endDate.isBefore(startDate)) {
-            throw new SensorExceptions.MetricCalculationException(
-                    "End date cant be before start date  startDate = " + startDate + " endDate = " + endDate
-            );
-        }
+    // Returns statistics for a list of sensors over a live window (e.g. last 5 minutes)
+    // Answered from the sliding windows kept on ingest so no database scan is needed
+    // Window defaults to the shortest configured window
+    public List<SensorAggregationResponseDTO> getLiveMetricsWithStatistic(
+            List<Long> sensorIds,
+            boolean temperature,
+            boolean humidity,
+            boolean wind,
+            Long windowSeconds,
+            String statistic) {
 
-        return new LocalDateTime[]{startDate, endDate};
+        return liveAggregator.liveMetrics(sensorIds, temperature, humidity, wind, windowSeconds, statistic);
     }
-
-
 }
-
-
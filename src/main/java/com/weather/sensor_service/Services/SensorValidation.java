@@ -0,0 +1,72 @@
+package com.weather.sensor_service.Services;
+
+import com.weather.sensor_service.DTO.SensorExtentDTO;
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Exceptions.SensorExceptions;
+
+import java.time.LocalDateTime;
+
+// Input checks shared by the servlet and reactive services so both report errors the same way
+public final class SensorValidation {
+
+    private SensorValidation() {
+
+    }
+
+    // Returns why a reading can't be saved, null if it can
+    public static String validationError(SensorReading reading) {
+        if (reading.getSensorId() == null) {
+            return "sensorId is needed to create reading ";
+        }
+        if (reading.getTemperature() == null) {
+            return "temperature is needed to create reading ";
+        }
+        if (reading.getHumidity() == null) {
+            return "humidity is needed to create reading ";
+        }
+        if (reading.getWindSpeed() == null) {
+            return "windSpeed is needed to create reading ";
+        }
+        return null;
+    }
+
+    // Helper function to check integrity of inputted startDate and endDate
+    public static LocalDateTime[] validateAndNormaliseDates(LocalDateTime startDate, LocalDateTime endDate) {
+        if (startDate == null) {
+            startDate = LocalDateTime.of(1970, 1, 1, 0, 0);
+        }
+        if (endDate == null) {
+            endDate = LocalDateTime.now();
+        }
+
+        // end before start date
+        if (endDate.isBefore(startDate)) {
+            throw new SensorExceptions.MetricCalculationException(
+                    "End date cant be before start date  startDate = " + startDate + " endDate = " + endDate
+            );
+        }
+
+        return new LocalDateTime[]{startDate, endDate};
+    }
+
+    // Same as above but a missing start is narrowed to the sensors' first reading
+    // The range still covers every reading the open range would, it just gives the database a tighter range to scan
+    // A missing end stays now : the catalog's last reading may already be behind a reading just committed
+    // extent is null when the sensor catalog can't say, the 1970 default is used then
+    public static LocalDateTime[] validateAndNormaliseDates(LocalDateTime startDate, LocalDateTime endDate, SensorExtentDTO extent) {
+        LocalDateTime[] dates = validateAndNormaliseDates(startDate, endDate);
+        if (extent == null || extent.getFirstTimestamp() == null) {
+            return dates;
+        }
+
+        if (startDate == null && extent.getFirstTimestamp().isAfter(dates[0])) {
+            dates[0] = extent.getFirstTimestamp();
+        }
+
+        // a range outside the readings is left as it was, the query will find nothing either way
+        if (dates[1].isBefore(dates[0])) {
+            return validateAndNormaliseDates(startDate, endDate);
+        }
+        return dates;
+    }
+}
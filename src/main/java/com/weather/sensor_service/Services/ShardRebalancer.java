@@ -0,0 +1,186 @@
+package com.weather.sensor_service.Services;
+
+import com.weather.sensor_service.Config.ShardRouter;
+import com.weather.sensor_service.DTO.ShardMoveDTO;
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Exceptions.SensorExceptions;
+import com.weather.sensor_service.Repository.SensorReadingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.context.annotation.Profile;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Moves readings onto the shard that owns them after shards are added
+// Every shard is scanned for sensors the hash ring now places somewhere else and their readings are copied over in batches
+// The old shard keeps serving the sensor until every reading has been copied, only then is it switched over and the old
+// rows deleted. Readings already on the new shard are never copied twice, so a move which crashed can just be run again
+@Service
+@Profile("!reactive")
+public class ShardRebalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private final SensorReadingRepository repository;
+    private final ShardRouter router;
+
+    // Readings moved per batch
+    private final int batchSize;
+
+    // Rebalancing runs on its own thread so the request returns straight away
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "shard-rebalancer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong movedReadings = new AtomicLong();
+
+    public ShardRebalancer(SensorReadingRepository repository, ShardRouter router,
+                           @Value("${sensor.datasource.shards.rebalance-batch-size:1000}") int batchSize) {
+        this.repository = repository;
+        this.router = router;
+        this.batchSize = batchSize;
+    }
+
+    // Lists the sensors which are on the wrong shard (dry run)
+    public List<ShardMoveDTO> plan() {
+        if (!router.isEnabled()) {
+            throw new SensorExceptions.ShardUnavailableException("Sharding is not configured");
+        }
+
+        List<ShardMoveDTO> moves = new ArrayList<>();
+        for (String shard : router.getShards()) {
+            for (Long sensorId : router.onShard(shard, repository::findDistinctSensorIds)) {
+                String owner = router.ringShardFor(sensorId);
+                if (!owner.equals(shard)) {
+                    long readings = router.onShard(shard, () -> repository.countBySensorId(sensorId));
+                    moves.add(new ShardMoveDTO(sensorId, shard, owner, readings));
+                }
+            }
+        }
+        return moves;
+    }
+
+    // Starts moving every misplaced sensor, returns the plan being worked through
+    public List<ShardMoveDTO> rebalance() {
+        if (!running.compareAndSet(false, true)) {
+            throw new SensorExceptions.ShardUnavailableException("Rebalance already running");
+        }
+
+        try {
+            List<ShardMoveDTO> moves = plan();
+            movedReadings.set(0);
+            worker.submit(() -> {
+                try {
+                    moves.forEach(this::move);
+                    log.info("Shard rebalance finished, moved {} readings", movedReadings.get());
+                } catch (Exception e) {
+                    log.error("Shard rebalance failed after moving {} readings : {}", movedReadings.get(), e.getMessage());
+                } finally {
+                    running.set(false);
+                }
+            });
+            return moves;
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    // Progress of the current / last rebalance
+    public Map<String, Object> status() {
+        return Map.of("running", running.get(), "movedReadings", movedReadings.get());
+    }
+
+    // Moves one sensor's readings to its new shard a batch at a time
+    private void move(ShardMoveDTO move) {
+        Long sensorId = move.getSensorId();
+
+        // Copy everything while the sensor is still read from (and written to) the old shard
+        router.pin(sensorId, move.getFromShard());
+        try {
+            long afterId = Long.MIN_VALUE;
+            while (true) {
+                long from = afterId;
+                List<SensorReading> batch = router.onShard(move.getFromShard(),
+                        () -> repository.findBySensorIdAndIdGreaterThanOrderByIdAsc(sensorId, from, PageRequest.of(0, batchSize)));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                copyMissing(batch, move.getToShard());
+                afterId = batch.getLast().getId();
+            }
+        } finally {
+            router.unpin(sensorId);
+        }
+
+        // The new shard owns the sensor now, anything written to the old one during the copy is picked up before deleting
+        while (true) {
+            List<SensorReading> batch = router.onShard(move.getFromShard(),
+                    () -> repository.findBySensorIdOrderByIdAsc(sensorId, PageRequest.of(0, batchSize)));
+            if (batch.isEmpty()) {
+                return;
+            }
+            copyMissing(batch, move.getToShard());
+            router.onShard(move.getFromShard(), () -> {
+                repository.deleteAllInBatch(batch);
+                return null;
+            });
+        }
+    }
+
+    // Copies the readings of a batch which aren't on the target shard yet
+    // A reading counts as there if the target has one with the same timestamp and device sequence, duplicates are
+    // matched one for one so readings which really were sent twice are kept
+    private void copyMissing(List<SensorReading> batch, String toShard) {
+        Long sensorId = batch.getFirst().getSensorId();
+        LocalDateTime first = batch.stream().map(SensorReading::getTimestamp).min(LocalDateTime::compareTo).orElseThrow();
+        LocalDateTime last = batch.stream().map(SensorReading::getTimestamp).max(LocalDateTime::compareTo).orElseThrow();
+
+        Map<ReadingKey, Integer> onTarget = new HashMap<>();
+        router.onShard(toShard, () -> repository.findBySensorIdAndTimestampBetween(sensorId, first, last))
+                .forEach(reading -> onTarget.merge(ReadingKey.of(reading), 1, Integer::sum));
+
+        // New ids are generated from the target shard's range so they can't clash with readings already there
+        List<SensorReading> copies = new ArrayList<>();
+        for (SensorReading reading : batch) {
+            ReadingKey key = ReadingKey.of(reading);
+            Integer alreadyCopied = onTarget.get(key);
+            if (alreadyCopied != null) {
+                onTarget.put(key, alreadyCopied - 1);
+                onTarget.remove(key, 0);
+                continue;
+            }
+
+            SensorReading copy = new SensorReading(null, reading.getSensorId(), reading.getTemperature(),
+                    reading.getHumidity(), reading.getWindSpeed(), reading.getTimestamp());
+            copy.setDeviceSequence(reading.getDeviceSequence());
+            copies.add(copy);
+        }
+
+        if (!copies.isEmpty()) {
+            router.onShard(toShard, () -> repository.saveAll(copies));
+            movedReadings.addAndGet(copies.size());
+        }
+    }
+
+    // What makes two copies of a reading the same one
+    private record ReadingKey(LocalDateTime timestamp, Long deviceSequence) {
+        static ReadingKey of(SensorReading reading) {
+            return new ReadingKey(reading.getTimestamp(), reading.getDeviceSequence());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.weather.sensor_service.Services;
+
+import com.weather.sensor_service.Config.ShardRouter;
+import com.weather.sensor_service.Exceptions.SensorExceptions;
+import com.weather.sensor_service.Profiling.RequestProfile;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Runs a query on every shard involved in parallel and gathers the results
+// A shard which errors or misses the timeout is reported in failedShards instead of failing the whole request
+// When sharding is off the work just runs on the calling thread
+// Each shard's work runs in a read-only transaction timing out at the deadline, Hibernate hands the time left to every
+// statement as its query timeout so the database stops a slow shard's query instead of it holding a thread and a connection
+@Service
+@Profile("!reactive")
+public class ShardScatterGather {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardScatterGather.class);
+
+    private final ShardRouter router;
+    private final PlatformTransactionManager transactionManager;
+
+    // How long every shard gets to answer
+    private final long timeoutMillis;
+
+    // Bounded pool the shard queries run on
+    private final ExecutorService executor;
+
+    public ShardScatterGather(ShardRouter router,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${sensor.datasource.shards.timeout-millis:5000}") long timeoutMillis,
+                              @Value("${sensor.datasource.shards.query-threads:8}") int queryThreads) {
+        this.router = router;
+        this.transactionManager = transactionManager;
+        this.timeoutMillis = timeoutMillis;
+        this.executor = Executors.newFixedThreadPool(queryThreads, runnable -> {
+            Thread thread = new Thread(runnable, "shard-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Runs work for each shard with the sensors that live on it
+    public <T> ShardedResult<T> scatter(List<Long> sensorIds, Function<List<Long>, List<T>> work) {
+        if (!router.isEnabled()) {
+            return new ShardedResult<>(work.apply(sensorIds), List.of());
+        }
+
+        Map<String, Supplier<List<T>>> tasks = new LinkedHashMap<>();
+        router.groupByShard(sensorIds).forEach((shard, shardSensorIds) -> tasks.put(shard, () -> work.apply(shardSensorIds)));
+        return gather(tasks);
+    }
+
+    // Runs the same work on every shard
+    public <T> ShardedResult<T> scatterAll(Supplier<List<T>> work) {
+        if (!router.isEnabled()) {
+            return new ShardedResult<>(work.get(), List.of());
+        }
+
+        Map<String, Supplier<List<T>>> tasks = new LinkedHashMap<>();
+        router.getShards().forEach(shard -> tasks.put(shard, work));
+        return gather(tasks);
+    }
+
+    private <T> ShardedResult<T> gather(Map<String, Supplier<List<T>>> tasks) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        Map<String, CompletableFuture<List<T>>> futures = new LinkedHashMap<>();
+        tasks.forEach((shard, task) -> futures.put(shard, CompletableFuture.supplyAsync(
+                RequestProfile.propagate(() -> router.onShard(shard, () -> beforeDeadline(shard, deadline, task))), executor)));
+
+        List<T> results = new ArrayList<>();
+        List<String> failedShards = new ArrayList<>();
+
+        for (Map.Entry<String, CompletableFuture<List<T>>> entry : futures.entrySet()) {
+            try {
+                results.addAll(entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                // a task still queued never starts, a running one has its statement cancelled by the query timeout
+                entry.getValue().cancel(true);
+                log.warn("Shard {} timed out after {} ms", entry.getKey(), timeoutMillis);
+                failedShards.add(entry.getKey());
+            } catch (ExecutionException e) {
+                // Not found / bad input is the caller's problem and is reported as normal
+                if (e.getCause() instanceof SensorExceptions.SensorNotFoundException
+                        || e.getCause() instanceof SensorExceptions.MetricCalculationException) {
+                    futures.values().forEach(future -> future.cancel(true));
+                    throw (RuntimeException) e.getCause();
+                }
+                log.warn("Shard {} failed : {}", entry.getKey(), e.getCause().getMessage());
+                failedShards.add(entry.getKey());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failedShards.add(entry.getKey());
+            }
+        }
+
+        if (failedShards.size() == futures.size()) {
+            throw new SensorExceptions.ShardUnavailableException("No shard answered, failed shards : " + failedShards);
+        }
+
+        return new ShardedResult<>(results, failedShards);
+    }
+
+    // Runs a shard's work in a transaction which times out at the deadline
+    // JDBC query timeouts are whole seconds so the database may let a query run up to a second past it
+    private <T> List<T> beforeDeadline(String shard, long deadline, Supplier<List<T>> task) {
+        long remainingNanos = deadline - System.nanoTime();
+        if (remainingNanos <= 0) {
+            throw new SensorExceptions.ShardUnavailableException("Shard " + shard + " query started after the timeout");
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.setTimeout((int) Math.max(1, (remainingNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)));
+        return transaction.execute(status -> task.get());
+    }
+}
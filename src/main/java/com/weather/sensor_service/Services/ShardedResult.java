@@ -0,0 +1,11 @@
+package com.weather.sensor_service.Services;
+
+import java.util.List;
+
+// Results gathered from every shard which answered in time plus the shards which didn't
+public record ShardedResult<T>(List<T> results, List<String> failedShards) {
+
+    public boolean isPartial() {
+        return !failedShards.isEmpty();
+    }
+}
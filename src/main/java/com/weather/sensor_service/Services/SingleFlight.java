@@ -0,0 +1,90 @@
+package com.weather.sensor_service.Services;
+
+import com.weather.sensor_service.Profiling.SensorProfiling;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Runs concurrent calls with the same key once : the first caller does the work and everyone
+// else waiting on that key gets the same result (or the same exception)
+// Nothing is cached, the key is forgotten as soon as the work finishes
+public class SingleFlight<K, V> {
+
+    // Name the metrics and JFR wait events are reported under
+    private final String name;
+
+    // key -> result of the call currently running for it
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    // Calls which did the work vs calls which shared another call's result
+    private final Counter executed;
+    private final Counter coalesced;
+
+    // Registers <name>.requests{outcome=executed|coalesced}, <name>.coalescing.ratio and <name>.in.flight
+    public SingleFlight(MeterRegistry registry, String name) {
+        this.name = name;
+        this.executed = Counter.builder(name + ".requests")
+                .tag("outcome", "executed")
+                .description("Calls which ran the work themselves")
+                .register(registry);
+        this.coalesced = Counter.builder(name + ".requests")
+                .tag("outcome", "coalesced")
+                .description("Calls which shared the result of an identical call already running")
+                .register(registry);
+
+        Gauge.builder(name + ".coalescing.ratio", this, SingleFlight::coalescingRatio)
+                .description("Share of calls answered by an identical call already running")
+                .register(registry);
+        Gauge.builder(name + ".in.flight", inFlight, ConcurrentHashMap::size)
+                .description("Distinct calls currently running")
+                .register(registry);
+    }
+
+    public V execute(K key, Supplier<V> work) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, call);
+
+        if (running != null) {
+            coalesced.increment();
+            return SensorProfiling.coalescedWait(name, () -> await(running));
+        }
+
+        executed.increment();
+        try {
+            V value = work.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    // coalesced / all calls, 0 before the first call
+    public double coalescingRatio() {
+        double total = executed.count() + coalesced.count();
+        return total == 0 ? 0.0 : coalesced.count() / total;
+    }
+
+    // Rethrows the leader's exception as it was thrown
+    private V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
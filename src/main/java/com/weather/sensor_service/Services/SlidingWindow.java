@@ -0,0 +1,187 @@
+package com.weather.sensor_service.Services;
+
+import com.weather.sensor_service.Exceptions.SensorExceptions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Holds the readings of ONE sensor for ONE window length (e.g. the last 5 minutes)
+// MIN/MAX come from monotonic deques and AVG/SUM from running sums, so every statistic is O(1)
+public class SlidingWindow {
+
+    // Metric positions used by the deques and running sums
+    public static final int TEMPERATURE = 0;
+    public static final int HUMIDITY = 1;
+    public static final int WIND = 2;
+    private static final int METRICS = 3;
+
+    // A single reading inside the window
+    private record Sample(long at, double temperature, double humidity, double windSpeed) {
+        double value(int metric) {
+            return switch (metric) {
+                case TEMPERATURE -> temperature;
+                case HUMIDITY -> humidity;
+                default -> windSpeed;
+            };
+        }
+    }
+
+    // Length of the window in millis
+    private final long lengthMillis;
+
+    // Every sample still inside the window in time order (needed to take values back out of the sums)
+    private final ArrayDeque<Sample> samples = new ArrayDeque<>();
+
+    // Head of each deque is the current min / max for that metric
+    private final ArrayDeque<Sample>[] minDeques = newDeques();
+    private final ArrayDeque<Sample>[] maxDeques = newDeques();
+
+    // Running sum of each metric for the samples in the window
+    private final double[] sums = new double[METRICS];
+
+    // Latest time seen, readings at or after it take the O(1) path
+    private long lastAt = Long.MIN_VALUE;
+
+    // Start of the window as of the last eviction, anything at or before it has already slid out
+    private long windowStart = Long.MIN_VALUE;
+
+    public SlidingWindow(long lengthMillis) {
+        this.lengthMillis = lengthMillis;
+    }
+
+    // Adds a reading and drops anything which has slid out of the window
+    // A late reading is placed at its own time, or dropped if it is already older than the window
+    // Returns false if it was dropped
+    public synchronized boolean add(long at, double temperature, double humidity, double windSpeed) {
+        Sample sample = new Sample(at, temperature, humidity, windSpeed);
+
+        if (at <= windowStart) {
+            return false;
+        }
+        if (at < lastAt) {
+            insertLate(sample);
+            return true;
+        }
+        lastAt = at;
+
+        samples.addLast(sample);
+        for (int metric = 0; metric < METRICS; metric++) {
+            sums[metric] += sample.value(metric);
+            push(metric, sample);
+        }
+
+        evict(at);
+        return true;
+    }
+
+    // Out of order reading inside the window : put it in time order and rebuild the deques, O(window) but rare
+    private void insertLate(Sample sample) {
+        List<Sample> ordered = new ArrayList<>(samples.size() + 1);
+        boolean placed = false;
+        for (Sample existing : samples) {
+            if (!placed && existing.at() > sample.at()) {
+                ordered.add(sample);
+                placed = true;
+            }
+            ordered.add(existing);
+        }
+        if (!placed) {
+            ordered.add(sample);
+        }
+
+        samples.clear();
+        samples.addAll(ordered);
+        for (int metric = 0; metric < METRICS; metric++) {
+            sums[metric] += sample.value(metric);
+            minDeques[metric].clear();
+            maxDeques[metric].clear();
+            for (Sample existing : ordered) {
+                push(metric, existing);
+            }
+        }
+    }
+
+    // Adds the newest sample to the back of a metric's deques
+    private void push(int metric, Sample sample) {
+        double value = sample.value(metric);
+
+        // Anything bigger than the new value can never be the min again (and vice versa for max)
+        while (!minDeques[metric].isEmpty() && minDeques[metric].peekLast().value(metric) > value) {
+            minDeques[metric].pollLast();
+        }
+        minDeques[metric].addLast(sample);
+
+        while (!maxDeques[metric].isEmpty() && maxDeques[metric].peekLast().value(metric) < value) {
+            maxDeques[metric].pollLast();
+        }
+        maxDeques[metric].addLast(sample);
+    }
+
+    // Returns the statistic for a metric at time nowMillis, or null when the window is empty
+    public synchronized Double calculate(int metric, String statistic, long nowMillis) {
+        String stat = validateStatistic(statistic);
+
+        evict(nowMillis);
+        if (samples.isEmpty()) {
+            return null;
+        }
+
+        return switch (stat) {
+            case "min" -> minDeques[metric].peekFirst().value(metric);
+            case "max" -> maxDeques[metric].peekFirst().value(metric);
+            case "sum" -> sums[metric];
+            default -> sums[metric] / samples.size();
+        };
+    }
+
+    // Returns the statistic in lower case, throws if it isn't one a window can answer
+    public static String validateStatistic(String statistic) {
+        String stat = statistic.toLowerCase();
+        if (!stat.equals("min") && !stat.equals("max") && !stat.equals("sum") && !stat.equals("avg")) {
+            throw new SensorExceptions.MetricCalculationException("Invalid statistic   : " + statistic);
+        }
+        return stat;
+    }
+
+    // Number of readings currently in the window
+    public synchronized int size(long nowMillis) {
+        evict(nowMillis);
+        return samples.size();
+    }
+
+    // Removes samples older than the window from the sums and deques
+    private void evict(long nowMillis) {
+        long cutoff = nowMillis - lengthMillis;
+        windowStart = Math.max(windowStart, cutoff);
+
+        while (!samples.isEmpty() && samples.peekFirst().at() <= cutoff) {
+            Sample expired = samples.pollFirst();
+
+            for (int metric = 0; metric < METRICS; metric++) {
+                sums[metric] -= expired.value(metric);
+                if (minDeques[metric].peekFirst() == expired) {
+                    minDeques[metric].pollFirst();
+                }
+                if (maxDeques[metric].peekFirst() == expired) {
+                    maxDeques[metric].pollFirst();
+                }
+            }
+        }
+
+        // Reset so rounding errors from the subtractions don't build up forever
+        if (samples.isEmpty()) {
+            Arrays.fill(sums, 0.0);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArrayDeque<Sample>[] newDeques() {
+        ArrayDeque<Sample>[] deques = new ArrayDeque[METRICS];
+        for (int metric = 0; metric < METRICS; metric++) {
+            deques[metric] = new ArrayDeque<>();
+        }
+        return deques;
+    }
+}
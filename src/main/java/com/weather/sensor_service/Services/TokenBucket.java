@@ -0,0 +1,53 @@
+package com.weather.sensor_service.Services;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free token bucket kept as a single "theoretical arrival time" (GCRA)
+// Taking a token is one compare-and-set, there is no refill thread and no lock on the request path
+public class TokenBucket {
+
+    // Time it takes to earn one token
+    private final long intervalNanos;
+
+    // How far ahead of now the arrival time may run, i.e. the burst size
+    private final long capacityNanos;
+
+    // Time at which the bucket would be full again, at or before now means full
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE / 2);
+
+    // ratePerSecond tokens are earned every second, up to burst can be taken at once
+    public TokenBucket(double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Token bucket rate and burst must be positive");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.capacityNanos = intervalNanos * burst;
+    }
+
+    // Takes a token, returns 0 if there was one or else how many nanos until there will be
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, nowNanos) + intervalNanos;
+
+            long wait = next - nowNanos - capacityNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // Gives back a token taken by tryAcquire, for a request a later limit rejected
+    // Never more than was taken : tryAcquire starts from now if the arrival time ends up in the past
+    public void refund() {
+        theoreticalArrival.addAndGet(-intervalNanos);
+    }
+
+    // True when the bucket is full, so dropping it and starting a new one changes nothing
+    public boolean isFull(long nowNanos) {
+        return theoreticalArrival.get() <= nowNanos;
+    }
+}
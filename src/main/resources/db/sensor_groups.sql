@@ -0,0 +1,12 @@
+-- Run once on an existing PostgreSQL database (shard-0 when sharded) before starting with persisted sensor groups
+-- Group definitions only, the rollups are rebuilt from sensor_readings when the service starts
+CREATE TABLE IF NOT EXISTS sensor_groups (
+    name VARCHAR(255) PRIMARY KEY,
+    created_at TIMESTAMP(6)
+);
+CREATE TABLE IF NOT EXISTS sensor_group_sensors (
+    group_name VARCHAR(255) NOT NULL REFERENCES sensor_groups (name),
+    sensor_order INTEGER NOT NULL,
+    sensor_id BIGINT,
+    PRIMARY KEY (group_name, sensor_order)
+);
@@ -0,0 +1,27 @@
+-- Converts an existing PostgreSQL sensor_readings table to the compact layout used by the compact profile
+-- timestamp : TIMESTAMP(6) -> BIGINT microseconds since 1970 (wall clock read as UTC, matching EpochMicrosConverter)
+--             this is not a real instant, anything else reading the column has to treat it as local time
+-- Once converted the database can only be used by the servlet profile with compact, the reactive profile can't read it
+-- metrics   : DOUBLE PRECISION -> REAL
+-- ALTER ... TYPE rewrites the whole table under an exclusive lock, stop the service (or ingest) while it runs
+BEGIN;
+
+ALTER TABLE sensor_readings
+    ALTER COLUMN timestamp TYPE BIGINT USING (EXTRACT(EPOCH FROM timestamp) * 1000000)::BIGINT,
+    ALTER COLUMN temperature TYPE REAL,
+    ALTER COLUMN humidity TYPE REAL,
+    ALTER COLUMN wind_speed TYPE REAL;
+
+-- Range queries filter on sensor_id and timestamp, the narrower key fits more entries per index page
+CREATE INDEX IF NOT EXISTS sensor_readings_sensor_id_timestamp ON sensor_readings (sensor_id, timestamp);
+
+COMMIT;
+
+ANALYZE sensor_readings;
+
+-- To go back :
+-- ALTER TABLE sensor_readings
+--     ALTER COLUMN timestamp TYPE TIMESTAMP(6) USING to_timestamp(timestamp / 1000000.0) AT TIME ZONE 'UTC',
+--     ALTER COLUMN temperature TYPE DOUBLE PRECISION,
+--     ALTER COLUMN humidity TYPE DOUBLE PRECISION,
+--     ALTER COLUMN wind_speed TYPE DOUBLE PRECISION;
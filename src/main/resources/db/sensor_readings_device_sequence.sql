@@ -0,0 +1,7 @@
+-- Run once on an existing PostgreSQL database (every shard when sharded) before starting with idempotent ingest
+-- Optional reading key sent by devices, NULL for readings without one so existing rows are unaffected
+ALTER TABLE sensor_readings ADD COLUMN IF NOT EXISTS device_sequence BIGINT;
+-- Final arbiter for retried readings, NULLs never clash so readings without a key are not constrained
+-- CONCURRENTLY so ingest keeps running while it builds (can't be run inside a transaction block)
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_sensor_readings_sensor_device_sequence
+    ON sensor_readings (sensor_id, device_sequence);
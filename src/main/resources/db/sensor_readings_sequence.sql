@@ -0,0 +1,6 @@
+-- Run once on an existing PostgreSQL database before starting with the prod profile
+-- SensorReading ids now come from a sequence (allocation size 50) so inserts can be batched
+CREATE SEQUENCE IF NOT EXISTS sensor_readings_seq INCREMENT BY 50;
+SELECT setval('sensor_readings_seq', COALESCE((SELECT MAX(id) FROM sensor_readings), 0) + 50);
+ALTER TABLE sensor_readings ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE sensor_readings ALTER COLUMN id DROP DEFAULT;
@@ -0,0 +1,170 @@
+package com.weather.sensor_service;
+
+import com.weather.sensor_service.Config.AdmissionInterceptor;
+import com.weather.sensor_service.Exceptions.SensorExceptions;
+import com.weather.sensor_service.Services.AdmissionControl;
+import com.weather.sensor_service.Services.TokenBucket;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Rate / concurrency limits through the full HTTP stack with small limits
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "sensor.admission.endpoints.get-all.client-rate=0.5",
+        "sensor.admission.endpoints.get-all.client-burst=2",
+        "sensor.admission.endpoints.create-reading.sensor-rate=0.5",
+        "sensor.admission.endpoints.create-reading.sensor-burst=1",
+        "sensor.admission.endpoints.get-metrics-and-time-period.client-rate=0.5",
+        "sensor.admission.endpoints.get-metrics-and-time-period.client-burst=1",
+        "sensor.admission.endpoints.get-metrics-and-time-period.sensor-rate=0.5",
+        "sensor.admission.endpoints.get-metrics-and-time-period.sensor-burst=1",
+        "sensor.admission.aggregation-concurrency=2",
+        // the test client is its own trusted proxy so X-Client-Id tells the callers apart
+        "sensor.admission.trusted-proxies=127.0.0.1,0:0:0:0:0:0:0:1"
+})
+class AdmissionControlTests {
+
+    private static final String AGGREGATION = "get-metrics-and-time-period-with-constraint";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private AdmissionControl admission;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Autowired
+    private AdmissionInterceptor interceptor;
+
+    private HttpResponse<String> getAll(String clientId) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/sensors/get-all"))
+                .header("X-Client-Id", clientId)
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private int createReading(long sensorId) throws Exception {
+        String body = "{\"sensorId\":" + sensorId + ",\"temperature\":20.0,\"humidity\":50.0,\"windSpeed\":5.0}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/sensors/create-reading"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    // A client over its rate gets a 429 with Retry-After, other clients are not affected
+    @Test
+    void clientOverRateGets429() throws Exception {
+        assertNotEquals(429, getAll("analyst").statusCode());
+        assertNotEquals(429, getAll("analyst").statusCode());
+
+        HttpResponse<String> rejected = getAll("analyst");
+        assertEquals(429, rejected.statusCode());
+        assertEquals("2", rejected.headers().firstValue("Retry-After").orElseThrow());
+        assertTrue(rejected.body().contains("Too Many Requests"));
+
+        assertNotEquals(429, getAll("someone-else").statusCode());
+    }
+
+    // From any other address the header is ignored, so a made up X-Client-Id doesn't get a fresh limit
+    @Test
+    void clientHeaderOnlyTrustedFromProxies() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/sensors/get-all");
+        request.setRemoteAddr("10.9.9.9");
+
+        for (String clientId : List.of("spoof-1", "spoof-2")) {
+            request.addHeader("X-Client-Id", clientId);
+            interceptor.preHandle(request, new MockHttpServletResponse(), null);
+            interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+            request.removeHeader("X-Client-Id");
+        }
+
+        request.addHeader("X-Client-Id", "spoof-3");
+        assertThrows(SensorExceptions.TooManyRequestsException.class,
+                () -> interceptor.preHandle(request, new MockHttpServletResponse(), null));
+    }
+
+    // A request rejected by one limit gives back the tokens it took from the others
+    @Test
+    void rejectedRequestRefundsTokens() {
+        String endpoint = "get-metrics-and-time-period";
+        admission.admit(endpoint, "client-r1", List.of(8301L)).release();
+
+        // client-r2's token is taken, then sensor 8301 is over its rate
+        assertThrows(SensorExceptions.TooManyRequestsException.class, () -> admission.admit(endpoint, "client-r2", List.of(8301L)));
+
+        // so client-r2 still has its token for another sensor
+        admission.admit(endpoint, "client-r2", List.of(8302L)).release();
+        assertThrows(SensorExceptions.TooManyRequestsException.class, () -> admission.admit(endpoint, "client-r2", List.of(8303L)));
+    }
+
+    // A sensor from the body rejected after the interceptor admitted the request refunds the client's token too
+    @Test
+    void rejectedBodySensorRefundsClientToken() {
+        String endpoint = "get-metrics-and-time-period";
+        admission.admit(endpoint, "client-s0", List.of(8401L)).release();
+
+        AdmissionControl.Permit permit = admission.admit(endpoint, "client-s1", List.of());
+        assertThrows(SensorExceptions.TooManyRequestsException.class, () -> admission.admitSensor(endpoint, 8401L, permit));
+        permit.release();
+
+        admission.admit(endpoint, "client-s1", List.of()).release();
+    }
+
+    // Readings are limited per sensor as well as per client
+    @Test
+    void sensorOverRateGets429() throws Exception {
+        assertEquals(200, createReading(8101L));
+        assertEquals(429, createReading(8101L));
+        assertEquals(200, createReading(8102L));
+    }
+
+    // Aggregation queries share a smaller number of slots across every client
+    @Test
+    void aggregationConcurrencyIsShared() {
+        AdmissionControl.Permit first = admission.admit(AGGREGATION, "client-a", List.of());
+        AdmissionControl.Permit second = admission.admit(AGGREGATION, "client-b", List.of());
+
+        assertThrows(SensorExceptions.TooManyRequestsException.class, () -> admission.admit(AGGREGATION, "client-c", List.of()));
+
+        // releasing twice only frees one slot
+        first.release();
+        first.release();
+        AdmissionControl.Permit third = admission.admit(AGGREGATION, "client-c", List.of());
+        assertThrows(SensorExceptions.TooManyRequestsException.class, () -> admission.admit(AGGREGATION, "client-d", List.of()));
+
+        second.release();
+        third.release();
+    }
+
+    // Burst is available straight away, then tokens come back at the rate
+    @Test
+    void tokenBucketRefillsAtRate() {
+        TokenBucket bucket = new TokenBucket(10, 5);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire(start));
+        }
+        long wait = bucket.tryAcquire(start);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), wait);
+
+        assertEquals(0, bucket.tryAcquire(start + wait));
+        assertFalse(bucket.isFull(start + wait));
+        assertTrue(bucket.isFull(start + TimeUnit.SECONDS.toNanos(1)));
+    }
+}
@@ -0,0 +1,143 @@
+package com.weather.sensor_service;
+
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Ingest.BinaryFrameCodec;
+import com.weather.sensor_service.Ingest.BinaryIngestServer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.DataInputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Readings/sec through the binary TCP listener compared with POST /sensors/create-reading
+// Run with : ./gradlew loadTest [-Dload.threads=8] [-Dload.seconds=10] [-Dload.batch=500]
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "sensor.ingest.binary.enabled=true",
+        "sensor.ingest.binary.tcp-port=0",
+        "sensor.ingest.binary.udp-port=-1",
+        "sensor.admission.enabled=false"
+})
+class BinaryIngestLoadTests {
+
+    private static final int THREADS = Integer.getInteger("load.threads", 8);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 10);
+    private static final int BATCH = Integer.getInteger("load.batch", 500);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private BinaryIngestServer binaryServer;
+
+    // Each thread keeps one connection and sends a batch at a time, waiting for its ack
+    private long binaryReadings() throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SECONDS);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<Long>> workers = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(pool.submit(() -> {
+                long accepted = 0;
+                int batchId = 0;
+                try (Socket socket = new Socket("localhost", binaryServer.getTcpPort())) {
+                    OutputStream out = socket.getOutputStream();
+                    DataInputStream in = new DataInputStream(socket.getInputStream());
+
+                    while (System.nanoTime() < deadline) {
+                        ByteBuffer batch = BinaryFrameCodec.encodeBatch(batchId++, randomReadings(BATCH));
+                        out.write(batch.array(), 0, batch.limit());
+                        out.flush();
+
+                        in.readInt();
+                        accepted += in.readInt();
+                        assertEquals(0, in.readInt());
+                    }
+                }
+                return accepted;
+            }));
+        }
+
+        long total = 0;
+        for (Future<Long> worker : workers) {
+            total += worker.get();
+        }
+        pool.shutdown();
+        return total;
+    }
+
+    // One reading per request, the way gateways use the REST endpoint today
+    private long restReadings() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SECONDS);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<Long>> workers = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(pool.submit(() -> {
+                long accepted = 0;
+                while (System.nanoTime() < deadline) {
+                    SensorReading reading = randomReadings(1).getFirst();
+                    String body = "{\"sensorId\":" + reading.getSensorId() + ",\"temperature\":" + reading.getTemperature()
+                            + ",\"humidity\":" + reading.getHumidity() + ",\"windSpeed\":" + reading.getWindSpeed() + "}";
+                    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/sensors/create-reading"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(body))
+                            .build();
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        accepted++;
+                    }
+                }
+                return accepted;
+            }));
+        }
+
+        long total = 0;
+        for (Future<Long> worker : workers) {
+            total += worker.get();
+        }
+        pool.shutdown();
+        return total;
+    }
+
+    private static List<SensorReading> randomReadings(int count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<SensorReading> readings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            readings.add(new SensorReading(null, (long) random.nextInt(100), random.nextDouble(-10, 40),
+                    random.nextDouble(0, 100), random.nextDouble(0, 30), null));
+        }
+        return readings;
+    }
+
+    @Test
+    void binaryIngestVersusRest() throws Exception {
+        long binary = binaryReadings();
+        long rest = restReadings();
+
+        System.out.printf("binary tcp : %8.0f readings/s (batch %d, %d bytes per reading)%n",
+                binary / (double) SECONDS, BATCH, BinaryFrameCodec.FRAME_BYTES);
+        System.out.printf("rest       : %8.0f readings/s%n", rest / (double) SECONDS);
+
+        assertTrue(binary > 0);
+        assertTrue(rest > 0);
+    }
+}
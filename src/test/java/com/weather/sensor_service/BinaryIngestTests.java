@@ -0,0 +1,182 @@
+package com.weather.sensor_service;
+
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Ingest.BinaryFrameCodec;
+import com.weather.sensor_service.Ingest.BinaryIngestServer;
+import com.weather.sensor_service.Services.SensorService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.DataInputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class BinaryIngestTests {
+
+    private final SensorService service = mock(SensorService.class);
+    private BinaryIngestServer server;
+
+    @BeforeEach
+    void startServer() {
+        // Pretends every valid reading was saved
+        when(service.saveReadings(anyList())).thenAnswer(invocation -> (int) ((List<SensorReading>) invocation.getArgument(0)).stream()
+                .filter(reading -> reading.getTemperature() != null && reading.getHumidity() != null && reading.getWindSpeed() != null)
+                .count());
+
+        server = new BinaryIngestServer(service, 0, 0, 100, 2, 16);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    private static SensorReading reading(long sensorId, Double temperature) {
+        return new SensorReading(null, sensorId, temperature, 50.0, 5.0, LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    // *** BinaryFrameCodec TESTS ***
+
+    // Frames decode back to the same values, NaN becomes a missing metric
+    @Test
+    void codecRoundTrip() {
+        SensorReading original = reading(7L, 21.5);
+        SensorReading missing = reading(8L, null);
+
+        ByteBuffer batch = BinaryFrameCodec.encodeBatch(3, List.of(original, missing));
+        assertEquals(BinaryFrameCodec.batchBytes(2), batch.remaining());
+        assertEquals(3, batch.getInt());
+        assertEquals(2, batch.getInt());
+
+        List<SensorReading> decoded = BinaryFrameCodec.decodeFrames(batch, 2);
+        assertEquals(7L, decoded.getFirst().getSensorId());
+        assertEquals(21.5, decoded.getFirst().getTemperature());
+        assertEquals(50.0, decoded.getFirst().getHumidity());
+        assertEquals(5.0, decoded.getFirst().getWindSpeed());
+        assertEquals(original.getTimestamp(), decoded.getFirst().getTimestamp());
+        assertNull(decoded.get(1).getTemperature());
+        assertFalse(batch.hasRemaining());
+    }
+
+    // A reading key switches the batch to keyed frames and comes back on the reading, a frame without one stays unkeyed
+    @Test
+    void codecRoundTripKeyedFrames() {
+        SensorReading keyed = reading(7L, 21.5);
+        keyed.setDeviceSequence(42L);
+        SensorReading unkeyed = reading(8L, 22.5);
+
+        ByteBuffer batch = BinaryFrameCodec.encodeBatch(4, List.of(keyed, unkeyed));
+        assertEquals(BinaryFrameCodec.batchBytes(2, true), batch.remaining());
+        assertEquals(4, batch.getInt());
+        int countWord = batch.getInt();
+        assertTrue(BinaryFrameCodec.isKeyed(countWord));
+        assertEquals(2, BinaryFrameCodec.frameCount(countWord));
+
+        List<SensorReading> decoded = BinaryFrameCodec.decodeFrames(batch, 2, true);
+        assertEquals(42L, decoded.getFirst().getDeviceSequence());
+        assertEquals(21.5, decoded.getFirst().getTemperature());
+        assertNull(decoded.get(1).getDeviceSequence());
+        assertFalse(batch.hasRemaining());
+    }
+
+    // *** BinaryIngestServer TESTS ***
+
+    // Two batches (one split across writes) each get their own ack
+    @Test
+    void tcpBatchesAreSavedAndAcked() throws Exception {
+        byte[] first = bytes(BinaryFrameCodec.encodeBatch(1, List.of(reading(1L, 10.0), reading(2L, 20.0))));
+        byte[] second = bytes(BinaryFrameCodec.encodeBatch(2, List.of(reading(3L, 30.0), reading(4L, null))));
+
+        try (Socket socket = new Socket("localhost", server.getTcpPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(first);
+            out.write(second, 0, 20);
+            out.flush();
+            Thread.sleep(50);
+            out.write(second, 20, second.length - 20);
+            out.flush();
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            int[][] acks = {{in.readInt(), in.readInt(), in.readInt()}, {in.readInt(), in.readInt(), in.readInt()}};
+
+            // acks can come back in either order
+            for (int[] ack : acks) {
+                if (ack[0] == 1) {
+                    assertArrayEquals(new int[]{1, 2, 0}, ack);
+                } else {
+                    assertArrayEquals(new int[]{2, 1, 1}, ack);
+                }
+            }
+        }
+
+        ArgumentCaptor<List<SensorReading>> saved = ArgumentCaptor.forClass(List.class);
+        verify(service, times(2)).saveReadings(saved.capture());
+        assertEquals(4, saved.getAllValues().stream().mapToInt(List::size).sum());
+    }
+
+    // A batch bigger than allowed closes the connection
+    @Test
+    void oversizedBatchClosesConnection() throws Exception {
+        try (Socket socket = new Socket("localhost", server.getTcpPort())) {
+            socket.getOutputStream().write(bytes(ByteBuffer.allocate(8).putInt(1).putInt(1000).flip()));
+            assertEquals(-1, socket.getInputStream().read());
+        }
+        verify(service, never()).saveReadings(anyList());
+    }
+
+    // A datagram is one batch and is acked back to the sender
+    @Test
+    void udpBatchIsSavedAndAcked() throws Exception {
+        byte[] batch = bytes(BinaryFrameCodec.encodeBatch(9, List.of(reading(1L, 10.0), reading(2L, 20.0), reading(3L, 30.0))));
+
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.setSoTimeout(5000);
+            socket.send(new DatagramPacket(batch, batch.length, InetAddress.getLoopbackAddress(), server.getUdpPort()));
+
+            DatagramPacket reply = new DatagramPacket(new byte[BinaryFrameCodec.ACK_BYTES], BinaryFrameCodec.ACK_BYTES);
+            socket.receive(reply);
+            ByteBuffer ack = ByteBuffer.wrap(reply.getData());
+            assertEquals(9, ack.getInt());
+            assertEquals(3, ack.getInt());
+            assertEquals(0, ack.getInt());
+        }
+    }
+
+    // Keyed frames reach the service with their reading key, so a retried batch is deduplicated
+    @Test
+    void keyedBatchKeepsDeviceSequence() throws Exception {
+        SensorReading reading = reading(1L, 10.0);
+        reading.setDeviceSequence(5L);
+        byte[] batch = bytes(BinaryFrameCodec.encodeBatch(10, List.of(reading)));
+
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.setSoTimeout(5000);
+            socket.send(new DatagramPacket(batch, batch.length, InetAddress.getLoopbackAddress(), server.getUdpPort()));
+            socket.receive(new DatagramPacket(new byte[BinaryFrameCodec.ACK_BYTES], BinaryFrameCodec.ACK_BYTES));
+        }
+
+        ArgumentCaptor<List<SensorReading>> saved = ArgumentCaptor.forClass(List.class);
+        verify(service).saveReadings(saved.capture());
+        assertEquals(5L, saved.getValue().getFirst().getDeviceSequence());
+    }
+}
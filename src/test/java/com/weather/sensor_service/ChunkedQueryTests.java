@@ -0,0 +1,86 @@
+package com.weather.sensor_service;
+
+import com.weather.sensor_service.DTO.SensorAggregationResponseDTO;
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Services.SensorService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Long range queries split into chunks against the real (H2) repository
+// A day counts as a long range here and chunks aim for 10 readings so every query is split many times
+@SpringBootTest(properties = {"sensor.query.chunking.min-range-hours=24", "sensor.query.chunking.target-rows=10"})
+class ChunkedQueryTests {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    // One reading every 6 hours, temperature counts up from 0
+    private static final int READINGS = 200;
+
+    @Autowired
+    private SensorService service;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private void saveReadings(long sensorId) {
+        List<SensorReading> readings = new ArrayList<>();
+        for (int i = 0; i < READINGS; i++) {
+            readings.add(new SensorReading(null, sensorId, (double) i, 50.0, (double) (i % 7), START.plusHours(6L * i)));
+        }
+        service.saveReadings(readings);
+    }
+
+    private double chunksRead() {
+        return meterRegistry.get("sensor.query.chunks").counter().count();
+    }
+
+    private SensorAggregationResponseDTO aggregate(long sensorId, String statistic) {
+        return service.getMetricsAndTimePeriodWithConstraintAndStatistic(
+                List.of(sensorId), true, false, true, START, START.plusDays(60), statistic).getFirst();
+    }
+
+    // Merged chunk totals are the same as one query over the whole range
+    @Test
+    void chunkedAggregatesMatchWholeRange() {
+        saveReadings(7001L);
+        double before = chunksRead();
+
+        assertEquals(99.5, aggregate(7001L, "avg").getTemperatureMetric());
+        assertEquals(0.0, aggregate(7001L, "min").getTemperatureMetric());
+        assertEquals(199.0, aggregate(7001L, "max").getTemperatureMetric());
+        assertEquals(6.0, aggregate(7001L, "max").getWindSpeedMetric());
+        assertEquals(19900.0, aggregate(7001L, "sum").getTemperatureMetric());
+
+        assertTrue(chunksRead() - before > 5 * 4, "every query should be split into several chunks");
+    }
+
+    // Raw readings come back in time order with every reading exactly once
+    @Test
+    void chunkedReadingsStreamInOrder() {
+        saveReadings(7002L);
+
+        List<SensorReading> streamed;
+        try (Stream<List<SensorReading>> chunks = service.streamSpecificSensorMetricsBetweenTimePeriod(
+                7002L, true, false, false, START, START.plusDays(60))) {
+            streamed = chunks.flatMap(List::stream).toList();
+        }
+        assertEquals(READINGS, streamed.size());
+        for (int i = 0; i < READINGS; i++) {
+            assertEquals(START.plusHours(6L * i), streamed.get(i).getTimestamp());
+            assertEquals((double) i, streamed.get(i).getTemperature());
+            assertNull(streamed.get(i).getHumidity());
+        }
+
+        List<SensorReading> listed = service.getSpecificSensorMetricsBetweenTimePeriod(7002L, true, false, false, START, START.plusDays(60));
+        assertEquals(streamed.stream().map(SensorReading::getTimestamp).toList(), listed.stream().map(SensorReading::getTimestamp).toList());
+    }
+}
@@ -0,0 +1,102 @@
+package com.weather.sensor_service;
+
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Services.SensorService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Default vs compact sensor_readings layout : table size per row and full range scan throughput
+// Each layout gets its own database, H2 in memory unless urls are given (the two must be different, empty databases)
+// Not run by ./gradlew build, run with :
+// ./gradlew loadTest --tests '*CompactStorageLoadTests' [-Dload.rows=500000] [-Dload.default-url=jdbc:postgresql://...] [-Dload.compact-url=jdbc:postgresql://...]
+@Tag("load")
+class CompactStorageLoadTests {
+
+    private static final int ROWS = Integer.getInteger("load.rows", 200_000);
+    private static final int SENSORS = 20;
+    private static final int BATCH = 1_000;
+    private static final int SCANS = Integer.getInteger("load.scans", 20);
+
+    private ConfigurableApplicationContext start(String url, String... profiles) {
+        return new SpringApplicationBuilder(SensorServiceApplication.class)
+                .profiles(profiles)
+                .properties("spring.main.web-application-type=none",
+                        "spring.datasource.url=" + url,
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "sensor.catalog.enabled=false")
+                .run();
+    }
+
+    // Bytes used by sensor_readings (heap only for PostgreSQL, whole table for H2)
+    private static long tableBytes(JdbcTemplate jdbc) {
+        String product = jdbc.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        return switch (Objects.requireNonNull(product)) {
+            case "PostgreSQL" -> {
+                jdbc.execute("VACUUM ANALYZE sensor_readings");
+                yield jdbc.queryForObject("select pg_relation_size('sensor_readings')", Long.class);
+            }
+            case "H2" -> jdbc.queryForObject("select disk_space_used('SENSOR_READINGS')", Long.class);
+            default -> -1L;
+        };
+    }
+
+    private void run(String layout, String url, String... profiles) {
+        try (ConfigurableApplicationContext context = start(url, profiles)) {
+            SensorService service = context.getBean(SensorService.class);
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+
+            LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long insertStart = System.nanoTime();
+            for (int i = 0; i < ROWS; i += BATCH) {
+                List<SensorReading> batch = new ArrayList<>(BATCH);
+                for (int j = i; j < Math.min(ROWS, i + BATCH); j++) {
+                    batch.add(new SensorReading(null, (long) (j % SENSORS), random.nextDouble(-10, 40), random.nextDouble(0, 100),
+                            random.nextDouble(0, 30), start.plusSeconds(j)));
+                }
+                service.saveReadings(batch);
+            }
+            double insertSeconds = (System.nanoTime() - insertStart) / 1e9;
+
+            long bytes = tableBytes(jdbc);
+
+            // warm up once, then time full range statistics over every sensor
+            List<Long> sensorIds = new ArrayList<>();
+            for (long sensorId = 0; sensorId < SENSORS; sensorId++) {
+                sensorIds.add(sensorId);
+            }
+            LocalDateTime end = start.plusSeconds(ROWS);
+            service.getMetricsAndTimePeriodWithConstraintAndStatistic(sensorIds, true, true, true, start, end, "avg");
+
+            long scanStart = System.nanoTime();
+            for (int i = 0; i < SCANS; i++) {
+                assertEquals(SENSORS, service.getMetricsAndTimePeriodWithConstraintAndStatistic(
+                        sensorIds, true, true, true, start, end, "avg").size());
+            }
+            double scanSeconds = (System.nanoTime() - scanStart) / 1e9;
+
+            System.out.printf("%-8s rows=%d  table=%,d bytes (%.1f bytes/row)  insert %,.0f rows/s  scan %,.0f rows/s%n",
+                    layout, ROWS, bytes, bytes / (double) ROWS, ROWS / insertSeconds, (double) ROWS * SCANS / scanSeconds);
+        }
+    }
+
+    @Test
+    void defaultVsCompactLayout() {
+        System.out.printf("rows=%d sensors=%d scans=%d%n", ROWS, SENSORS, SCANS);
+
+        run("default", System.getProperty("load.default-url", "jdbc:h2:mem:defaultlayout;DB_CLOSE_DELAY=-1"));
+        run("compact", System.getProperty("load.compact-url", "jdbc:h2:mem:compactlayout;DB_CLOSE_DELAY=-1"), "compact");
+    }
+}
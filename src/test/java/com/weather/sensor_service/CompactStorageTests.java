@@ -0,0 +1,97 @@
+package com.weather.sensor_service;
+
+import com.weather.sensor_service.DTO.SensorAggregationResponseDTO;
+import com.weather.sensor_service.Entity.EpochMicrosConverter;
+import com.weather.sensor_service.Entity.RealMetricConverter;
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Services.SensorService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The compact profile (BIGINT epoch micros timestamps, REAL metrics) against H2
+@SpringBootTest
+@ActiveProfiles("compact")
+class CompactStorageTests {
+
+    @Autowired
+    private SensorService service;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // *** Converter TESTS ***
+
+    // Timestamps survive the round trip to the microsecond, before and after 1970
+    @Test
+    void epochMicrosRoundTrip() {
+        EpochMicrosConverter converter = new EpochMicrosConverter();
+        LocalDateTime timestamp = LocalDateTime.of(2025, 6, 30, 23, 59, 59, 123_456_000);
+
+        assertEquals(1_751_327_999_123_456L, converter.convertToDatabaseColumn(timestamp));
+        assertEquals(timestamp, converter.convertToEntityAttribute(converter.convertToDatabaseColumn(timestamp)));
+
+        LocalDateTime before1970 = LocalDateTime.of(1969, 12, 31, 23, 59, 59, 500_000_000);
+        assertEquals(-500_000L, converter.convertToDatabaseColumn(before1970));
+        assertEquals(before1970, converter.convertToEntityAttribute(-500_000L));
+
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+
+    // Metrics come back as the decimal that was sent
+    @Test
+    void realMetricRoundTrip() {
+        RealMetricConverter converter = new RealMetricConverter();
+
+        assertEquals(20.1, converter.convertToEntityAttribute(converter.convertToDatabaseColumn(20.1)));
+        assertEquals(-3.75, converter.convertToEntityAttribute(converter.convertToDatabaseColumn(-3.75)));
+        assertEquals(1013.25, converter.convertToEntityAttribute(converter.convertToDatabaseColumn(1013.25)));
+        assertNull(converter.convertToDatabaseColumn(null));
+    }
+
+    // *** Compact schema TESTS ***
+
+    // The table is created with the narrow column types
+    @Test
+    void schemaUsesCompactTypes() {
+        List<Map<String, Object>> columns = jdbcTemplate.queryForList(
+                "select column_name, data_type from information_schema.columns where lower(table_name) = 'sensor_readings'");
+
+        Map<String, String> types = new HashMap<>();
+        columns.forEach(column -> types.put(column.get("COLUMN_NAME").toString().toLowerCase(), column.get("DATA_TYPE").toString()));
+
+        assertEquals("BIGINT", types.get("timestamp"));
+        assertEquals("REAL", types.get("temperature"));
+        assertEquals("REAL", types.get("humidity"));
+        assertEquals("REAL", types.get("wind_speed"));
+    }
+
+    // Saving and range / statistic queries work the same as with the default schema
+    @Test
+    void readingsQueryTheSameWay() {
+        LocalDateTime start = LocalDateTime.of(2025, 4, 1, 8, 0, 0, 250_000);
+        service.saveReading(new SensorReading(null, 1301L, 20.1, 55.5, 3.2, start));
+        service.saveReading(new SensorReading(null, 1301L, 22.3, 60.0, 4.8, start.plusMinutes(5)));
+        service.saveReading(new SensorReading(null, 1301L, 99.0, 60.0, 4.8, start.plusDays(1)));
+
+        List<SensorReading> readings = service.getSpecificSensorMetricsBetweenTimePeriod(
+                1301L, true, true, true, start, start.plusMinutes(5));
+        assertEquals(2, readings.size());
+        assertTrue(readings.stream().anyMatch(reading -> reading.getTimestamp().equals(start) && reading.getTemperature().equals(20.1)));
+
+        List<SensorAggregationResponseDTO> max = service.getMetricsAndTimePeriodWithConstraintAndStatistic(
+                List.of(1301L), true, false, true, start, start.plusHours(1), "max");
+        assertEquals(22.3, max.getFirst().getTemperatureMetric());
+        assertEquals(4.8, max.getFirst().getWindSpeedMetric());
+    }
+}
@@ -0,0 +1,75 @@
+package com.weather.sensor_service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Repository.SensorReadingRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Retried create-reading calls against the real (H2) database and its unique constraint
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "sensor.admission.enabled=false")
+class IdempotentIngestTests {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private SensorReadingRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private JsonNode createReading(long sensorId, Long deviceSequence, double temperature) throws Exception {
+        String body = "{\"sensorId\":" + sensorId + ",\"temperature\":" + temperature + ",\"humidity\":50.0,\"windSpeed\":5.0"
+                + (deviceSequence != null ? ",\"deviceSequence\":" + deviceSequence : "") + "}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/sensors/create-reading"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), response.body());
+        return objectMapper.readTree(response.body());
+    }
+
+    // A retry gets the first reading back and only one row is stored
+    @Test
+    void retryIsStoredOnce() throws Exception {
+        JsonNode first = createReading(9401L, 7L, 20.0);
+        JsonNode retry = createReading(9401L, 7L, 20.0);
+
+        assertEquals(first.get("id").asLong(), retry.get("id").asLong());
+        assertEquals(7L, retry.get("deviceSequence").asLong());
+        assertEquals(1, repository.countBySensorId(9401L));
+
+        // a new sequence number, or no key at all, is a new reading
+        createReading(9401L, 8L, 21.0);
+        createReading(9401L, null, 22.0);
+        createReading(9401L, null, 22.0);
+        assertEquals(4, repository.countBySensorId(9401L));
+    }
+
+    // The database refuses a second row with the same key even without the filter in front of it
+    @Test
+    void uniqueConstraintIsTheFinalArbiter() throws Exception {
+        createReading(9402L, 1L, 20.0);
+
+        SensorReading copy = new SensorReading(null, 9402L, 20.0, 50.0, 5.0, LocalDateTime.now());
+        copy.setDeviceSequence(1L);
+        assertThrows(DataIntegrityViolationException.class, () -> repository.save(copy));
+        assertEquals(1, repository.countBySensorId(9402L));
+    }
+}
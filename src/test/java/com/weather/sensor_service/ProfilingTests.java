@@ -0,0 +1,100 @@
+package com.weather.sensor_service;
+
+import com.weather.sensor_service.DTO.RecordingDTO;
+import com.weather.sensor_service.Exceptions.SensorExceptions;
+import com.weather.sensor_service.Profiling.FlightRecordings;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// JFR recording of real requests, read back from the .jfr file
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ProfilingTests {
+
+    @TempDir
+    static Path recordingDirectory;
+
+    @DynamicPropertySource
+    static void recordingProperties(DynamicPropertyRegistry registry) {
+        registry.add("sensor.profiling.directory", () -> recordingDirectory.toString());
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private FlightRecordings recordings;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private int send(HttpRequest.Builder request) throws Exception {
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+    }
+
+    // Each request is recorded with its query / aggregation events under the same request id
+    @Test
+    void requestsAreRecordedWithTheirStages() throws Exception {
+        RecordingDTO started = recordings.start(null);
+        assertEquals("RUNNING", started.getState());
+        assertThrows(SensorExceptions.ProfilingException.class, () -> recordings.start(null));
+
+        String body = "{\"sensorId\":1401,\"temperature\":20.0,\"humidity\":50.0,\"windSpeed\":5.0}";
+        assertEquals(200, send(request("/sensors/create-reading")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))));
+        assertEquals(200, send(request("/sensors/get-metrics-and-time-period-with-constraint?sensorIds=1401&temperature=true").GET()));
+
+        RecordingDTO stopped = recordings.stop();
+        assertEquals("STOPPED", stopped.getState());
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(Path.of(stopped.getFile()));
+        RecordedEvent query = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.weather.sensor.Request"))
+                .filter(event -> "get-metrics-and-time-period-with-constraint".equals(event.getString("endpoint")))
+                .findFirst()
+                .orElseThrow();
+
+        long requestId = query.getLong("requestId");
+        assertEquals(200, query.getInt("status"));
+        assertEquals(1, query.getInt("sensorCount"));
+        assertEquals(1, query.getLong("rowsScanned"));
+        assertTrue(query.getLong("queryTime") > 0);
+        assertTrue(query.getLong("serializationTime") > 0);
+
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("com.weather.sensor.RepositoryQuery")
+                && event.getLong("requestId") == requestId && event.getLong("rows") == 1));
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("com.weather.sensor.Aggregation")
+                && event.getLong("requestId") == requestId));
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("com.weather.sensor.Serialization")
+                && event.getLong("requestId") == requestId));
+
+        assertThrows(SensorExceptions.ProfilingException.class, () -> recordings.stop());
+    }
+
+    // Asking for the status before any recording is an idle state, not an error
+    @Test
+    void statusWithoutRecordingIsIdle() {
+        RecordingDTO status = new FlightRecordings(System.getProperty("java.io.tmpdir"), "default", false).status();
+        assertEquals(RecordingDTO.IDLE, status.getState());
+        assertNull(status.getFile());
+    }
+}
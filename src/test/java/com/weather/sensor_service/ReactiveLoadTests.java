@@ -0,0 +1,156 @@
+package com.weather.sensor_service;
+
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Services.ReactiveSensorService;
+import com.weather.sensor_service.Services.SensorService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Servlet vs reactive profile under the same mixed load : slow long-range reads running alongside creates
+// Both apps are started in this JVM with the same thread limit, so the numbers are directly comparable
+// Not run by ./gradlew build, run with : ./gradlew loadTest --tests '*ReactiveLoadTests' [-Dload.threads=64] [-Dload.seconds=10]
+@Tag("load")
+class ReactiveLoadTests {
+
+    private static final int THREADS = Integer.getInteger("load.threads", 64);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 10);
+    private static final int SERVER_THREADS = Integer.getInteger("load.server-threads", 16);
+    private static final int RANGE_READINGS = Integer.getInteger("load.range-readings", 20_000);
+    private static final long RANGE_SENSOR = 1L;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private ConfigurableApplicationContext startServlet() {
+        return new SpringApplicationBuilder(SensorServiceApplication.class)
+                .properties("server.port=0",
+                        "server.tomcat.threads.max=" + SERVER_THREADS,
+                        "spring.datasource.url=jdbc:h2:mem:servletload;DB_CLOSE_DELAY=-1",
+                        "sensor.admission.enabled=false")
+                .run();
+    }
+
+    private ConfigurableApplicationContext startReactive() {
+        return new SpringApplicationBuilder(SensorServiceApplication.class)
+                .profiles("reactive")
+                .properties("server.port=0",
+                        "reactor.netty.ioWorkerCount=" + SERVER_THREADS,
+                        "spring.r2dbc.url=r2dbc:h2:mem:///reactiveload;DB_CLOSE_DELAY=-1",
+                        "spring.r2dbc.username=sa",
+                        "spring.r2dbc.password=",
+                        "spring.sql.init.mode=always",
+                        "spring.sql.init.schema-locations=classpath:schema-reactive.sql",
+                        "sensor.reactive.next-id-sql=SELECT NEXT VALUE FOR sensor_readings_seq")
+                .run();
+    }
+
+    private static SensorReading reading(long sensorId) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new SensorReading(null, sensorId, random.nextDouble(-10, 40), random.nextDouble(0, 100),
+                random.nextDouble(0, 30), LocalDateTime.now());
+    }
+
+    // Half the threads read the long range, the other half create readings
+    private void run(String mode, int port) throws Exception {
+        AtomicLong creates = new AtomicLong();
+        AtomicLong reads = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicLong createNanos = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SECONDS);
+
+        HttpRequest range = HttpRequest.newBuilder(URI.create("http://localhost:" + port
+                + "/sensors/get-metrics-and-time-period?sensorId=" + RANGE_SENSOR + "&temperature=true&humidity=true&wind=true")).GET().build();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            boolean reader = i % 2 == 0;
+            workers.add(pool.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    try {
+                        if (reader) {
+                            int status = client.send(range, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            (status < 300 ? reads : failed).incrementAndGet();
+                        } else {
+                            long start = System.nanoTime();
+                            int status = create(port);
+                            createNanos.addAndGet(System.nanoTime() - start);
+                            (status < 300 ? creates : failed).incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        pool.shutdown();
+
+        System.out.printf("%-9s creates %7.0f req/s (mean %.2fms)  range reads %6.1f req/s  failed=%d%n",
+                mode, creates.get() / (double) SECONDS,
+                creates.get() > 0 ? createNanos.get() / 1e6 / creates.get() : 0.0,
+                reads.get() / (double) SECONDS, failed.get());
+
+        assertEquals(0, failed.get(), mode + " had failed requests");
+        assertTrue(creates.get() > 0);
+    }
+
+    private int create(int port) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String body = "{\"sensorId\":" + (2 + random.nextInt(50))
+                + ",\"temperature\":" + random.nextDouble(-10, 40)
+                + ",\"humidity\":" + random.nextDouble(0, 100)
+                + ",\"windSpeed\":" + random.nextDouble(0, 30) + "}";
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/sensors/create-reading"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Test
+    void servletAndReactiveUnderMixedLoad() throws Exception {
+        System.out.printf("threads=%d seconds=%d server-threads=%d range=%d readings%n",
+                THREADS, SECONDS, SERVER_THREADS, RANGE_READINGS);
+
+        try (ConfigurableApplicationContext servlet = startServlet()) {
+            List<SensorReading> seed = new ArrayList<>(RANGE_READINGS);
+            for (int i = 0; i < RANGE_READINGS; i++) {
+                seed.add(reading(RANGE_SENSOR));
+            }
+            servlet.getBean(SensorService.class).saveReadings(seed);
+
+            run("servlet", Integer.parseInt(servlet.getEnvironment().getProperty("local.server.port")));
+        }
+
+        try (ConfigurableApplicationContext reactive = startReactive()) {
+            ReactiveSensorService service = reactive.getBean(ReactiveSensorService.class);
+            Flux.range(0, RANGE_READINGS)
+                    .flatMap(i -> service.saveReading(reading(RANGE_SENSOR)), 32)
+                    .blockLast();
+
+            run("reactive", Integer.parseInt(reactive.getEnvironment().getProperty("local.server.port")));
+        }
+    }
+}
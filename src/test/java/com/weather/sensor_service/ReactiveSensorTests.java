@@ -0,0 +1,166 @@
+package com.weather.sensor_service;
+
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Services.ReactiveSensorService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The reactive profile against an in-memory H2 over R2DBC
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactivetests;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:schema-reactive.sql",
+        "sensor.reactive.next-id-sql=SELECT NEXT VALUE FOR sensor_readings_seq"
+})
+@ActiveProfiles("reactive")
+class ReactiveSensorTests {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private ReactiveSensorService service;
+
+    private void create(long sensorId, double temperature) {
+        client.post().uri("/sensors/create-reading")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new SensorReading(null, sensorId, temperature, 50.0, 5.0, null))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(SensorReading.class)
+                .value(saved -> {
+                    assertTrue(saved.getId() > 0, "id : " + saved.getId());
+                    assertNotNull(saved.getTimestamp());
+                });
+    }
+
+    // Range readings stream back one per line with only the requested metrics
+    @Test
+    void rangeStreamsReadingsAsNdjson() {
+        create(501L, 10.0);
+        create(501L, 20.0);
+        create(501L, 30.0);
+
+        Flux<SensorReading> readings = client.get()
+                .uri("/sensors/get-metrics-and-time-period?sensorId=501&temperature=true")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(SensorReading.class)
+                .getResponseBody();
+
+        StepVerifier.create(readings)
+                .thenConsumeWhile(reading -> reading.getTemperature() != null && reading.getHumidity() == null && reading.getWindSpeed() == null)
+                .verifyComplete();
+    }
+
+    // Statistics match the servlet service's results
+    @Test
+    void constraintEndpointCalculatesStatistics() {
+        create(502L, 10.0);
+        create(502L, 20.0);
+        create(503L, 5.0);
+
+        client.get()
+                .uri("/sensors/get-metrics-and-time-period-with-constraint?sensorIds=503,502&temperature=true&statistic=avg")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                // same order as requested
+                .jsonPath("$[0].sensorId").isEqualTo(503)
+                .jsonPath("$[0].temperatureMetric").isEqualTo(5.0)
+                .jsonPath("$[1].temperatureMetric").isEqualTo(15.0)
+                .jsonPath("$[1].humidityMetric").doesNotExist();
+    }
+
+    // SensorNotFoundException still maps to 404
+    @Test
+    void unknownSensorReturnsNotFound() {
+        client.get()
+                .uri("/sensors/get-metrics-and-time-period?sensorId=99999&temperature=true")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Sensor Not Found");
+    }
+
+    // Invalid statistic still maps to 400
+    @Test
+    void invalidStatisticReturnsBadRequest() {
+        create(504L, 10.0);
+
+        client.get()
+                .uri("/sensors/get-metrics-and-time-period-with-constraint?sensorIds=504&temperature=true&statistic=median")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    // Missing metrics are rejected the same way as the servlet service
+    @Test
+    void incompleteReadingReturnsSaveError() {
+        client.post().uri("/sensors/create-reading")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"sensorId\":505,\"temperature\":10.0}")
+                .exchange()
+                .expectStatus().is5xxServerError()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Sensor Save Error");
+    }
+
+    // Concurrent saves crossing several id blocks never reuse an id
+    @Test
+    void concurrentSavesGetUniqueIds() {
+        Set<Long> ids = Flux.range(0, 3 * SensorReading.ID_ALLOCATION_SIZE)
+                .flatMap(i -> service.saveReading(new SensorReading(null, 506L, (double) i, 50.0, 5.0, null)), 16)
+                .map(SensorReading::getId)
+                .collect(Collectors.toSet())
+                .block();
+
+        assertNotNull(ids);
+        assertEquals(3 * SensorReading.ID_ALLOCATION_SIZE, ids.size());
+        ids.forEach(id -> assertTrue(id > 0, "id : " + id));
+    }
+
+    // A sequence starting at 1 gives 1 on its own then blocks of 50 ending at each later value, never below 1 or overlapping
+    @Test
+    void idBlocksFromSequenceStartingAtOne() {
+        assertEquals(1, ReactiveSensorService.firstOfBlock(1));
+        assertEquals(2, ReactiveSensorService.firstOfBlock(51));
+        assertEquals(52, ReactiveSensorService.firstOfBlock(101));
+    }
+
+    // Servlet only endpoints say they aren't available rather than silently missing
+    @Test
+    void servletOnlyEndpointsAnswerNotAvailable() {
+        client.get().uri("/groups")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Not Available")
+                .jsonPath("$.message").value(message -> assertTrue(message.toString().contains("/groups")));
+
+        client.get().uri("/sensors/get-group-metrics?groupNames=north&temperature=true&statistic=avg")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Not Available");
+
+        client.post().uri("/admin/shards/rebalance")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
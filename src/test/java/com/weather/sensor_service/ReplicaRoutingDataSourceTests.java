@@ -0,0 +1,107 @@
+package com.weather.sensor_service;
+
+import com.weather.sensor_service.Config.ReplicaRouting;
+import com.weather.sensor_service.Config.ReplicaRoutingDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two in memory H2 databases stand in for the primary and a replica
+class ReplicaRoutingDataSourceTests {
+
+    private final DataSource primary = new DriverManagerDataSource("jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1");
+    private final DataSource replicaA = new DriverManagerDataSource("jdbc:h2:mem:replicaA;DB_CLOSE_DELAY=-1");
+    private final DataSource replicaB = new DriverManagerDataSource("jdbc:h2:mem:replicaB;DB_CLOSE_DELAY=-1");
+
+    @AfterEach
+    void clearTransactionState() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.afterCompletion(0));
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    // Returns the url of the database a connection was routed to
+    private String routedUrl(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getURL();
+        }
+    }
+
+    // Writes (no read-only transaction) go to the primary
+    @Test
+    void writesGoToPrimary() throws SQLException {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(replicaA, replicaB));
+
+        assertTrue(routedUrl(routing).contains("primary"));
+    }
+
+    // Read-only transactions are balanced across replicas
+    @Test
+    void readsAreBalancedAcrossReplicas() throws SQLException {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(replicaA, replicaB));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        String first = routedUrl(routing);
+        String second = routedUrl(routing);
+
+        assertTrue(first.contains("replica"));
+        assertTrue(second.contains("replica"));
+        assertNotEquals(first, second);
+    }
+
+    // Lazy proxy picks the route once the transaction is read-only
+    @Test
+    void lazyProxyRoutesOnFirstUse() throws SQLException {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(replicaA));
+        DataSource proxy = new LazyConnectionDataSourceProxy(routing);
+
+        try (Connection connection = proxy.getConnection()) {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+            assertTrue(connection.getMetaData().getURL().contains("replicaA"));
+        }
+    }
+
+    // Unhealthy replicas are taken out of rotation and reads fall back to the primary
+    @Test
+    void unhealthyReplicasAreSkipped() throws SQLException {
+        DataSource broken = new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/missing");
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(broken));
+
+        routing.checkHealth(1);
+        assertTrue(routing.getHealthyReplicas().isEmpty());
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertTrue(routedUrl(routing).contains("primary"));
+    }
+
+    // Recently written sensors are read from the primary until the transaction ends
+    @Test
+    void readYourWritesPinsPrimary() throws SQLException {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(replicaA));
+        ReplicaRouting replicaRouting = new ReplicaRouting(60_000);
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        replicaRouting.readYourWrites(List.of(1L));
+        assertTrue(routedUrl(routing).contains("replicaA"));
+
+        replicaRouting.recordWrite(1L);
+        replicaRouting.readYourWrites(List.of(1L));
+        assertTrue(routedUrl(routing).contains("primary"));
+
+        // transaction completes
+        clearTransactionState();
+        assertFalse(ReplicaRouting.isPrimaryForced());
+    }
+}
@@ -0,0 +1,185 @@
+package com.weather.sensor_service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.weather.sensor_service.DTO.SensorAggregationResponseDTO;
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Services.ResponseCache;
+import com.weather.sensor_service.Services.SensorService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// ETags, 304s, the cache of encoded responses and CBOR through the full HTTP stack
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "sensor.admission.enabled=false")
+class ResponseCacheTests {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private SensorService service;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    // One reading an hour through the day, as if sent late by binary ingest
+    private void saveDay(long sensorId, double temperature) {
+        List<SensorReading> readings = new ArrayList<>();
+        for (int hour = 0; hour < 24; hour++) {
+            readings.add(new SensorReading(null, sensorId, temperature, 50.0, 5.0, DAY.plusHours(hour)));
+        }
+        service.saveReadings(readings);
+    }
+
+    private HttpResponse<byte[]> getDay(long sensorId, String accept, String ifNoneMatch) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port
+                + "/sensors/get-metrics-and-time-period-with-constraint?sensorIds=" + sensorId
+                + "&temperature=true&startDate=" + DAY + "&endDate=" + DAY.plusDays(1)));
+        if (accept != null) {
+            request.header("Accept", accept);
+        }
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return client.send(request.GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private double cacheCount(String result) {
+        return meterRegistry.get("sensor.response.cache").tag("result", result).counter().count();
+    }
+
+    // A settled range is served from the cache and an unchanged one is a 304 with no body
+    @Test
+    void settledRangeIsCachedAndRevalidated() throws Exception {
+        saveDay(9301L, 20.0);
+
+        HttpResponse<byte[]> first = getDay(9301L, null, null);
+        assertEquals(200, first.statusCode());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+
+        double hits = cacheCount("hit");
+        HttpResponse<byte[]> second = getDay(9301L, null, null);
+        assertEquals(200, second.statusCode());
+        assertArrayEquals(first.body(), second.body());
+        assertEquals(hits + 1, cacheCount("hit"));
+
+        HttpResponse<byte[]> notModified = getDay(9301L, null, etag);
+        assertEquals(304, notModified.statusCode());
+        assertEquals(0, notModified.body().length);
+    }
+
+    // A late reading inside a cached range drops the entry so the next request sees it
+    @Test
+    void lateReadingInvalidates() throws Exception {
+        saveDay(9302L, 20.0);
+        String etag = getDay(9302L, null, null).headers().firstValue("ETag").orElseThrow();
+
+        service.saveReadings(List.of(new SensorReading(null, 9302L, 45.0, 50.0, 5.0, DAY.plusMinutes(30))));
+
+        HttpResponse<byte[]> changed = getDay(9302L, null, etag);
+        assertEquals(200, changed.statusCode());
+        assertNotEquals(etag, changed.headers().firstValue("ETag").orElseThrow());
+        assertEquals(21.0, objectMapper.readTree(changed.body()).get(0).get("temperatureMetric").asDouble(), 1e-9);
+    }
+
+    // Accept: application/cbor gets the same answer in CBOR, cached separately from the JSON one
+    // Entries of other sensors survive an invalidation, and every entry expires after ttl-seconds
+    @Test
+    void entriesInvalidatedBySensorAndExpire() throws Exception {
+        ResponseCache cache = new ResponseCache(new SimpleMeterRegistry(), true, 60, 1, 1024, 1);
+        cache.put("a", new ResponseCache.Entry("\"a\"", "application/json", new byte[10], Set.of(1L), false), cache.generation());
+        cache.put("b", new ResponseCache.Entry("\"b\"", "application/json", new byte[10], Set.of(2L), false), cache.generation());
+
+        cache.recordWrite(new SensorReading(null, 1L, 20.0, 50.0, 5.0, DAY));
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+
+        Thread.sleep(1100);
+        assertNull(cache.get("b"));
+    }
+
+    // Invalidation markers are bounded, past the limit anything worked out before them isn't stored
+    @Test
+    void invalidationMarkersAreBounded() {
+        ResponseCache cache = new ResponseCache(new SimpleMeterRegistry(), true, 60, 1, 1024, 300);
+        long before = cache.generation();
+        for (long sensorId = 0; sensorId <= 10_000; sensorId++) {
+            cache.recordWrite(new SensorReading(null, sensorId, 20.0, 50.0, 5.0, DAY));
+        }
+
+        cache.put("old", new ResponseCache.Entry("\"o\"", "application/json", new byte[10], Set.of(20_000L), false), before);
+        assertNull(cache.get("old"));
+        cache.put("new", new ResponseCache.Entry("\"n\"", "application/json", new byte[10], Set.of(20_000L), false), cache.generation());
+        assertNotNull(cache.get("new"));
+    }
+
+    @Test
+    void cborIsNegotiated() throws Exception {
+        saveDay(9303L, 20.0);
+
+        HttpResponse<byte[]> json = getDay(9303L, null, null);
+        HttpResponse<byte[]> cbor = getDay(9303L, "application/cbor", null);
+        assertEquals(200, cbor.statusCode());
+        assertTrue(cbor.headers().firstValue("Content-Type").orElseThrow().startsWith("application/cbor"));
+        assertNotEquals(json.headers().firstValue("ETag"), cbor.headers().firstValue("ETag"));
+
+        JsonNode decoded = new CBORMapper().readTree(cbor.body());
+        assertEquals(objectMapper.readTree(json.body()), decoded);
+    }
+
+    // The hand written serializers give exactly what Jackson's bean serializers did
+    @Test
+    void serializersMatchJackson() throws Exception {
+        ObjectMapper plain = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        List<SensorReading> readings = List.of(
+                new SensorReading(1L, 7L, 20.5, null, 3.25, LocalDateTime.of(2024, 3, 9, 7, 5, 0)),
+                new SensorReading(2L, 7L, null, 40.0, null, LocalDateTime.of(2024, 3, 9, 7, 5, 9, 120_000_000)),
+                new SensorReading(3L, 7L, -1.0, 0.0, 0.0, LocalDateTime.of(2024, 12, 31, 23, 59, 59, 123_456_000)),
+                new SensorReading(null, null, null, null, null, null));
+        readings.get(0).setDeviceSequence(42L);
+        assertEquals(plain.writeValueAsString(readings), objectMapper.writeValueAsString(readings));
+
+        SensorAggregationResponseDTO exact = new SensorAggregationResponseDTO(7L, "avg", 20.5, 3.0, 40.0,
+                LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 1, 2, 0, 0, 0, 1_000));
+        exact.setHumidityMetric(null);
+        SensorAggregationResponseDTO approximate = new SensorAggregationResponseDTO(null, "sum", 1.0, 2.0, 3.0, null, null);
+        approximate.setGroupName("north");
+        approximate.setApproximate(true);
+        approximate.setSampleSize(100L);
+        approximate.setReadingCount(10_000L);
+        approximate.setConfidenceLevel(0.95);
+        approximate.setTemperatureMargin(0.1);
+        List<SensorAggregationResponseDTO> dtos = List.of(exact, approximate);
+        assertEquals(plain.writeValueAsString(dtos), objectMapper.writeValueAsString(dtos));
+    }
+}
@@ -0,0 +1,135 @@
+package com.weather.sensor_service;
+
+import com.weather.sensor_service.DTO.SensorAggregationResponseDTO;
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Exceptions.SensorExceptions;
+import com.weather.sensor_service.Repository.SensorReadingRepository;
+import com.weather.sensor_service.Services.SensorCatalog;
+import com.weather.sensor_service.Services.SensorService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Sensor catalog against the real (H2) repository, authoritative so it may reject queries
+@SpringBootTest(properties = "sensor.catalog.authoritative=true")
+class SensorCatalogTests {
+
+    private static final LocalDateTime FIRST = LocalDateTime.of(2025, 3, 1, 10, 0);
+    private static final LocalDateTime LAST = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    @Autowired
+    private SensorService service;
+
+    @Autowired
+    private SensorCatalog catalog;
+
+    @SpyBean
+    private SensorReadingRepository repository;
+
+    private void save(long sensorId, LocalDateTime timestamp, double temperature) {
+        service.saveReading(new SensorReading(null, sensorId, temperature, 50.0, 5.0, timestamp));
+    }
+
+    // Unknown sensors are rejected without a query
+    @Test
+    void unknownSensorRejectedWithoutQuery() {
+        assertTrue(catalog.isActive());
+
+        assertThrows(SensorExceptions.SensorNotFoundException.class,
+                () -> service.getSpecificSensorMetricsBetweenTimePeriod(1299L, true, true, true, null, null));
+        assertThrows(SensorExceptions.SensorNotFoundException.class,
+                () -> service.getMetricsAndTimePeriodWithConstraintAndStatistic(List.of(1299L), true, false, false, null, null, "avg"));
+
+        verify(repository, never()).findBySensorIdAndTimestampBetween(eq(1299L), any(), any());
+    }
+
+    // A range outside the sensor's readings is rejected without a query, an overlapping one is queried
+    @Test
+    void nonOverlappingRangeRejectedWithoutQuery() {
+        save(1201L, FIRST, 10.0);
+        save(1201L, LAST, 20.0);
+
+        assertThrows(SensorExceptions.SensorNotFoundException.class,
+                () -> service.getSpecificSensorMetricsBetweenTimePeriod(1201L, true, false, false, LAST.plusSeconds(1), LAST.plusDays(1)));
+        assertThrows(SensorExceptions.SensorNotFoundException.class,
+                () -> service.getSpecificSensorMetricsBetweenTimePeriod(1201L, true, false, false, FIRST.minusDays(1), FIRST.minusSeconds(1)));
+        verify(repository, never()).findBySensorIdAndTimestampBetween(eq(1201L), any(), any());
+
+        assertEquals(2, service.getSpecificSensorMetricsBetweenTimePeriod(1201L, true, false, false, FIRST, LAST).size());
+        verify(repository, times(1)).findBySensorIdAndTimestampBetween(eq(1201L), any(), any());
+    }
+
+    // The default 1970 start is narrowed to the sensors' first reading, the open end stays now
+    @Test
+    void defaultRangeClampedToExtent() {
+        save(1202L, FIRST, 10.0);
+        save(1202L, FIRST.plusMinutes(30), 20.0);
+        save(1203L, LAST, 30.0);
+
+        List<SensorAggregationResponseDTO> results = service.getMetricsAndTimePeriodWithConstraintAndStatistic(
+                List.of(1202L, 1203L), true, false, false, null, null, "max");
+
+        assertEquals(FIRST, results.get(0).getStartDate());
+        assertTrue(results.get(0).getEndDate().isAfter(LocalDateTime.now().minusMinutes(1)));
+        assertEquals(20.0, results.get(0).getTemperatureMetric());
+        assertEquals(30.0, results.get(1).getTemperatureMetric());
+        verify(repository).findBySensorIdAndTimestampBetween(eq(1202L), eq(FIRST), any());
+
+        // a given end is kept
+        results = service.getMetricsAndTimePeriodWithConstraintAndStatistic(
+                List.of(1202L), true, false, false, null, FIRST.plusMinutes(10), "max");
+        assertEquals(FIRST, results.get(0).getStartDate());
+        assertEquals(FIRST.plusMinutes(10), results.get(0).getEndDate());
+        assertEquals(10.0, results.get(0).getTemperatureMetric());
+    }
+
+    // Readings already in the database are picked up by the startup load
+    @Test
+    void loadPicksUpExistingReadings() {
+        repository.save(new SensorReading(null, 1204L, 10.0, 50.0, 5.0, FIRST));
+        repository.save(new SensorReading(null, 1204L, 20.0, 50.0, 5.0, LAST));
+        assertNull(catalog.get(1204L));
+
+        service.loadCatalog();
+
+        assertEquals(FIRST, catalog.get(1204L).getFirstTimestamp());
+        assertEquals(LAST, catalog.get(1204L).getLastTimestamp());
+        assertEquals(2, catalog.get(1204L).getReadingCount());
+        assertEquals(2, service.getSpecificSensorMetricsBetweenTimePeriod(1204L, true, false, false, null, null).size());
+    }
+
+    // By default other instances may be writing, so a miss goes to the database instead of a 404 and nothing is narrowed
+    @Test
+    void defaultCatalogNeverRejects() {
+        SensorCatalog shared = new SensorCatalog(true, false, new SimpleMeterRegistry());
+        shared.load(List.of());
+        shared.record(new SensorReading(null, 1206L, 10.0, 50.0, 5.0, FIRST));
+
+        assertTrue(shared.isActive());
+        assertFalse(shared.isAuthoritative());
+        assertDoesNotThrow(shared::requireAnyReadings);
+        assertDoesNotThrow(() -> shared.requireReadings(1299L, FIRST, LAST));
+        assertDoesNotThrow(() -> shared.requireReadings(1206L, LAST, LAST.plusDays(1)));
+        assertNull(shared.extentOf(List.of(1206L)));
+
+        // still a hint for chunk sizing
+        assertEquals(FIRST, shared.get(1206L).getFirstTimestamp());
+    }
+
+    // A reading newer than the catalog's last one (written by another instance) is still found by an open ended query
+    @Test
+    void openEndFindsReadingsTheCatalogMissed() {
+        save(1205L, FIRST, 10.0);
+        repository.save(new SensorReading(null, 1205L, 20.0, 50.0, 5.0, LAST));
+
+        assertEquals(2, service.getSpecificSensorMetricsBetweenTimePeriod(1205L, true, false, false, null, null).size());
+    }
+}
@@ -0,0 +1,120 @@
+package com.weather.sensor_service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Throughput of create-reading and range queries through the full HTTP stack
+// Not run by ./gradlew build, run with : ./gradlew loadTest [-Dspring.profiles.active=prod] [-Dload.threads=32] [-Dload.seconds=30]
+// Compare the printed numbers and pool wait times between profiles / pool settings
+@Tag("load")
+// Limits off, this measures the service not the 429s
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "sensor.admission.enabled=false")
+class SensorLoadTests {
+
+    private static final int THREADS = Integer.getInteger("load.threads", 16);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 10);
+    private static final int SENSORS = 50;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    // Runs request on THREADS threads for SECONDS and returns the number of successful requests
+    private long run(String name, ThrowingRequest request) throws Exception {
+        AtomicLong ok = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SECONDS);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            workers.add(pool.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    try {
+                        if (request.send() < 300) {
+                            ok.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        pool.shutdown();
+
+        Timer acquire = meterRegistry.find("hikaricp.connections.acquire").timer();
+        System.out.printf("%-12s %8.0f req/s  ok=%d failed=%d  pool wait mean=%.3fms max=%.3fms%n",
+                name, ok.get() / (double) SECONDS, ok.get(), failed.get(),
+                acquire != null ? acquire.mean(TimeUnit.MILLISECONDS) : 0.0,
+                acquire != null ? acquire.max(TimeUnit.MILLISECONDS) : 0.0);
+
+        assertEquals(0, failed.get(), name + " had failed requests");
+        return ok.get();
+    }
+
+    private int createReading() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String body = "{\"sensorId\":" + random.nextInt(SENSORS)
+                + ",\"temperature\":" + random.nextDouble(-10, 40)
+                + ",\"humidity\":" + random.nextDouble(0, 100)
+                + ",\"windSpeed\":" + random.nextDouble(0, 30) + "}";
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/sensors/create-reading"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private int rangeQuery() throws Exception {
+        int sensorId = ThreadLocalRandom.current().nextInt(SENSORS);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port
+                        + "/sensors/get-metrics-and-time-period-with-constraint?sensorIds=" + sensorId
+                        + "&temperature=true&humidity=true&wind=true&statistic=avg"))
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Test
+    void createReadingAndRangeQueryThroughput() throws Exception {
+        System.out.printf("threads=%d seconds=%d%n", THREADS, SECONDS);
+
+        assertTrue(run("create", this::createReading) > 0);
+        assertTrue(run("range-query", this::rangeQuery) > 0);
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRequest {
+        int send() throws Exception;
+    }
+}
@@ -1,30 +1,72 @@
 package com.weather.sensor_service;
 
+import com.weather.sensor_service.Alerts.InMemoryAlertSink;
+import com.weather.sensor_service.DTO.AlertRuleDTO;
 import com.weather.sensor_service.DTO.SensorAggregationResponseDTO;
+import com.weather.sensor_service.DTO.SensorAlertDTO;
+import com.weather.sensor_service.DTO.SensorGroupDTO;
 import com.weather.sensor_service.Entity.SensorReading;
 import com.weather.sensor_service.Exceptions.SensorExceptions;
+import com.weather.sensor_service.Repository.SensorGroupRepository;
 import com.weather.sensor_service.Repository.SensorReadingRepository;
+import com.weather.sensor_service.Services.AlertEngine;
+import com.weather.sensor_service.Services.LiveWindowAggregator;
+import com.weather.sensor_service.Services.ReadingDeduplicator;
+import com.weather.sensor_service.Services.SensorGroupService;
 import com.weather.sensor_service.Services.SensorService;
+import com.weather.sensor_service.Services.SlidingWindow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
-@SpringBootTest
+// Long ranges would be split into chunks which the mocked queries don't answer, see ChunkedQueryTests
+@SpringBootTest(properties = "sensor.query.chunking.enabled=false")
 class SensorServiceApplicationTests {
 
     @Autowired
     private SensorService service;
 
+    @Autowired
+    private AlertEngine alertEngine;
+
+    @Autowired
+    private InMemoryAlertSink alertSink;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SensorGroupService groupService;
+
+    @Autowired
+    private SensorGroupRepository groupRepository;
+
     @MockBean
     private SensorReadingRepository repository;
 
@@ -113,6 +155,107 @@ class SensorServiceApplicationTests {
     }
 
 
+    // ***  saveReadings(List<SensorReading> readings) TESTS ***
+
+    // Valid readings are saved together, invalid ones are skipped
+    @Test
+    void saveReadingsSkipsInvalidReadings() {
+        SensorReading valid1 = new SensorReading(null, 21L, 20.0, 60.0, 5.0, LocalDateTime.now());
+        SensorReading valid2 = new SensorReading(null, 22L, 21.0, 61.0, 6.0, LocalDateTime.now());
+        SensorReading missingHumidity = new SensorReading(null, 23L, 20.0, null, 5.0, LocalDateTime.now());
+
+        assertEquals(2, service.saveReadings(List.of(valid1, missingHumidity, valid2)));
+        verify(repository, times(1)).saveAll(List.of(valid1, valid2));
+    }
+
+    // Database failure
+    @Test
+    void saveReadingsThrowsWhenRepositoryFails() {
+        SensorReading reading = new SensorReading(null, 21L, 20.0, 60.0, 5.0, LocalDateTime.now());
+        when(repository.saveAll(anyList())).thenThrow(new RuntimeException("DB FAILED"));
+
+        assertThrows(SensorExceptions.SensorSaveException.class, () -> service.saveReadings(List.of(reading)));
+    }
+
+
+    // ***  Idempotent ingest (deviceSequence) TESTS ***
+
+    private static SensorReading keyed(long sensorId, long deviceSequence) {
+        SensorReading reading = new SensorReading(null, sensorId, 20.0, 60.0, 5.0, LocalDateTime.now());
+        reading.setDeviceSequence(deviceSequence);
+        return reading;
+    }
+
+    private double duplicates(String detectedBy) {
+        Counter counter = meterRegistry.find("sensor.ingest.duplicates").tag("detected", detectedBy).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    // A retry the dedup filter has seen is looked up and the stored copy returned, nothing is saved again
+    @Test
+    void retriedReadingReturnsStoredCopy() {
+        SensorReading first = keyed(31L, 1001L);
+        SensorReading stored = new SensorReading(501L, 31L, 20.0, 60.0, 5.0, first.getTimestamp());
+        stored.setDeviceSequence(1001L);
+        when(repository.save(first)).thenReturn(stored);
+        assertSame(stored, service.saveReading(first));
+
+        SensorReading retry = keyed(31L, 1001L);
+        when(repository.findBySensorIdAndDeviceSequence(31L, 1001L)).thenReturn(Optional.of(stored));
+        double before = duplicates("filter");
+
+        assertSame(stored, service.saveReading(retry));
+        verify(repository, never()).save(retry);
+        assertEquals(before + 1, duplicates("filter"));
+    }
+
+    // A duplicate the filter doesn't know about is caught by the unique constraint, the stored copy is returned
+    @Test
+    void constraintViolationReturnsStoredCopy() {
+        SensorReading reading = keyed(32L, 2002L);
+        SensorReading stored = new SensorReading(502L, 32L, 20.0, 60.0, 5.0, LocalDateTime.now().minusMinutes(1));
+        when(repository.save(reading)).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(repository.findBySensorIdAndDeviceSequence(32L, 2002L)).thenReturn(Optional.of(stored));
+
+        assertSame(stored, service.saveReading(reading));
+        assertTrue(duplicates("constraint") >= 1);
+    }
+
+    // A constraint violation which isn't a duplicate is still a save failure
+    @Test
+    void constraintViolationWithoutStoredCopyThrows() {
+        SensorReading reading = keyed(34L, 4004L);
+        when(repository.save(reading)).thenThrow(new DataIntegrityViolationException("something else"));
+
+        assertThrows(SensorExceptions.SensorSaveException.class, () -> service.saveReading(reading));
+    }
+
+    // The same key twice in one batch is saved once
+    @Test
+    void batchSavesEachKeyOnce() {
+        SensorReading first = keyed(33L, 3003L);
+        SensorReading again = keyed(33L, 3003L);
+        SensorReading next = keyed(33L, 3004L);
+
+        assertEquals(2, service.saveReadings(List.of(first, again, next)));
+        verify(repository, times(1)).saveAll(List.of(first, next));
+    }
+
+    // The filter answers "never seen" for new keys, "maybe" for repeats, and forgets keys once their windows have passed
+    @Test
+    void dedupFilterForgetsOldWindows() throws InterruptedException {
+        ReadingDeduplicator filter = new ReadingDeduplicator(new SimpleMeterRegistry(), true, 1, 1, 1000, 0.01);
+
+        assertFalse(filter.seenBefore(1L, 1L));
+        assertTrue(filter.seenBefore(1L, 1L));
+        assertFalse(filter.seenBefore(1L, 2L));
+        assertFalse(filter.seenBefore(2L, 1L));
+
+        Thread.sleep(2100);
+        assertFalse(filter.seenBefore(1L, 1L));
+    }
+
+
     // ***  getAllReadings() TESTS ***
 
     // Throws exception when no data is present
@@ -474,4 +617,541 @@ class SensorServiceApplicationTests {
         assertEquals(30.0, dto2.getTemperatureMetric());
     }
 
+
+    // *** getLiveMetricsWithStatistic(List<Long> sensorIds, boolean temperature, boolean humidity, boolean wind, Long windowSeconds, String statistic) TESTS ***
+
+    // Saves a valid reading for a sensor (timestamp is now)
+    private void saveLiveReading(Long sensorId, double temperature, double humidity, double windSpeed) {
+        SensorReading reading = new SensorReading(null, sensorId, temperature, humidity, windSpeed, LocalDateTime.now());
+        service.saveReading(reading);
+    }
+
+    // HAPPY PATH - statistics come from readings saved inside the window
+    @Test
+    void returnsLiveStatisticsFromSavedReadings() {
+        saveLiveReading(901L, 10.0, 20.0, 5.0);
+        saveLiveReading(901L, 30.0, 40.0, 1.0);
+
+        SensorAggregationResponseDTO avg = service.getLiveMetricsWithStatistic(List.of(901L), true, true, true, 300L, "avg").getFirst();
+        assertEquals(20.0, avg.getTemperatureMetric());
+        assertEquals(30.0, avg.getHumidityMetric());
+        assertEquals(3.0, avg.getWindSpeedMetric());
+
+        SensorAggregationResponseDTO min = service.getLiveMetricsWithStatistic(List.of(901L), true, false, true, null, "min").getFirst();
+        assertEquals(10.0, min.getTemperatureMetric());
+        assertNull(min.getHumidityMetric());
+        assertEquals(1.0, min.getWindSpeedMetric());
+
+        SensorAggregationResponseDTO max = service.getLiveMetricsWithStatistic(List.of(901L), true, false, false, 3600L, "max").getFirst();
+        assertEquals(30.0, max.getTemperatureMetric());
+
+        SensorAggregationResponseDTO sum = service.getLiveMetricsWithStatistic(List.of(901L), false, true, false, 3600L, "sum").getFirst();
+        assertEquals(60.0, sum.getHumidityMetric());
+
+        // no database reads needed
+        verify(repository, never()).findBySensorIdAndTimestampBetween(eq(901L), any(), any());
+    }
+
+    // Sensor with nothing in the window
+    @Test
+    void liveMetricsThrowsWhenSensorHasNoReadings() {
+        assertThrows(SensorExceptions.SensorNotFoundException.class,
+                () -> service.getLiveMetricsWithStatistic(List.of(902L), true, false, false, 300L, "avg"));
+    }
+
+    // Window that isn't maintained
+    @Test
+    void liveMetricsThrowsOnUnknownWindow() {
+        saveLiveReading(903L, 10.0, 20.0, 5.0);
+
+        assertThrows(SensorExceptions.MetricCalculationException.class,
+                () -> service.getLiveMetricsWithStatistic(List.of(903L), true, false, false, 42L, "avg"));
+    }
+
+    // Invalid statistic
+    @Test
+    void liveMetricsThrowsOnInvalidStatistic() {
+        saveLiveReading(904L, 10.0, 20.0, 5.0);
+
+        assertThrows(SensorExceptions.MetricCalculationException.class,
+                () -> service.getLiveMetricsWithStatistic(List.of(904L), true, false, false, 300L, "invalid"));
+    }
+
+    // Old readings slide out and min/max move to the next values
+    @Test
+    void slidingWindowEvictsExpiredReadings() {
+        SlidingWindow window = new SlidingWindow(1000);
+        window.add(0, 5.0, 50.0, 1.0);
+        window.add(500, 10.0, 40.0, 3.0);
+        window.add(900, 7.0, 60.0, 2.0);
+
+        assertEquals(5.0, window.calculate(SlidingWindow.TEMPERATURE, "min", 900));
+        assertEquals(60.0, window.calculate(SlidingWindow.HUMIDITY, "max", 900));
+
+        // first reading expires
+        assertEquals(7.0, window.calculate(SlidingWindow.TEMPERATURE, "min", 1200));
+        assertEquals(17.0, window.calculate(SlidingWindow.TEMPERATURE, "sum", 1200));
+        assertEquals(2.5, window.calculate(SlidingWindow.WIND, "avg", 1200));
+
+        // second reading expires
+        assertEquals(7.0, window.calculate(SlidingWindow.TEMPERATURE, "max", 1600));
+        assertEquals(1, window.size(1600));
+
+        // everything expires
+        assertNull(window.calculate(SlidingWindow.TEMPERATURE, "avg", 5000));
+    }
+
+    // A late reading counts at its own time, one older than the window is dropped
+    @Test
+    void slidingWindowPlacesLateReadingsByTheirTime() {
+        SlidingWindow window = new SlidingWindow(1000);
+        window.add(0, 5.0, 50.0, 1.0);
+        window.add(900, 7.0, 60.0, 2.0);
+
+        // late but inside the window, expires at its own time rather than with the newest reading
+        assertTrue(window.add(100, 1.0, 50.0, 1.0));
+        assertEquals(1.0, window.calculate(SlidingWindow.TEMPERATURE, "min", 900));
+        assertEquals(13.0, window.calculate(SlidingWindow.TEMPERATURE, "sum", 900));
+        assertEquals(7.0, window.calculate(SlidingWindow.TEMPERATURE, "min", 1150));
+        assertEquals(1, window.size(1150));
+
+        // already older than the window
+        assertFalse(window.add(100, -50.0, 50.0, 1.0));
+        assertEquals(7.0, window.calculate(SlidingWindow.TEMPERATURE, "min", 1150));
+    }
+
+    // Sensors which stop reporting are dropped once their longest window is empty
+    @Test
+    void liveWindowsOfIdleSensorsAreEvicted() {
+        LiveWindowAggregator aggregator = new LiveWindowAggregator(new long[]{1, 2});
+        LocalDateTime now = LocalDateTime.now();
+        aggregator.record(new SensorReading(null, 1L, 10.0, 20.0, 5.0, now.minusSeconds(10)));
+        aggregator.record(new SensorReading(null, 2L, 10.0, 20.0, 5.0, now));
+        assertEquals(2, aggregator.sensorCount());
+
+        long nowMillis = System.currentTimeMillis();
+        assertEquals(1, aggregator.evictIdle(nowMillis));
+        assertEquals(1, aggregator.sensorCount());
+        assertEquals(10.0, aggregator.calculate(2L, 2, SlidingWindow.TEMPERATURE, "avg", nowMillis));
+
+        // an evicted sensor reads as having nothing in the window, bad statistics are still rejected
+        assertNull(aggregator.calculate(1L, 2, SlidingWindow.TEMPERATURE, "avg", nowMillis));
+        assertThrows(SensorExceptions.MetricCalculationException.class,
+                () -> aggregator.calculate(1L, 2, SlidingWindow.TEMPERATURE, "median", nowMillis));
+    }
+
+
+    // *** AlertEngine TESTS ***
+
+    // Alert only fires once the streak is reached and only once per streak
+    @Test
+    void alertFiresAfterConsecutiveReadings() {
+        alertEngine.addRule(new AlertRuleDTO("hot-911", List.of(911L), "temperature", ">", 40.0, 3, null));
+        alertSink.drain();
+        try {
+            saveLiveReading(911L, 41.0, 20.0, 5.0);
+            saveLiveReading(911L, 42.0, 20.0, 5.0);
+            assertTrue(alertSink.drain().isEmpty());
+
+            saveLiveReading(911L, 43.0, 20.0, 5.0);
+            List<SensorAlertDTO> alerts = alertSink.drain();
+            assertEquals(1, alerts.size());
+            assertEquals("hot-911", alerts.getFirst().getRuleName());
+            assertEquals(911L, alerts.getFirst().getSensorId());
+            assertEquals(43.0, alerts.getFirst().getValue());
+
+            // still hot so no new alert
+            saveLiveReading(911L, 44.0, 20.0, 5.0);
+            assertTrue(alertSink.drain().isEmpty());
+
+            // other sensors are not affected by the rule
+            saveLiveReading(912L, 50.0, 20.0, 5.0);
+            saveLiveReading(912L, 50.0, 20.0, 5.0);
+            saveLiveReading(912L, 50.0, 20.0, 5.0);
+            assertTrue(alertSink.drain().isEmpty());
+        } finally {
+            alertEngine.removeRule("hot-911");
+        }
+    }
+
+    // Averaged rule compares the window average, not the single reading
+    @Test
+    void alertFiresOnWindowAverage() {
+        alertEngine.addRule(new AlertRuleDTO("windy-913", List.of(913L), "windSpeed", ">", 25.0, null, 600L));
+        alertSink.drain();
+        try {
+            saveLiveReading(913L, 10.0, 20.0, 20.0);
+            saveLiveReading(913L, 10.0, 20.0, 28.0);
+            assertTrue(alertSink.drain().isEmpty());
+
+            saveLiveReading(913L, 10.0, 20.0, 40.0);
+            List<SensorAlertDTO> alerts = alertSink.drain();
+            assertEquals(1, alerts.size());
+            assertEquals(29.333, alerts.getFirst().getValue(), 0.001);
+        } finally {
+            alertEngine.removeRule("windy-913");
+        }
+    }
+
+    // Adding or removing another rule keeps the streak and window of the unchanged ones, changing or re-adding a rule resets it
+    @Test
+    void unrelatedRuleChangesKeepRuleState() {
+        alertEngine.addRule(new AlertRuleDTO("hot-914", List.of(914L), "temperature", ">", 40.0, 2, null));
+        alertEngine.addRule(new AlertRuleDTO("windy-914", List.of(914L), "windSpeed", ">", 25.0, null, 600L));
+        alertSink.drain();
+        try {
+            saveLiveReading(914L, 41.0, 20.0, 40.0);
+            assertEquals(List.of("windy-914"), alertSink.drain().stream().map(SensorAlertDTO::getRuleName).toList());
+
+            alertEngine.addRule(new AlertRuleDTO("other-915", List.of(915L), "humidity", "<", 5.0, null, null));
+            alertEngine.removeRule("other-915");
+
+            // second hot reading completes the streak, the window still holds the 40 so its average stays above 25
+            saveLiveReading(914L, 42.0, 20.0, 20.0);
+            List<SensorAlertDTO> alerts = alertSink.drain();
+            assertEquals(List.of("hot-914"), alerts.stream().map(SensorAlertDTO::getRuleName).toList());
+
+            // replacing hot-914 with a new definition starts its streak again
+            alertEngine.addRule(new AlertRuleDTO("hot-914", List.of(914L), "temperature", ">", 39.0, 2, null));
+            saveLiveReading(914L, 43.0, 20.0, 20.0);
+            assertTrue(alertSink.drain().isEmpty());
+            saveLiveReading(914L, 43.0, 20.0, 20.0);
+            assertEquals(1, alertSink.drain().size());
+
+            // so does removing it and adding it back
+            alertEngine.removeRule("hot-914");
+            alertEngine.addRule(new AlertRuleDTO("hot-914", List.of(914L), "temperature", ">", 39.0, 2, null));
+            saveLiveReading(914L, 43.0, 20.0, 20.0);
+            assertTrue(alertSink.drain().isEmpty());
+            saveLiveReading(914L, 43.0, 20.0, 20.0);
+            assertEquals(List.of("hot-914"), alertSink.drain().stream().map(SensorAlertDTO::getRuleName).toList());
+        } finally {
+            alertEngine.removeRule("hot-914");
+            alertEngine.removeRule("windy-914");
+        }
+    }
+
+    // Invalid rules are rejected
+    @Test
+    void invalidAlertRuleThrows() {
+        assertThrows(SensorExceptions.AlertRuleException.class,
+                () -> alertEngine.addRule(new AlertRuleDTO("bad", null, "pressure", ">", 1.0, null, null)));
+        assertThrows(SensorExceptions.AlertRuleException.class,
+                () -> alertEngine.addRule(new AlertRuleDTO("bad", null, "temperature", "!=", 1.0, null, null)));
+        assertThrows(SensorExceptions.AlertRuleException.class,
+                () -> alertEngine.addRule(new AlertRuleDTO("bad", null, "temperature", ">", null, null, null)));
+        assertThrows(SensorExceptions.AlertRuleException.class,
+                () -> alertEngine.removeRule("missing"));
+    }
+
+
+    // *** Aggregation query coalescing TESTS ***
+
+    // Number of calls which joined one already running
+    private double coalescedCount() {
+        return meterRegistry.get("sensor.aggregation.requests").tag("outcome", "coalesced").counter().count();
+    }
+
+    // Starts identical aggregation queries on several threads while the first one is held inside the repository
+    // Returns once every other query has joined the running one
+    private List<Future<List<SensorAggregationResponseDTO>>> startIdenticalQueries(ExecutorService pool, int callers, List<List<Long>> sensorIdOrders) throws Exception {
+        double before = coalescedCount();
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2025, 1, 2, 0, 0);
+
+        List<Future<List<SensorAggregationResponseDTO>>> futures = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            List<Long> sensorIds = sensorIdOrders.get(i % sensorIdOrders.size());
+            futures.add(pool.submit(() -> service.getMetricsAndTimePeriodWithConstraintAndStatistic(
+                    sensorIds, true, false, false, start, end, "avg")));
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (coalescedCount() - before < callers - 1) {
+            assertTrue(System.currentTimeMillis() < deadline, "queries were not coalesced");
+            Thread.sleep(5);
+        }
+        return futures;
+    }
+
+    // Identical concurrent queries run the scan once and all get the result in their own sensor order
+    @Test
+    void identicalConcurrentQueriesRunOnce() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger scans = new AtomicInteger();
+        when(repository.findBySensorIdAndTimestampBetween(anyLong(), any(), any())).thenAnswer(invocation -> {
+            scans.incrementAndGet();
+            release.await(5, TimeUnit.SECONDS);
+            Long sensorId = invocation.getArgument(0);
+            return List.of(new SensorReading(1L, sensorId, sensorId * 1.0, 50.0, 5.0, LocalDateTime.of(2025, 1, 1, 12, 0)));
+        });
+
+        int callers = 20;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<List<SensorAggregationResponseDTO>>> futures = startIdenticalQueries(pool, callers,
+                    List.of(List.of(931L, 932L), List.of(932L, 931L)));
+            release.countDown();
+
+            for (int i = 0; i < callers; i++) {
+                List<SensorAggregationResponseDTO> results = futures.get(i).get(5, TimeUnit.SECONDS);
+                long first = i % 2 == 0 ? 931L : 932L;
+                assertEquals(2, results.size());
+                assertEquals(first, results.get(0).getSensorId());
+                assertEquals(first * 1.0, results.get(0).getTemperatureMetric());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // one scan per sensor, not per caller
+        assertEquals(2, scans.get());
+        verify(repository, times(1)).findBySensorIdAndTimestampBetween(eq(931L), any(), any());
+        verify(repository, times(1)).findBySensorIdAndTimestampBetween(eq(932L), any(), any());
+        assertTrue(meterRegistry.get("sensor.aggregation.coalescing.ratio").gauge().value() > 0);
+    }
+
+    // Every caller sharing a query gets its exception
+    @Test
+    void identicalConcurrentQueriesShareException() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.findBySensorIdAndTimestampBetween(anyLong(), any(), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Collections.emptyList();
+        });
+
+        int callers = 10;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<List<SensorAggregationResponseDTO>>> futures = startIdenticalQueries(pool, callers, List.of(List.of(933L)));
+            release.countDown();
+
+            for (Future<List<SensorAggregationResponseDTO>> future : futures) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(SensorExceptions.SensorNotFoundException.class, e.getCause());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        verify(repository, times(1)).findBySensorIdAndTimestampBetween(eq(933L), any(), any());
+    }
+
+
+    // *** getApproximateMetricsAndTimePeriodWithConstraintAndStatistic(..., Double accuracy, Long maxLatencyMillis) TESTS ***
+
+    // Pretends sensorId has readingCount evenly spaced readings from start to end with temperature ~ N(mean, 2)
+    private void mockLargeSensor(long sensorId, long readingCount, double mean, LocalDateTime start, LocalDateTime end) {
+        Random random = new Random(42);
+        long stepNanos = Duration.between(start, end).toNanos() / (readingCount - 1);
+        when(repository.findBySensorIdAndTimestampBetweenOrderByTimestampAsc(eq(sensorId), any(), any(), any(Pageable.class))).thenAnswer(invocation -> {
+            List<SensorReading> first = new ArrayList<>();
+            for (int i = 0; i < ((Pageable) invocation.getArgument(3)).getPageSize(); i++) {
+                first.add(new SensorReading(1L, sensorId, mean, 50.0, 5.0, start.plusNanos(i * stepNanos)));
+            }
+            return first;
+        });
+        when(repository.findFirstBySensorIdAndTimestampBetweenOrderByTimestampDesc(eq(sensorId), any(), any()))
+                .thenReturn(Optional.of(new SensorReading(readingCount, sensorId, mean, 50.0, 5.0, start.plusNanos((readingCount - 1) * stepNanos))));
+        when(repository.countBySensorIdAndTimestampBetween(eq(sensorId), any(), any())).thenReturn(readingCount);
+        // each probe resolves to the first reading at or after it, the id is the reading's position
+        when(repository.findFirstAfterEach(eq(sensorId), any(), any())).thenAnswer(invocation -> {
+            List<LocalDateTime> probes = invocation.getArgument(1);
+            return probes.stream()
+                    .map(probe -> {
+                        long index = Math.max(0, (Duration.between(start, probe).toNanos() + stepNanos - 1) / stepNanos);
+                        return new SensorReading(index + 1, sensorId, mean + 2.0 * random.nextGaussian(), 50.0, 5.0,
+                                start.plusNanos(index * stepNanos));
+                    })
+                    .toList();
+        });
+    }
+
+    // AVG is estimated from a sample, the margin meets the accuracy asked for and covers the real mean
+    @Test
+    void approximateAverageMeetsAccuracy() {
+        LocalDateTime now = LocalDateTime.now();
+        mockLargeSensor(941L, 2_000_000L, 20.0, now.minusYears(3), now);
+
+        SensorAggregationResponseDTO dto = service.getApproximateMetricsAndTimePeriodWithConstraintAndStatistic(
+                List.of(941L), true, false, false, now.minusYears(3), now, "avg", 0.01, null).results().getFirst();
+
+        assertTrue(dto.getApproximate());
+        assertEquals(0.95, dto.getConfidenceLevel());
+        assertEquals(2_000_000L, dto.getReadingCount());
+        assertTrue(dto.getSampleSize() < 4096, "sample : " + dto.getSampleSize());
+        assertTrue(dto.getTemperatureMargin() <= 0.01 * dto.getTemperatureMetric());
+        assertEquals(20.0, dto.getTemperatureMetric(), 2 * dto.getTemperatureMargin());
+        assertNull(dto.getHumidityMetric());
+        assertNull(dto.getHumidityMargin());
+        verify(repository, never()).findBySensorIdAndTimestampBetween(eq(941L), any(), any());
+        // one query per round (64, 64, 128, ...) rather than one per sample
+        verify(repository, atMost(8)).findFirstAfterEach(eq(941L), any(), any());
+    }
+
+    // An open start (1970) is sampled from the first reading, not spread over decades of nothing onto one reading
+    @Test
+    void approximateOpenStartSamplesTheReadings() {
+        LocalDateTime now = LocalDateTime.now();
+        mockLargeSensor(946L, 1_000_000L, 20.0, now.minusYears(1), now);
+
+        SensorAggregationResponseDTO dto = service.getApproximateMetricsAndTimePeriodWithConstraintAndStatistic(
+                List.of(946L), true, false, false, null, now, "avg", 0.01, null).results().getFirst();
+
+        assertTrue(dto.getSampleSize() >= 64, "sample : " + dto.getSampleSize());
+        assertEquals(1_000_000L, dto.getReadingCount());
+        assertTrue(dto.getTemperatureMargin() <= 0.01 * dto.getTemperatureMetric());
+        assertEquals(20.0, dto.getTemperatureMetric(), 2 * dto.getTemperatureMargin());
+    }
+
+    // Probes landing on the same reading (readings far apart) count it once
+    @Test
+    void approximateCountsEachReadingOnce() {
+        LocalDateTime now = LocalDateTime.now();
+        mockLargeSensor(947L, 5_001L, 20.0, now.minusYears(1), now);
+
+        // 4096 probes over 5001 readings can't all land on different ones
+        SensorAggregationResponseDTO dto = service.getApproximateMetricsAndTimePeriodWithConstraintAndStatistic(
+                List.of(947L), true, false, false, now.minusYears(1), now, "avg", null, 60_000L).results().getFirst();
+
+        assertTrue(dto.getSampleSize() > 64 && dto.getSampleSize() < 4096, "sample : " + dto.getSampleSize());
+        assertEquals(5_001L, dto.getReadingCount());
+    }
+
+    // A mean near 0 can't be within 1% of itself, the absolute sensor.approximate.min-margin ends the sampling instead
+    @Test
+    void approximateAverageNearZeroConverges() {
+        LocalDateTime now = LocalDateTime.now();
+        mockLargeSensor(945L, 1_000_000L, 0.0, now.minusYears(1), now);
+
+        SensorAggregationResponseDTO dto = service.getApproximateMetricsAndTimePeriodWithConstraintAndStatistic(
+                List.of(945L), true, false, false, now.minusYears(1), now, "avg", 0.01, null).results().getFirst();
+
+        assertTrue(dto.getSampleSize() < 4096, "sample : " + dto.getSampleSize());
+        assertTrue(dto.getTemperatureMargin() <= 0.1);
+        assertEquals(0.0, dto.getTemperatureMetric(), 2 * dto.getTemperatureMargin());
+    }
+
+    // SUM is the estimated mean scaled up to every reading in the range
+    @Test
+    void approximateSumScalesToReadingCount() {
+        LocalDateTime now = LocalDateTime.now();
+        mockLargeSensor(942L, 1_000_000L, 20.0, now.minusYears(1), now);
+
+        SensorAggregationResponseDTO dto = service.getApproximateMetricsAndTimePeriodWithConstraintAndStatistic(
+                List.of(942L), true, false, false, now.minusYears(1), now, "sum", null, 200L).results().getFirst();
+
+        assertTrue(dto.getApproximate());
+        assertEquals(20_000_000.0, dto.getTemperatureMetric(), 2 * dto.getTemperatureMargin());
+        assertTrue(dto.getTemperatureMargin() > 0);
+    }
+
+    // MIN / MAX and small ranges are calculated exactly, no accuracy / maxLatencyMillis is the normal exact query
+    @Test
+    void approximateFallsBackToExact() {
+        LocalDateTime now = LocalDateTime.now();
+        List<SensorReading> readings = List.of(
+                new SensorReading(1L, 943L, 10.0, 50.0, 5.0, now.minusHours(2)),
+                new SensorReading(2L, 943L, 30.0, 50.0, 5.0, now.minusHours(1)));
+        when(repository.findBySensorIdAndTimestampBetweenOrderByTimestampAsc(eq(943L), any(), any(), any(Pageable.class))).thenReturn(readings);
+        when(repository.findBySensorIdAndTimestampBetween(eq(943L), any(), any())).thenReturn(readings);
+
+        SensorAggregationResponseDTO small = service.getApproximateMetricsAndTimePeriodWithConstraintAndStatistic(
+                List.of(943L), true, false, false, now.minusDays(1), now, "avg", 0.05, null).results().getFirst();
+        assertFalse(small.getApproximate());
+        assertEquals(20.0, small.getTemperatureMetric());
+        assertNull(small.getTemperatureMargin());
+
+        SensorAggregationResponseDTO max = service.getApproximateMetricsAndTimePeriodWithConstraintAndStatistic(
+                List.of(943L), true, false, false, now.minusDays(1), now, "max", 0.05, null).results().getFirst();
+        assertNull(max.getApproximate());
+        assertEquals(30.0, max.getTemperatureMetric());
+
+        SensorAggregationResponseDTO exact = service.getApproximateMetricsAndTimePeriodWithConstraintAndStatistic(
+                List.of(943L), true, false, false, now.minusDays(1), now, "avg", null, null).results().getFirst();
+        assertNull(exact.getApproximate());
+        assertEquals(20.0, exact.getTemperatureMetric());
+    }
+
+    // Nonsense options are rejected
+    @Test
+    void approximateRejectsInvalidOptions() {
+        LocalDateTime now = LocalDateTime.now();
+        assertThrows(SensorExceptions.MetricCalculationException.class, () -> service.getApproximateMetricsAndTimePeriodWithConstraintAndStatistic(
+                List.of(944L), true, false, false, now.minusDays(1), now, "avg", 1.5, null));
+        assertThrows(SensorExceptions.MetricCalculationException.class, () -> service.getApproximateMetricsAndTimePeriodWithConstraintAndStatistic(
+                List.of(944L), true, false, false, now.minusDays(1), now, "avg", null, 0L));
+    }
+
+    // ***  getGroupMetricsWithStatistic() TESTS ***
+
+    private void awaitGroupReady(String name) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            if (groupService.getGroups().stream().anyMatch(group -> group.getName().equals(name) && group.getStatus().equals("ready"))) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("Group " + name + " never became ready");
+    }
+
+    // HAPPY PATH - whole hours come from the rollup, only the last part hour is read from the database
+    @Test
+    void groupMetricsMergeRollupWithEdges() throws Exception {
+        LocalDateTime midnight = LocalDateTime.of(2020, 1, 1, 0, 0);
+        when(repository.findBySensorIdAndIdGreaterThanOrderByIdAsc(eq(951L), eq(0L), any())).thenReturn(List.of(
+                new SensorReading(1L, 951L, 10.0, 50.0, 1.0, midnight.plusMinutes(10)),
+                new SensorReading(2L, 951L, 20.0, 50.0, 1.0, midnight.plusMinutes(80))));
+        when(repository.findBySensorIdInAndTimestampBetween(any(), eq(midnight.plusHours(2)), eq(midnight.plusMinutes(165))))
+                .thenReturn(List.of(new SensorReading(3L, 952L, 30.0, 50.0, 1.0, midnight.plusMinutes(150))));
+
+        groupService.putGroup(new SensorGroupDTO("north-test", List.of(951L, 952L), null));
+        awaitGroupReady("north-test");
+
+        // saved once the group is ready so it goes straight into the rollup
+        service.saveReading(new SensorReading(null, 952L, 40.0, 50.0, 1.0, midnight.plusMinutes(70)));
+
+        SensorAggregationResponseDTO avg = service.getGroupMetricsWithStatistic(
+                List.of("north-test"), true, false, false, midnight, midnight.plusMinutes(165), "avg").results().getFirst();
+        assertEquals("north-test", avg.getGroupName());
+        assertNull(avg.getSensorId());
+        assertEquals(25.0, avg.getTemperatureMetric());
+        assertNull(avg.getHumidityMetric());
+
+        SensorAggregationResponseDTO max = service.getGroupMetricsWithStatistic(
+                List.of("north-test"), true, false, true, midnight, midnight.plusMinutes(165), "max").results().getFirst();
+        assertEquals(40.0, max.getTemperatureMetric());
+        assertEquals(1.0, max.getWindSpeedMetric());
+
+        // the sensors are never scanned one by one
+        verify(repository, never()).findBySensorIdAndTimestampBetween(eq(951L), any(), any());
+        verify(repository, never()).findBySensorIdInAndTimestampBetween(any(), eq(midnight), any());
+    }
+
+    // Unknown groups are not found, invalid ones are rejected
+    @Test
+    void invalidGroupsThrow() {
+        assertThrows(SensorExceptions.SensorGroupNotFoundException.class, () -> service.getGroupMetricsWithStatistic(
+                List.of("no-such-group"), true, false, false, null, null, "avg"));
+        assertThrows(SensorExceptions.SensorGroupException.class,
+                () -> groupService.putGroup(new SensorGroupDTO("empty-test", List.of(), null)));
+        assertThrows(SensorExceptions.SensorGroupNotFoundException.class, () -> groupService.removeGroup("no-such-group"));
+    }
+
+    // Group definitions are stored, so a restart (loadGroups) brings them back in the order they were created
+    @Test
+    void groupsSurviveRestart() throws InterruptedException {
+        groupService.putGroup(new SensorGroupDTO("stored-test", List.of(961L, 962L, 961L), null));
+        groupService.putGroup(new SensorGroupDTO("removed-test", List.of(963L), null));
+        groupService.removeGroup("removed-test");
+
+        assertEquals(List.of(961L, 962L), groupRepository.findById("stored-test").orElseThrow().getSensorIds());
+        assertTrue(groupRepository.findById("removed-test").isEmpty());
+
+        groupService.loadGroups();
+        awaitGroupReady("stored-test");
+        assertTrue(groupService.getGroups().stream().noneMatch(group -> group.getName().equals("removed-test")));
+        assertEquals(List.of(961L, 962L), groupService.require("stored-test").getSensorIds());
+    }
+
 }
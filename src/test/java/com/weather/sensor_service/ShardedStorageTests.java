@@ -0,0 +1,104 @@
+package com.weather.sensor_service;
+
+import com.weather.sensor_service.Config.ShardRouter;
+import com.weather.sensor_service.Entity.SensorReading;
+import com.weather.sensor_service.Repository.SensorReadingRepository;
+import com.weather.sensor_service.Services.SensorService;
+import com.weather.sensor_service.Services.ShardRebalancer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two H2 databases as shards, each created from schema-shard.sql
+@SpringBootTest(properties = {
+        "sensor.datasource.shards.urls=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:schema-shard.sql',"
+                + "jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:schema-shard.sql'",
+        "spring.jpa.hibernate.ddl-auto=none"})
+class ShardedStorageTests {
+
+    @Autowired
+    private SensorService service;
+
+    @Autowired
+    private ShardRouter router;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SensorReadingRepository repository;
+
+    @Autowired
+    private ShardRebalancer rebalancer;
+
+    private List<Long> idsOn(String shard) {
+        return router.onShard(shard, () -> jdbcTemplate.queryForList("select id from sensor_readings", Long.class));
+    }
+
+    // Readings saved through both shards in turn get ids no other shard hands out
+    @Test
+    void idsAreUniqueAcrossShards() {
+        long onShard0 = LongStream.range(1, 1000).filter(id -> router.shardFor(id).equals("shard-0")).findFirst().orElseThrow();
+        long onShard1 = LongStream.range(1, 1000).filter(id -> router.shardFor(id).equals("shard-1")).findFirst().orElseThrow();
+
+        // alternating so both shards' blocks are in use at the same time
+        for (int i = 0; i < 120; i++) {
+            long sensorId = i % 2 == 0 ? onShard0 : onShard1;
+            service.saveReading(new SensorReading(null, sensorId, 20.0 + i, 50.0, 5.0, LocalDateTime.now()));
+        }
+
+        List<Long> shard0 = idsOn("shard-0");
+        List<Long> shard1 = idsOn("shard-1");
+        assertEquals(60, shard0.size());
+        assertEquals(60, shard1.size());
+
+        Set<Long> all = new HashSet<>(shard0);
+        all.addAll(shard1);
+        assertEquals(120, all.size());
+        shard0.forEach(id -> assertTrue(id > 0 && id < ShardRouter.SHARD_ID_RANGE, "shard-0 id : " + id));
+        shard1.forEach(id -> assertTrue(id > ShardRouter.SHARD_ID_RANGE && id < 2 * ShardRouter.SHARD_ID_RANGE, "shard-1 id : " + id));
+    }
+
+    // A move which stopped after copying part of a sensor is run again without duplicating anything
+    @Test
+    void rebalanceSkipsReadingsAlreadyCopied() throws InterruptedException {
+        long sensorId = LongStream.range(5000, 6000).filter(id -> router.shardFor(id).equals("shard-1")).findFirst().orElseThrow();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        List<SensorReading> readings = LongStream.range(0, 5)
+                .mapToObj(i -> {
+                    SensorReading reading = new SensorReading(null, sensorId, 20.0 + i, 50.0, 5.0, start.plusMinutes(i));
+                    reading.setDeviceSequence(i % 2 == 0 ? i : null);
+                    return reading;
+                })
+                .toList();
+        // all on the old shard, the first two (one keyed, one not) were already copied before the crash
+        router.onShard("shard-0", () -> repository.saveAll(readings.stream().map(this::copyOf).toList()));
+        router.onShard("shard-1", () -> repository.saveAll(readings.subList(0, 2).stream().map(this::copyOf).toList()));
+
+        rebalancer.rebalance();
+        for (int i = 0; i < 100 && (Boolean) rebalancer.status().get("running"); i++) {
+            Thread.sleep(50);
+        }
+
+        assertEquals(0, router.onShard("shard-0", () -> repository.countBySensorId(sensorId)));
+        assertEquals(5, router.onShard("shard-1", () -> repository.countBySensorId(sensorId)));
+        assertEquals("shard-1", router.shardFor(sensorId));
+    }
+
+    private SensorReading copyOf(SensorReading reading) {
+        SensorReading copy = new SensorReading(null, reading.getSensorId(), reading.getTemperature(),
+                reading.getHumidity(), reading.getWindSpeed(), reading.getTimestamp());
+        copy.setDeviceSequence(reading.getDeviceSequence());
+        return copy;
+    }
+}
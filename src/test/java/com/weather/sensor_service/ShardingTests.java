@@ -0,0 +1,159 @@
+package com.weather.sensor_service;
+
+import com.weather.sensor_service.Config.ConsistentHashRing;
+import com.weather.sensor_service.Config.ShardRouter;
+import com.weather.sensor_service.Exceptions.SensorExceptions;
+import com.weather.sensor_service.Services.ShardScatterGather;
+import com.weather.sensor_service.Services.ShardedResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardingTests {
+
+    // *** ConsistentHashRing TESTS ***
+
+    // Sensors are spread roughly evenly over the shards
+    @Test
+    void ringSpreadsSensorsEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("shard-0", "shard-1", "shard-2", "shard-3"), 128);
+
+        Map<String, Integer> counts = new HashMap<>();
+        LongStream.range(0, 40_000).forEach(sensorId -> counts.merge(ring.shardFor(sensorId), 1, Integer::sum));
+
+        assertEquals(4, counts.size());
+        counts.values().forEach(count -> assertTrue(count > 7_000 && count < 13_000, "uneven shard : " + count));
+    }
+
+    // Adding a shard only moves sensors onto the new shard, and only about 1/N of them
+    @Test
+    void addingShardMovesFewSensors() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("shard-0", "shard-1", "shard-2"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("shard-0", "shard-1", "shard-2", "shard-3"), 128);
+
+        int moved = 0;
+        for (long sensorId = 0; sensorId < 40_000; sensorId++) {
+            String oldShard = before.shardFor(sensorId);
+            String newShard = after.shardFor(sensorId);
+            if (!oldShard.equals(newShard)) {
+                assertEquals("shard-3", newShard);
+                moved++;
+            }
+        }
+
+        assertTrue(moved > 6_000 && moved < 14_000, "moved : " + moved);
+    }
+
+    // *** ShardScatterGather TESTS ***
+
+    private final ShardRouter router = new ShardRouter(List.of("jdbc:a", "jdbc:b", "jdbc:c"), 64);
+
+    // Transaction manager which does nothing but record the timeout of each transaction begun
+    private final List<Integer> transactionTimeouts = new CopyOnWriteArrayList<>();
+    private final PlatformTransactionManager transactions = new AbstractPlatformTransactionManager() {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            transactionTimeouts.add(definition.getTimeout());
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    };
+
+    // Every shard's sensors are queried on that shard
+    @Test
+    void scatterRunsEachShardWithItsSensors() {
+        ShardScatterGather scatterGather = new ShardScatterGather(router, transactions, 2000, 4);
+        List<Long> sensorIds = LongStream.range(1, 50).boxed().toList();
+
+        ShardedResult<String> result = scatterGather.scatter(sensorIds,
+                shardSensorIds -> shardSensorIds.stream().map(id -> ShardRouter.currentShard() + ":" + id).toList());
+
+        assertFalse(result.isPartial());
+        assertEquals(sensorIds.size(), result.results().size());
+        result.results().forEach(entry -> {
+            String[] parts = entry.split(":");
+            assertEquals(router.shardFor(Long.parseLong(parts[1])), parts[0]);
+        });
+        scatterGather.shutdown();
+    }
+
+    // A slow shard is reported instead of holding up the whole request
+    @Test
+    void slowShardGivesPartialResult() {
+        ShardScatterGather scatterGather = new ShardScatterGather(router, transactions, 200, 4);
+        String slowShard = router.shardFor(1L);
+        List<Long> sensorIds = LongStream.range(1, 50).boxed().toList();
+
+        ShardedResult<Long> result = scatterGather.scatter(sensorIds, shardSensorIds -> {
+            if (slowShard.equals(ShardRouter.currentShard())) {
+                try {
+                    Thread.sleep(5_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return shardSensorIds;
+        });
+
+        assertEquals(List.of(slowShard), result.failedShards());
+        assertFalse(result.results().contains(1L));
+        assertFalse(result.results().isEmpty());
+        scatterGather.shutdown();
+    }
+
+    // Each shard's work gets the time left before the deadline as its transaction (and so query) timeout
+    @Test
+    void shardQueriesTimeOutAtTheDeadline() {
+        ShardScatterGather scatterGather = new ShardScatterGather(router, transactions, 2500, 4);
+
+        scatterGather.scatterAll(() -> List.of(ShardRouter.currentShard()));
+
+        assertEquals(3, transactionTimeouts.size());
+        transactionTimeouts.forEach(timeout -> assertTrue(timeout >= 1 && timeout <= 3, "timeout : " + timeout));
+        scatterGather.shutdown();
+    }
+
+    // Not found on any shard is still reported as not found
+    @Test
+    void notFoundOnShardIsRethrown() {
+        ShardScatterGather scatterGather = new ShardScatterGather(router, transactions, 2000, 4);
+
+        assertThrows(SensorExceptions.SensorNotFoundException.class, () -> scatterGather.scatter(List.of(1L, 2L, 3L),
+                shardSensorIds -> {
+                    throw new SensorExceptions.SensorNotFoundException("none");
+                }));
+        scatterGather.shutdown();
+    }
+
+    // No shard answering is an error
+    @Test
+    void allShardsFailingThrows() {
+        ShardScatterGather scatterGather = new ShardScatterGather(router, transactions, 2000, 4);
+
+        assertThrows(SensorExceptions.ShardUnavailableException.class, () -> scatterGather.scatterAll(() -> {
+            throw new IllegalStateException("db down");
+        }));
+        scatterGather.shutdown();
+    }
+}
@@ -0,0 +1,149 @@
+package com.weather.sensor_service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Time from launching a new JVM to its first successful POST /sensors/create-reading, i.e. how soon a scaled out node takes ingest
+// Always measures the plain classpath with and without the fast-startup profile, plus the extracted jar / CDS archive if built
+// Run with : ./gradlew cdsArchive [-Paot] startupBenchmark [-Dload.startup.runs=5] [-Dspring.profiles.active=prod]
+@Tag("load")
+class StartupBenchmarkTests {
+
+    private static final int RUNS = Integer.getInteger("load.startup.runs", 3);
+    private static final int TIMEOUT_SECONDS = Integer.getInteger("load.startup.timeout-seconds", 120);
+
+    // Set by the startupBenchmark task
+    private static final String FAST_STARTUP_DIR = System.getProperty("load.startup.dir");
+    private static final String JAR = System.getProperty("load.startup.jar");
+    private static final boolean AOT = Boolean.getBoolean("load.startup.aot");
+
+    private static final String PROFILES = System.getProperty("spring.profiles.active", "");
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+
+    // One way of starting the service
+    private record Mode(String name, File workingDir, List<String> jvmArgs, List<String> appArgs) {
+    }
+
+    @Test
+    void timeToFirstCreateReading() throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> classpath = List.of("-cp", System.getProperty("java.class.path"), SensorServiceApplication.class.getName());
+
+        List<Mode> modes = new ArrayList<>();
+        modes.add(new Mode("classpath", null, classpath, profileArgs(false)));
+        modes.add(new Mode("classpath lazy", null, classpath, profileArgs(true)));
+
+        File dir = FAST_STARTUP_DIR == null ? null : new File(FAST_STARTUP_DIR);
+        if (dir != null && JAR != null && new File(dir, JAR).isFile()) {
+            modes.add(new Mode("jar", dir, List.of("-jar", JAR), profileArgs(false)));
+
+            if (new File(dir, "application.jsa").isFile()) {
+                List<String> cds = new ArrayList<>(List.of("-XX:SharedArchiveFile=application.jsa"));
+                if (AOT) {
+                    cds.add("-Dspring.aot.enabled=true");
+                }
+                cds.addAll(List.of("-jar", JAR));
+                String name = AOT ? "cds+aot" : "cds";
+                modes.add(new Mode(name, dir, cds, profileArgs(false)));
+                modes.add(new Mode(name + " lazy", dir, cds, profileArgs(true)));
+            }
+        }
+
+        System.out.printf("runs=%d profiles=%s%n", RUNS, PROFILES.isEmpty() ? "(default)" : PROFILES);
+        for (Mode mode : modes) {
+            long[] millis = new long[RUNS];
+            for (int run = 0; run < RUNS; run++) {
+                millis[run] = firstCreateReadingMillis(java, mode);
+            }
+            Arrays.sort(millis);
+            System.out.printf("%-16s first create-reading  min=%dms median=%dms max=%dms%n",
+                    mode.name(), millis[0], millis[RUNS / 2], millis[RUNS - 1]);
+        }
+    }
+
+    // Starts the service, posts a reading until one succeeds and stops it again
+    private long firstCreateReadingMillis(String java, Mode mode) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(mode.jvmArgs());
+        command.add("--server.port=" + port);
+        // Limits off, every attempt should get through once the service is up
+        command.add("--sensor.admission.enabled=false");
+        command.addAll(mode.appArgs());
+
+        Path log = Files.createTempFile("startup-benchmark-", ".log");
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+        if (mode.workingDir() != null) {
+            builder.directory(mode.workingDir());
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/sensors/create-reading"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"sensorId\":1,\"temperature\":20.5,\"humidity\":50.0,\"windSpeed\":3.2}"))
+                .build();
+
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            long deadline = start + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (System.nanoTime() < deadline) {
+                assertTrue(process.isAlive(), mode.name() + " exited during startup, see " + log);
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 300) {
+                        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                        Files.deleteIfExists(log);
+                        return millis;
+                    }
+                } catch (IOException e) {
+                    // not listening yet
+                }
+                Thread.sleep(10);
+            }
+            return fail(mode.name() + " did not accept a reading within " + TIMEOUT_SECONDS + "s, see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    // --spring.profiles.active for a run, the fast-startup profile added on top of whatever was asked for
+    private static List<String> profileArgs(boolean fastStartup) {
+        if (!fastStartup) {
+            return PROFILES.isEmpty() ? List.of() : List.of("--spring.profiles.active=" + PROFILES);
+        }
+        if (PROFILES.isEmpty()) {
+            // embedded H2, the profile's dialect default is PostgreSQL
+            return List.of("--spring.profiles.active=fast-startup", "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect");
+        }
+        return List.of("--spring.profiles.active=" + PROFILES + ",fast-startup");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+-- sensor_readings for the reactive tests (Hibernate creates it in the servlet tests)
+-- started at 1 like the sequence Hibernate creates
+CREATE SEQUENCE IF NOT EXISTS sensor_readings_seq START WITH 1 INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS sensor_readings (
+    id BIGINT PRIMARY KEY,
+    sensor_id BIGINT,
+    timestamp TIMESTAMP(6),
+    temperature DOUBLE PRECISION,
+    humidity DOUBLE PRECISION,
+    wind_speed DOUBLE PRECISION,
+    device_sequence BIGINT,
+    CONSTRAINT uk_sensor_readings_sensor_device_sequence UNIQUE (sensor_id, device_sequence)
+);
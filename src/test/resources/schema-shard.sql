@@ -0,0 +1,22 @@
+-- sensor_readings (and sensor groups, only used on shard-0) on each shard for ShardedStorageTests (Hibernate only creates the schema on one database)
+CREATE SEQUENCE IF NOT EXISTS sensor_readings_seq START WITH 1 INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS sensor_readings (
+    id BIGINT PRIMARY KEY,
+    sensor_id BIGINT,
+    timestamp TIMESTAMP(6),
+    temperature DOUBLE PRECISION,
+    humidity DOUBLE PRECISION,
+    wind_speed DOUBLE PRECISION,
+    device_sequence BIGINT,
+    CONSTRAINT uk_sensor_readings_sensor_device_sequence UNIQUE (sensor_id, device_sequence)
+);
+CREATE TABLE IF NOT EXISTS sensor_groups (
+    name VARCHAR(255) PRIMARY KEY,
+    created_at TIMESTAMP(6)
+);
+CREATE TABLE IF NOT EXISTS sensor_group_sensors (
+    group_name VARCHAR(255) NOT NULL REFERENCES sensor_groups (name),
+    sensor_order INTEGER NOT NULL,
+    sensor_id BIGINT,
+    PRIMARY KEY (group_name, sensor_order)
+);